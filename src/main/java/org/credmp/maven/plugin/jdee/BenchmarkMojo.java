@@ -0,0 +1,347 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.jdee.support.BenchmarkMetrics;
+import org.apache.maven.plugin.jdee.support.RepositoryServer;
+import org.apache.maven.plugin.jdee.support.SyntheticRepository;
+
+/**
+ * Goal which run end-to-end benchmark of goals jdee and clean.
+ * <p>For each scenario <code>MODULESxDEPENDENCIES</code> is generated
+ * multi module project (modules depend on artifacts of synthetic repository,
+ * see {@link SyntheticRepository}) and goals are run by forked maven.  Wall
+ * time, peak heap (see {@link BenchmarkMetrics}) and count of written (or
+ * deleted) files are compared with baseline file.  Goal fails if any value
+ * is bigger than baseline value plus threshold.  Missing baseline is
+ * written.</p>
+ *
+ * @goal benchmark
+ * @requiresProject false
+ */
+public class BenchmarkMojo extends AbstractMojo {
+
+  /** Benchmarked goals */
+  private static final String[] GOALS = {"jdee", "clean"};
+
+  /**
+   * Directory for generated projects and repository.
+   *
+   * @parameter expression="${directory}" default-value="${basedir}/target/benchmark"
+   * @required
+   */
+  private File directory;
+
+  /**
+   * Scenarios separated by comma, each scenario is
+   * <code>MODULESxDEPENDENCIES</code>.
+   *
+   * @parameter expression="${scenarios}" default-value="10x50,100x500,1000x2000"
+   */
+  private String scenarios;
+
+  /**
+   * Baseline file with results of previous run.
+   *
+   * @parameter expression="${baseline}" default-value="${basedir}/jdee-benchmark.properties"
+   * @required
+   */
+  private File baseline;
+
+  /**
+   * Allowed relative regression (0.2 is 20%).
+   *
+   * @parameter expression="${threshold}" default-value="0.2"
+   */
+  private double threshold;
+
+  /**
+   * Write results to baseline file.
+   *
+   * @parameter expression="${updateBaseline}"
+   */
+  private boolean updateBaseline;
+
+  /**
+   * Maven executable.
+   *
+   * @parameter expression="${mavenExecutable}" default-value="mvn"
+   */
+  private String mavenExecutable;
+
+  /**
+   * Other arguments of forked maven (separated by spaces), e.g.
+   * <code>-Dmaven.repo.local=DIR</code>.
+   *
+   * @parameter expression="${mavenArguments}"
+   */
+  private String mavenArguments;
+
+  /**
+   * Plugin which goals are benchmarked (groupId:artifactId:version).
+   *
+   * @parameter expression="${benchmarkedPlugin}" default-value="${plugin.groupId}:${plugin.artifactId}:${plugin.version}"
+   * @required
+   */
+  private String benchmarkedPlugin;
+
+  /**
+   * Latency of simulated repository in milliseconds.  If it is 0 then
+   * repository is used by file:// URL.
+   *
+   * @parameter expression="${latency}" default-value="0"
+   */
+  private long latency;
+
+  /**
+   * Seed of random numbers of synthetic repository.
+   *
+   * @parameter expression="${seed}" default-value="1"
+   */
+  private long seed;
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if benchmark cannot be run
+   * @throws MojoFailureException if some scenario regress
+   */
+  public void execute() throws MojoExecutionException, MojoFailureException {
+    List parsed = new ArrayList();
+    int maxDependencies = 0;
+    String[] names = scenarios.split(",");
+    for (int i = 0; i < names.length; i++) {
+      String name = names[i].trim();
+      int x = name.indexOf('x');
+      if (x < 1) {
+        throw new MojoExecutionException("Scenario must be MODULESxDEPENDENCIES: " + name);
+      }
+      int[] scenario = {Integer.parseInt(name.substring(0, x)), Integer.parseInt(name.substring(x + 1))};
+      maxDependencies = Math.max(maxDependencies, scenario[1]);
+      parsed.add(scenario);
+    }
+
+    RepositoryServer server = null;
+    try {
+      File repository = new File(directory, "repository-" + maxDependencies);
+      if (!repository.isDirectory()) {
+        SyntheticRepository generator = new SyntheticRepository(repository, seed);
+        generator.setArtifacts(maxDependencies);
+        generator.setDependencies(3);
+        generator.setMissingSources(0.2);
+        generator.setMissingJavadocs(0.5);
+        generator.generate();
+      }
+      String url = repository.toURI().toString();
+      if (latency > 0) {
+        server = new RepositoryServer(repository, 0, seed);
+        server.setLatency(latency);
+        server.start();
+        url = server.getUrl();
+      }
+
+      Properties results = new Properties();
+      for (Iterator iter = parsed.iterator(); iter.hasNext();) {
+        int[] scenario = (int[]) iter.next();
+        runScenario(scenario[0], scenario[1], maxDependencies, url, results);
+      }
+      compare(results);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Benchmark failed", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Benchmark interrupted", e);
+    } finally {
+      if (server != null) {
+        server.stop();
+      }
+    }
+  }
+
+  /** Methode which generate project of scenario and run benchmarked goals
+   * @param modules count of modules
+   * @param dependencies count of dependencies of each module
+   * @param artifacts count of artifacts in synthetic repository
+   * @param url URL of synthetic repository
+   * @param results results (name of scenario.goal.metric - value)
+   * @throws IOException if project cannot be generated or maven run
+   * @throws InterruptedException if benchmark is interrupted
+   * @throws MojoExecutionException if maven fails
+   */
+  private void runScenario(final int modules, final int dependencies, final int artifacts, final String url,
+                           final Properties results)
+    throws IOException, InterruptedException, MojoExecutionException {
+    String name = modules + "x" + dependencies;
+    File project = new File(directory, name);
+    if (!new File(project, "pom.xml").isFile()) {
+      SyntheticRepository generator = new SyntheticRepository(null, seed);
+      generator.setArtifacts(artifacts);
+      List moduleNames = new ArrayList();
+      for (int i = 0; i < modules; i++) {
+        String module = "m" + i;
+        moduleNames.add(module);
+        generator.writeProject(new File(project, module), module, url, dependencies, null);
+      }
+      generator.writeProject(project, "synthetic-" + name, url, 0, moduleNames);
+    }
+
+    File metrics = new File(directory, name + "-metrics.txt");
+    for (int i = 0; i < GOALS.length; i++) {
+      metrics.delete();
+      int before = countFiles(project);
+      long start = System.currentTimeMillis();
+      int exit = runMaven(project, GOALS[i], metrics, new File(directory, name + "-" + GOALS[i] + ".log"));
+      long time = System.currentTimeMillis() - start;
+      if (exit != 0) {
+        throw new MojoExecutionException("Maven failed in scenario " + name + " (goal " + GOALS[i]
+                                         + "), see " + name + "-" + GOALS[i] + ".log");
+      }
+      int files = Math.abs(countFiles(project) - before);
+      long[] goalMetrics = BenchmarkMetrics.read(metrics, GOALS[i]);
+      String key = name + "." + GOALS[i] + ".";
+      results.setProperty(key + "time", Long.toString(time));
+      results.setProperty(key + "files", Integer.toString(files));
+      if (goalMetrics != null) {
+        results.setProperty(key + "heap", Long.toString(goalMetrics[1]));
+      }
+      getLog().info(name + " " + GOALS[i] + ": " + time + " ms, " + files + " files, peak heap "
+                    + (goalMetrics == null ? "?" : Long.toString(goalMetrics[1] / (1024 * 1024)) + " MB"));
+    }
+  }
+
+  /** Methode which run forked maven
+   * @param project directory of project
+   * @param goal benchmarked goal
+   * @param metrics metrics file
+   * @param log file for output of maven
+   * @return exit value of maven
+   * @throws IOException if maven cannot be run
+   * @throws InterruptedException if benchmark is interrupted
+   */
+  private int runMaven(final File project, final String goal, final File metrics, final File log)
+    throws IOException, InterruptedException {
+    List command = new ArrayList();
+    command.add(mavenExecutable);
+    command.add("-B");
+    command.add("-D" + BenchmarkMetrics.PROPERTY + "=" + metrics.getAbsolutePath());
+    if (mavenArguments != null && !"".equals(mavenArguments.trim())) {
+      String[] arguments = mavenArguments.trim().split("\\s+");
+      for (int i = 0; i < arguments.length; i++) {
+        command.add(arguments[i]);
+      }
+    }
+    command.add(benchmarkedPlugin + ":" + goal);
+
+    ProcessBuilder builder = new ProcessBuilder(command);
+    builder.directory(project);
+    builder.redirectErrorStream(true);
+    Process process = builder.start();
+    process.getOutputStream().close();
+    InputStream in = process.getInputStream();
+    OutputStream out = new FileOutputStream(log);
+    try {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+    } finally {
+      out.close();
+      in.close();
+    }
+    return process.waitFor();
+  }
+
+  /** Methode which compare results with baseline and write baseline
+   * @param results results of this run
+   * @throws IOException if baseline cannot be read or written
+   * @throws MojoFailureException if some value regress
+   */
+  private void compare(final Properties results) throws IOException, MojoFailureException {
+    if (!baseline.isFile()) {
+      getLog().info("Baseline doesn't exist, it is written: " + baseline);
+      writeBaseline(results);
+      return;
+    }
+    Properties base = new Properties();
+    InputStream in = new FileInputStream(baseline);
+    try {
+      base.load(in);
+    } finally {
+      in.close();
+    }
+
+    StringBuffer regressions = new StringBuffer();
+    for (Iterator iter = new TreeSet(results.keySet()).iterator(); iter.hasNext();) {
+      String key = (String) iter.next();
+      String expected = base.getProperty(key);
+      if (expected == null) {
+        continue;
+      }
+      long value = Long.parseLong(results.getProperty(key));
+      long limit = (long) (Long.parseLong(expected) * (1 + threshold));
+      if (value > limit) {
+        regressions.append("\n  " + key + ": " + value + " (baseline " + expected + ")");
+      }
+    }
+    if (updateBaseline) {
+      writeBaseline(results);
+    }
+    if (regressions.length() > 0) {
+      throw new MojoFailureException("Benchmark regress more then " + (int) (threshold * 100) + "%:"
+                                     + regressions);
+    }
+  }
+
+  /** Methode which write baseline file
+   * @param results results of this run
+   * @throws IOException if baseline cannot be written
+   */
+  private void writeBaseline(final Properties results) throws IOException {
+    OutputStream out = new FileOutputStream(baseline);
+    try {
+      results.store(out, "Baseline of emacs:benchmark");
+    } finally {
+      out.close();
+    }
+  }
+
+  /** Methode which count files in directory tree
+   * @param dir directory
+   * @return count of files
+   */
+  private static int countFiles(final File dir) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return 0;
+    }
+    int result = 0;
+    for (int i = 0; i < files.length; i++) {
+      result += files[i].isDirectory() ? countFiles(files[i]) : 1;
+    }
+    return result;
+  }
+}
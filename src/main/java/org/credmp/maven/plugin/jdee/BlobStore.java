@@ -0,0 +1,199 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+
+/** Store of files shared by all extracted attachments in cache.
+ * <p>Blob is named by CRC-32 and size of content.  Extracted file with the
+ * same content is hard linked to the blob, so many versions of one library
+ * share one copy of unchanged files.  If the file system (or java) doesn't
+ * support hard links, then the blob is copied.</p>
+ * <p>Hard links are created by <code>java.nio.file.Files.createLink</code>
+ * which is called by reflection, because plugin is compiled for java 1.5.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class BlobStore {
+
+  /** Name of store directory in cache */
+  public static final String DIRECTORY = ".blobs";
+
+  /** Directory with blobs */
+  private final File directory;
+  /** Methode java.nio.file.Files.createLink or null */
+  private Method createLink;
+  /** Methode java.io.File.toPath or null */
+  private Method toPath;
+  /** Methode java.nio.file.Files.getAttribute or null */
+  private Method getAttribute;
+
+  /** Creates a new <code>BlobStore</code> instance.
+   * @param directory directory with blobs, must be on the same file system as
+   *        extracted files
+   */
+  public BlobStore(final File directory) {
+    super();
+    this.directory = directory;
+    try {
+      Class files = Class.forName("java.nio.file.Files");
+      Class path = Class.forName("java.nio.file.Path");
+      toPath = File.class.getMethod("toPath", new Class[0]);
+      createLink = files.getMethod("createLink", new Class[] {path, path});
+      getAttribute = files.getMethod("getAttribute", new Class[] {path, String.class,
+                                                                   Class.forName("[Ljava.nio.file.LinkOption;")});
+    } catch (Exception e) {
+      // java older then 1.7, blobs are copied
+      createLink = null;
+      toPath = null;
+      getAttribute = null;
+    }
+  }
+
+  /** Get the <code>Directory</code> value.
+   * @return a value
+   */
+  public final File getDirectory() {
+    return directory;
+  }
+
+  /** Methode which return true if store can create hard links
+   * @return true if links are supported
+   */
+  public final boolean isLinkSupported() {
+    return createLink != null;
+  }
+
+  /** Methode which return blob file for content with given CRC and size.
+   * The file doesn't need exist.
+   * @param crc CRC-32 of content
+   * @param size size of content
+   * @return blob file
+   */
+  public File blobFile(final long crc, final long size) {
+    String name = Long.toHexString(0x100000000L | crc).substring(1);
+    return new File(directory, name.substring(0, 2) + File.separator + name + "-" + size);
+  }
+
+  /** Methode which add extracted file to store as new blob.  Blob is added
+   * only if it can be hard linked, copy of every file would make cache
+   * bigger.
+   * @param file extracted file
+   * @param crc CRC-32 of file content
+   * @param size size of file
+   */
+  public void add(final File file, final long crc, final long size) {
+    if (!isLinkSupported()) {
+      return;
+    }
+    File blob = blobFile(crc, size);
+    if (blob.exists()) {
+      // another content with the same key, file stay private
+      return;
+    }
+    blob.getParentFile().mkdirs();
+    link(file, blob);
+  }
+
+  /** Methode which create file from blob, as hard link if it is possible or
+   * as copy.
+   * @param blob existing blob
+   * @param file created file
+   * @return true if file was created
+   * @throws IOException if copy fails
+   */
+  public boolean materialize(final File blob, final File file) throws IOException {
+    if (isLinkSupported() && link(blob, file)) {
+      return true;
+    }
+    copy(blob, file);
+    return true;
+  }
+
+  /** Methode which return count of hard links of file.  Blob with one link
+   * isn't used by any extracted file.
+   * @param file file in store or in cache
+   * @return count of links or -1 if it is unknown (file system isn't unix)
+   */
+  public int linkCount(final File file) {
+    if (getAttribute == null) {
+      return -1;
+    }
+    try {
+      Object array = Array.newInstance(Class.forName("java.nio.file.LinkOption"), 0);
+      Object count = getAttribute.invoke(null, new Object[] {toPath.invoke(file, new Object[0]),
+                                                             "unix:nlink", array});
+      return ((Number) count).intValue();
+    } catch (Exception e) {
+      return -1;
+    }
+  }
+
+  /** Methode which create hard link
+   * @param existing existing file
+   * @param link created link
+   * @return true if link was created
+   */
+  private boolean link(final File existing, final File link) {
+    try {
+      createLink.invoke(null, new Object[] {toPath.invoke(link, new Object[0]),
+                                            toPath.invoke(existing, new Object[0])});
+      return true;
+    } catch (InvocationTargetException e) {
+      if (e.getTargetException() instanceof UnsupportedOperationException) {
+        // file system without hard links
+        createLink = null;
+      }
+      return false;
+    } catch (IllegalAccessException e) {
+      createLink = null;
+      return false;
+    }
+  }
+
+  /** Methode which copy file by channel transfer
+   * @param source source file
+   * @param target target file
+   * @throws IOException if copy fails
+   */
+  private static void copy(final File source, final File target) throws IOException {
+    RandomAccessFile in = new RandomAccessFile(source, "r");
+    try {
+      RandomAccessFile out = new RandomAccessFile(target, "rw");
+      try {
+        FileChannel channel = in.getChannel();
+        long size = channel.size();
+        out.setLength(size);
+        long done = 0;
+        while (done < size) {
+          long n = channel.transferTo(done, size - done, out.getChannel());
+          if (n <= 0) {
+            throw new IOException("Cannot copy " + source);
+          }
+          done += n;
+        }
+      } finally {
+        out.close();
+      }
+    } finally {
+      in.close();
+    }
+  }
+}
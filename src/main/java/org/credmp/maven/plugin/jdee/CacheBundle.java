@@ -0,0 +1,264 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/** Portable bundle of cache entries.
+ * <p>Bundle is zip archive with files of entries
+ * (<code>group/artifact/version/...</code>, paths are relative to cache)
+ * and with manifest {@link #MANIFEST} as the last entry.  Every line of
+ * manifest is <code>CRC SIZE PATH</code> of one file (CRC-32 in hex), so
+ * extracted files can be checked without the archive.  Central directory of
+ * zip is the index, entries are extracted in parallel (see {@link
+ * CacheImportMojo}).</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class CacheBundle {
+
+  /** Name of manifest in bundle */
+  public static final String MANIFEST = ".mep-cache-manifest";
+
+  /** Size of copy buffer */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Creates an instance, only static methodes are used */
+  private CacheBundle() {
+    super();
+  }
+
+  /** Methode which write entries of cache to bundle.  Every entry is locked
+   * while it is read, missing entries are skipped.
+   * @param cache cache directory
+   * @param entries relative paths of entries
+   *        (<code>group/artifact/version</code>)
+   * @param bundle written bundle
+   * @return count of written files
+   * @throws IOException if entry cannot be read or bundle cannot be written
+   */
+  public static int write(final File cache, final Collection entries, final File bundle) throws IOException {
+    if (bundle.getParentFile() != null) {
+      bundle.getParentFile().mkdirs();
+    }
+    File tmp = new File(bundle.getPath() + ".tmp");
+    List manifest = new ArrayList();
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tmp));
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try {
+      for (Iterator iter = entries.iterator(); iter.hasNext();) {
+        String entry = (String) iter.next();
+        File dir = new File(cache, entry);
+        if (!dir.isDirectory()) {
+          continue;
+        }
+        CacheLock lock = CacheLock.lock(cache, dir);
+        try {
+          writeDirectory(dir, entry + "/", out, manifest, buffer);
+        } finally {
+          lock.release();
+        }
+      }
+      out.putNextEntry(new ZipEntry(MANIFEST));
+      PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
+      for (Iterator iter = manifest.iterator(); iter.hasNext();) {
+        writer.println(iter.next());
+      }
+      writer.flush();
+      out.closeEntry();
+    } finally {
+      out.close();
+    }
+    bundle.delete();
+    if (!tmp.renameTo(bundle)) {
+      throw new IOException("Cannot rename " + tmp + " to " + bundle);
+    }
+    return manifest.size();
+  }
+
+  /** Recursive write of directory content
+   * @param dir written directory
+   * @param prefix path of directory in bundle (ends with /)
+   * @param out stream of bundle
+   * @param manifest list to which are added lines of manifest
+   * @param buffer copy buffer
+   * @throws IOException if file cannot be read or written
+   */
+  private static void writeDirectory(final File dir, final String prefix, final ZipOutputStream out,
+                                     final List manifest, final byte[] buffer) throws IOException {
+    File[] files = dir.listFiles();
+    for (int i = 0; files != null && i < files.length; i++) {
+      String name = prefix + files[i].getName();
+      if (files[i].isDirectory()) {
+        writeDirectory(files[i], name + "/", out, manifest, buffer);
+        continue;
+      }
+      ZipEntry zipEntry = new ZipEntry(name);
+      zipEntry.setTime(files[i].lastModified());
+      out.putNextEntry(zipEntry);
+      copy(new FileInputStream(files[i]), out, buffer);
+      out.closeEntry();
+      // crc and size are set by closeEntry
+      manifest.add(Long.toHexString(zipEntry.getCrc()) + " " + zipEntry.getSize() + " " + name);
+    }
+  }
+
+  /** Methode which read manifest of bundle
+   * @param bundle read bundle
+   * @return map path of file -&gt; long[] {crc, size}, sorted by path
+   * @throws IOException if bundle has no manifest or it cannot be read
+   */
+  public static Map readManifest(final File bundle) throws IOException {
+    Map result = new TreeMap();
+    ZipFile zip = new ZipFile(bundle);
+    try {
+      ZipEntry entry = zip.getEntry(MANIFEST);
+      if (entry == null) {
+        throw new IOException("File " + bundle + " isn't bundle of cache, it has no " + MANIFEST);
+      }
+      BufferedReader in = new BufferedReader(new InputStreamReader(zip.getInputStream(entry), "UTF-8"));
+      String line;
+      while ((line = in.readLine()) != null) {
+        String[] parts = line.split(" ", 3);
+        if (parts.length != 3) {
+          throw new IOException("Wrong line of manifest: " + line);
+        }
+        try {
+          result.put(parts[2], new long[] {Long.parseLong(parts[0], 16), Long.parseLong(parts[1])});
+        } catch (NumberFormatException e) {
+          throw new IOException("Wrong line of manifest: " + line);
+        }
+      }
+    } finally {
+      zip.close();
+    }
+    return result;
+  }
+
+  /** Methode which return entry (<code>group/artifact/version</code>) of
+   * path.  Path from manifest isn't trusted: absolute path, empty,
+   * <code>.</code> or <code>..</code> segment, backslash, colon and
+   * directories of cache which start with dot are refused.
+   * @param path path of file in bundle
+   * @return entry or null if path isn't safe file in any entry
+   */
+  public static String entryOf(final String path) {
+    if (path.indexOf('\\') > -1 || path.indexOf(':') > -1 || path.startsWith(".")) {
+      return null;
+    }
+    String[] segments = path.split("/", -1);
+    if (segments.length < 4) {
+      return null;
+    }
+    for (int i = 0; i < segments.length; i++) {
+      if (segments[i].length() == 0 || ".".equals(segments[i]) || "..".equals(segments[i])) {
+        return null;
+      }
+    }
+    return segments[0] + "/" + segments[1] + "/" + segments[2];
+  }
+
+  /** Methode which return directory of entry in cache.  Directory is
+   * checked through canonical paths, so link in cache can't move it out of
+   * cache.
+   * @param cache cache directory
+   * @param entry entry (<code>group/artifact/version</code>)
+   * @return directory of entry
+   * @throws IOException if directory is out of cache
+   */
+  public static File entryDirectory(final File cache, final String entry) throws IOException {
+    File dir = new File(cache, entry);
+    String root = cache.getCanonicalPath() + File.separator;
+    if (!dir.getCanonicalPath().startsWith(root)) {
+      throw new IOException("Entry " + entry + " is out of cache " + cache);
+    }
+    return dir;
+  }
+
+  /** Methode which check extracted files against manifest
+   * @param cache cache directory
+   * @param paths paths of checked files
+   * @param manifest manifest of bundle
+   * @param buffer read buffer
+   * @return list of paths which are missing or differ
+   */
+  public static List verify(final File cache, final Collection paths, final Map manifest, final byte[] buffer) {
+    List result = new ArrayList();
+    CRC32 crc = new CRC32();
+    for (Iterator iter = paths.iterator(); iter.hasNext();) {
+      String path = (String) iter.next();
+      long[] expected = (long[]) manifest.get(path);
+      File file = new File(cache, path);
+      if (!file.isFile() || file.length() != expected[1]) {
+        result.add(path);
+        continue;
+      }
+      crc.reset();
+      try {
+        InputStream in = new FileInputStream(file);
+        try {
+          int n;
+          while ((n = in.read(buffer)) > 0) {
+            crc.update(buffer, 0, n);
+          }
+        } finally {
+          in.close();
+        }
+      } catch (IOException e) {
+        result.add(path);
+        continue;
+      }
+      if (crc.getValue() != expected[0]) {
+        result.add(path);
+      }
+    }
+    return result;
+  }
+
+  /** Methode which copy stream, input stream is closed
+   * @param in input stream
+   * @param out output stream
+   * @param buffer copy buffer
+   * @throws IOException if stream cannot be read or written
+   */
+  private static void copy(final InputStream in, final OutputStream out, final byte[] buffer) throws IOException {
+    try {
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        out.write(buffer, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.BenchmarkMetrics;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Goal which pack entries of global cache used by projects of reactor
+ * into one bundle (see {@link CacheBundle}).  Entries are taken from
+ * registry of cache, so goal jdee (or prefetch) must run before.  The
+ * bundle can be imported by goal cache-import on other machine.
+ *
+ * @goal cache-export
+ * @aggregator
+ * @requiresProject false
+ */
+public class CacheExportMojo extends AbstractMojo {
+
+  /**
+   * The Maven Project.
+   *
+   * @parameter expression="${project}"
+   * @required
+   * @readonly
+   */
+  protected MavenProject executedProject;
+
+  /**
+   * Projects of reactor.
+   *
+   * @parameter expression="${reactorProjects}"
+   * @readonly
+   */
+  private List reactorProjects;
+
+  /**
+   * Path to global cache.
+   *
+   * @parameter expression="${globalCachePath}"
+   * @required
+   */
+  private File globalCachePath;
+
+  /**
+   * Written bundle.
+   *
+   * @parameter expression="${cacheBundle}" default-value="${project.build.directory}/mep-cache-bundle.zip"
+   * @required
+   */
+  private File cacheBundle;
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if no entry is registered or bundle
+   *         cannot be written
+   */
+  public void execute() throws MojoExecutionException {
+    long start = System.currentTimeMillis();
+    List projects = reactorProjects != null ? reactorProjects : Collections.singletonList(executedProject);
+    Set entries = new TreeSet();
+    try {
+      for (Iterator iter = projects.iterator(); iter.hasNext();) {
+        MavenProject project = (MavenProject) iter.next();
+        Set projectEntries = CacheRegistry.entries(globalCachePath, project.getBasedir());
+        if (projectEntries.isEmpty()) {
+          getLog().warn("Project " + project.getId() + " isn't registered in cache, run goal jdee first");
+        }
+        entries.addAll(projectEntries);
+      }
+      if (entries.isEmpty()) {
+        throw new MojoExecutionException("No entry of cache " + globalCachePath + " is registered");
+      }
+      int count = CacheBundle.write(globalCachePath, entries, cacheBundle);
+      getLog().info("Exported " + entries.size() + " entries (" + count + " files) to " + cacheBundle);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Cannot write bundle " + cacheBundle, e);
+    }
+    BenchmarkMetrics.record("cache-export", start);
+  }
+}
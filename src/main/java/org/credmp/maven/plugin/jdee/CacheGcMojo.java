@@ -0,0 +1,253 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Goal which delete entries of global cache which no project use.
+ * <p>Every run of goal jdee register entries of cache used by its project
+ * (see {@link CacheRegistry}).  This goal mark entries reachable from
+ * registered projects which still exist and delete all other entries
+ * (directories <code>group/artifact/version</code>) in parallel.  Then are
+ * deleted shared files of {@link BlobStore} which are not linked from any
+ * entry.  Entries changed in last <code>keepRecent</code> minutes are kept,
+ * because they can be used by running jdee goal which is not registered
+ * yet.</p>
+ *
+ * @goal cache-gc
+ * @requiresProject false
+ */
+public class CacheGcMojo extends AbstractMojo {
+
+  /**
+   * Path to global cache.
+   *
+   * @parameter expression="${globalCachePath}"
+   * @required
+   */
+  private File globalCachePath;
+
+  /**
+   * Only report entries which would be deleted.
+   *
+   * @parameter expression="${dryRun}"
+   */
+  private boolean dryRun;
+
+  /**
+   * Entries changed in last minutes are not deleted.
+   *
+   * @parameter expression="${keepRecent}" default-value="60"
+   */
+  private int keepRecent;
+
+  /**
+   * Maximal count of parallel deletions (see goal jdee).
+   *
+   * @parameter expression="${ioThreads}" default-value="0"
+   */
+  private int ioThreads;
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if registry cannot be read
+   */
+  public void execute() throws MojoExecutionException {
+    if (!globalCachePath.isDirectory()) {
+      getLog().info("Cache doesn't exist: " + globalCachePath);
+      return;
+    }
+    File[] registered = new File(globalCachePath, CacheRegistry.DIRECTORY).listFiles();
+    if (registered == null || registered.length == 0) {
+      getLog().warn("No project is registered in cache " + globalCachePath
+                    + ", run goal jdee in used projects first");
+      return;
+    }
+
+    List dead = new ArrayList();
+    Set live;
+    try {
+      live = CacheRegistry.reachable(globalCachePath, dead);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Cannot read registry of cache", e);
+    }
+    List garbage = findGarbage(live);
+    getLog().info("Live entries: " + live.size() + ", garbage entries: " + garbage.size()
+                  + ", removed projects: " + dead.size());
+    if (dryRun) {
+      for (Iterator iter = garbage.iterator(); iter.hasNext();) {
+        getLog().info("Garbage: " + iter.next());
+      }
+      return;
+    }
+
+    IoExecutor executor = new IoExecutor(ioThreads > 0 ? ioThreads
+                                         : 4 * Runtime.getRuntime().availableProcessors());
+    BlobStore blobStore = new BlobStore(new File(globalCachePath, BlobStore.DIRECTORY));
+    try {
+      long bytes = sum(executor.invokeAll(deleteTasks(garbage, blobStore, false)));
+      File[] blobDirs = blobStore.getDirectory().listFiles();
+      List blobs = new ArrayList();
+      for (int i = 0; blobDirs != null && i < blobDirs.length; i++) {
+        blobs.add(blobDirs[i]);
+      }
+      long blobBytes = sum(executor.invokeAll(deleteTasks(blobs, blobStore, true)));
+      for (Iterator iter = garbage.iterator(); iter.hasNext();) {
+        File artifactDir = ((File) iter.next()).getParentFile();
+        // empty directories of artifact and group
+        if (artifactDir.delete()) {
+          artifactDir.getParentFile().delete();
+        }
+      }
+      for (Iterator iter = dead.iterator(); iter.hasNext();) {
+        ((File) iter.next()).delete();
+      }
+      getLog().info("Deleted " + garbage.size() + " entries, reclaimed " + (bytes + blobBytes)
+                    + " bytes (" + blobBytes + " bytes of shared files)");
+    } catch (ExecutionException e) {
+      throw new MojoExecutionException("Cannot delete garbage", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Garbage collection was interrupted", e);
+    } finally {
+      executor.close();
+    }
+  }
+
+  /** Methode which return entries which are not reachable
+   * @param live relative paths of live entries
+   * @return list of entry directories
+   */
+  private List findGarbage(final Set live) {
+    long recent = System.currentTimeMillis() - keepRecent * 60000L;
+    List result = new ArrayList();
+    File[] groups = globalCachePath.listFiles();
+    for (int i = 0; groups != null && i < groups.length; i++) {
+      if (!groups[i].isDirectory() || groups[i].getName().startsWith(".")) {
+        // registry, blobs, queue of javadoc worker
+        continue;
+      }
+      File[] artifacts = groups[i].listFiles();
+      for (int j = 0; artifacts != null && j < artifacts.length; j++) {
+        File[] versions = artifacts[j].listFiles();
+        for (int k = 0; versions != null && k < versions.length; k++) {
+          String entry = groups[i].getName() + "/" + artifacts[j].getName() + "/" + versions[k].getName();
+          if (versions[k].isDirectory() && !live.contains(entry)
+              && versions[k].lastModified() < recent) {
+            result.add(versions[k]);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Methode which create deleting tasks
+   * @param dirs deleted directories (or directories of blobs)
+   * @param blobStore store of shared files
+   * @param blobs true if only unlinked blobs are deleted
+   * @return list of tasks which return count of reclaimed bytes
+   */
+  private List deleteTasks(final List dirs, final BlobStore blobStore, final boolean blobs) {
+    List result = new ArrayList(dirs.size());
+    for (Iterator iter = dirs.iterator(); iter.hasNext();) {
+      final File dir = (File) iter.next();
+      result.add(new Callable() {
+          public Object call() throws IOException {
+            if (blobs) {
+              return new Long(deleteBlobs(dir, blobStore));
+            }
+            CacheLock lock = CacheLock.tryLock(globalCachePath, dir);
+            if (lock == null) {
+              getLog().info("Entry is used now, it is kept: " + dir);
+              return new Long(0);
+            }
+            try {
+              long bytes = delete(dir, blobStore);
+              dir.delete();
+              return new Long(bytes);
+            } finally {
+              lock.release();
+            }
+          }
+        });
+    }
+    return result;
+  }
+
+  /** Recursive delete of directory content
+   * @param dir deleted directory
+   * @param blobStore store of shared files
+   * @return count of reclaimed bytes (files linked from blob store are not
+   *         counted, they are reclaimed with blob)
+   */
+  private static long delete(final File dir, final BlobStore blobStore) {
+    long result = 0;
+    File[] files = dir.listFiles();
+    for (int i = 0; files != null && i < files.length; i++) {
+      if (files[i].isDirectory()) {
+        result += delete(files[i], blobStore);
+        files[i].delete();
+      } else {
+        long size = files[i].length();
+        int links = blobStore.linkCount(files[i]);
+        if (files[i].delete() && links <= 1) {
+          result += size;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Methode which delete blobs which are not linked from any entry
+   * @param dir directory of blobs
+   * @param blobStore store of shared files
+   * @return count of reclaimed bytes
+   */
+  private static long deleteBlobs(final File dir, final BlobStore blobStore) {
+    long result = 0;
+    File[] files = dir.listFiles();
+    for (int i = 0; files != null && i < files.length; i++) {
+      if (blobStore.linkCount(files[i]) == 1) {
+        long size = files[i].length();
+        if (files[i].delete()) {
+          result += size;
+        }
+      }
+    }
+    dir.delete();
+    return result;
+  }
+
+  /** Methode which sum results of tasks
+   * @param results list of Long
+   * @return sum
+   */
+  private static long sum(final List results) {
+    long result = 0;
+    for (Iterator iter = results.iterator(); iter.hasNext();) {
+      result += ((Long) iter.next()).longValue();
+    }
+    return result;
+  }
+}
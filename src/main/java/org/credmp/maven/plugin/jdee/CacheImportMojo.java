@@ -0,0 +1,222 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.BenchmarkMetrics;
+
+/**
+ * Goal which unpack bundle written by goal cache-export to global cache.
+ * <p>Entries of bundle (<code>group/artifact/version</code>) are extracted
+ * in parallel, every entry under its {@link CacheLock}.  Extracted files
+ * are checked against manifest of bundle (size and CRC-32), entry with
+ * wrong file is deleted.  Entry which is already in cache and match the
+ * manifest is not extracted again.  Directories of extracted entries get
+ * time of import, so goal jdee takes them as up to date.  Imported entries
+ * are registered in cache for the bundle (see {@link CacheRegistry}).
+ * Bundle with path which leads out of its entry (e.g. <code>..</code>) is
+ * refused before anything is deleted.</p>
+ *
+ * @goal cache-import
+ * @requiresProject false
+ */
+public class CacheImportMojo extends AbstractMojo {
+
+  /**
+   * Path to global cache.
+   *
+   * @parameter expression="${globalCachePath}"
+   * @required
+   */
+  private File globalCachePath;
+
+  /**
+   * Imported bundle.
+   *
+   * @parameter expression="${cacheBundle}"
+   * @required
+   */
+  private File cacheBundle;
+
+  /**
+   * Share files with the same content between entries (see goal jdee).
+   *
+   * @parameter expression="${deduplicateCache}"
+   */
+  private boolean deduplicateCache;
+
+  /**
+   * Maximal count of parallel extractions (see goal jdee).
+   *
+   * @parameter expression="${ioThreads}" default-value="0"
+   */
+  private int ioThreads;
+
+  /** Entries which doesn't match manifest */
+  private final List corrupted = Collections.synchronizedList(new ArrayList());
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if bundle cannot be read or some entry
+   *         doesn't match manifest
+   */
+  public void execute() throws MojoExecutionException {
+    long start = System.currentTimeMillis();
+    if (!cacheBundle.isFile()) {
+      throw new MojoExecutionException("Bundle doesn't exist: " + cacheBundle);
+    }
+    IoExecutor executor = new IoExecutor(ioThreads > 0 ? ioThreads
+                                         : 4 * Runtime.getRuntime().availableProcessors());
+    try {
+      Map manifest = CacheBundle.readManifest(cacheBundle);
+      // entry -> list of paths of its files
+      Map entries = new TreeMap();
+      for (Iterator iter = manifest.keySet().iterator(); iter.hasNext();) {
+        String path = (String) iter.next();
+        String entry = CacheBundle.entryOf(path);
+        if (entry == null) {
+          throw new MojoExecutionException("Wrong path in manifest of bundle: " + path);
+        }
+        List paths = (List) entries.get(entry);
+        if (paths == null) {
+          paths = new ArrayList();
+          entries.put(entry, paths);
+        }
+        paths.add(path);
+      }
+
+      RandomAccessFile raf = new RandomAccessFile(cacheBundle, "r");
+      try {
+        FileChannel channel = raf.getChannel();
+        Map zipEntries = new HashMap();
+        for (Iterator iter = ZipExtractor.readEntries(channel).iterator(); iter.hasNext();) {
+          ZipExtractor.Entry zipEntry = (ZipExtractor.Entry) iter.next();
+          zipEntries.put(zipEntry.getName(), zipEntry);
+        }
+        BlobStore blobStore = deduplicateCache
+          ? new BlobStore(new File(globalCachePath, BlobStore.DIRECTORY)) : null;
+        List tasks = new ArrayList(entries.size());
+        for (Iterator iter = entries.entrySet().iterator(); iter.hasNext();) {
+          Map.Entry entry = (Map.Entry) iter.next();
+          tasks.add(importTask((String) entry.getKey(), (List) entry.getValue(), manifest,
+                               channel, zipEntries, blobStore));
+        }
+        int extracted = 0;
+        for (Iterator iter = executor.invokeAll(tasks).iterator(); iter.hasNext();) {
+          extracted += ((Integer) iter.next()).intValue();
+        }
+        getLog().info("Imported " + entries.size() + " entries (" + extracted + " files extracted, "
+                      + corrupted.size() + " entries corrupted) from " + cacheBundle);
+      } finally {
+        raf.close();
+      }
+
+      List imported = new ArrayList(entries.keySet());
+      imported.removeAll(corrupted);
+      CacheRegistry.register(globalCachePath, cacheBundle, imported);
+    } catch (IOException e) {
+      throw new MojoExecutionException("Cannot import bundle " + cacheBundle, e);
+    } catch (ExecutionException e) {
+      throw new MojoExecutionException("Cannot import bundle " + cacheBundle, e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MojoExecutionException("Import was interrupted", e);
+    } finally {
+      executor.close();
+    }
+    if (!corrupted.isEmpty()) {
+      throw new MojoExecutionException("Entries don't match manifest of bundle: " + corrupted);
+    }
+    BenchmarkMetrics.record("cache-import", start);
+  }
+
+  /** Methode which create task which import one entry
+   * @param entry imported entry (<code>group/artifact/version</code>)
+   * @param paths paths of files of entry
+   * @param manifest manifest of bundle
+   * @param channel channel of bundle (shared, only positional reads are
+   *        used)
+   * @param zipEntries map name -&gt; {@link ZipExtractor.Entry} of bundle
+   * @param blobStore store of shared files or null
+   * @return task which return count of extracted files
+   */
+  private Callable importTask(final String entry, final List paths, final Map manifest,
+                              final FileChannel channel, final Map zipEntries, final BlobStore blobStore) {
+    return new Callable() {
+        public Object call() throws IOException {
+          File dir = CacheBundle.entryDirectory(globalCachePath, entry);
+          byte[] buffer = new byte[64 * 1024];
+          CacheLock lock = CacheLock.lock(globalCachePath, dir);
+          try {
+            if (dir.isDirectory() && CacheBundle.verify(globalCachePath, paths, manifest, buffer).isEmpty()) {
+              return new Integer(0);
+            }
+            FileUtil.deleteDirectory(dir);
+            ZipExtractor extractor = new ZipExtractor(getLog());
+            extractor.setBlobStore(blobStore);
+            int count = 0;
+            try {
+              for (Iterator iter = paths.iterator(); iter.hasNext();) {
+                ZipExtractor.Entry zipEntry = (ZipExtractor.Entry) zipEntries.get(iter.next());
+                if (zipEntry != null && extractor.extractEntry(channel, zipEntry, globalCachePath)) {
+                  count++;
+                }
+              }
+            } finally {
+              extractor.close();
+            }
+            List wrong = CacheBundle.verify(globalCachePath, paths, manifest, buffer);
+            if (!wrong.isEmpty()) {
+              getLog().error("Entry " + entry + " doesn't match manifest: " + wrong);
+              FileUtil.deleteDirectory(dir);
+              corrupted.add(entry);
+              return new Integer(0);
+            }
+            touch(dir, System.currentTimeMillis());
+            return new Integer(count);
+          } finally {
+            lock.release();
+          }
+        }
+      };
+  }
+
+  /** Methode which set the same modification time to directory and all its
+   * subdirectories, so javadoc directory is not older then sources
+   * @param dir directory
+   * @param time modification time
+   */
+  private static void touch(final File dir, final long time) {
+    File[] files = dir.listFiles();
+    for (int i = 0; files != null && i < files.length; i++) {
+      if (files[i].isDirectory()) {
+        touch(files[i], time);
+      }
+    }
+    dir.setLastModified(time);
+  }
+}
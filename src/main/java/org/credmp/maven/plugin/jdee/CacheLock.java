@@ -0,0 +1,173 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.HashSet;
+import java.util.Set;
+
+/** Exclusive lock of file or directory in cache.
+ * <p>Lock is held by one thread of all maven processes which share the
+ * cache: threads of one process (modules of parallel build) wait for each
+ * other on monitor, processes on <code>FileLock</code>.  Lock files are in
+ * directory <code>.locks</code> of cache (with the same relative path as
+ * locked file and suffix <code>.lock</code>), not next to the locked
+ * directory, because any new file change the modification time of
+ * directory which is used for checks of extracted sources.  Lock file of
+ * path outside of the cache is in <code>.locks/.absolute</code>.  Threads
+ * wait on monitor for lock file, so one process never lock the same file
+ * twice.  Lock files are never deleted.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public final class CacheLock {
+
+  /** Name of directory with lock files in cache */
+  public static final String DIRECTORY = ".locks";
+
+  /** Name of directory in {@link #DIRECTORY} for paths outside of cache */
+  private static final String ABSOLUTE = ".absolute";
+
+  /** Lock files locked by threads of this process */
+  private static final Set LOCKED = new HashSet();
+
+  /** Path of lock file */
+  private final String path;
+  /** Opened lock file, its closing release the lock */
+  private final RandomAccessFile file;
+
+  /** Creates a new <code>CacheLock</code> instance.
+   * @param path path of lock file
+   * @param file opened and locked file
+   */
+  private CacheLock(final String path, final RandomAccessFile file) {
+    this.path = path;
+    this.file = file;
+  }
+
+  /** Methode which lock file or directory, it waits until the lock is
+   * released by other thread or process.
+   * @param cache cache directory
+   * @param locked locked file or directory
+   * @return lock which must be released
+   * @throws IOException if lock file cannot be created
+   */
+  public static CacheLock lock(final File cache, final File locked) throws IOException {
+    return acquire(cache, locked, true);
+  }
+
+  /** Methode which lock file or directory if it isn't locked.
+   * @param cache cache directory
+   * @param locked locked file or directory
+   * @return lock which must be released or null if it is locked
+   * @throws IOException if lock file cannot be created
+   */
+  public static CacheLock tryLock(final File cache, final File locked) throws IOException {
+    return acquire(cache, locked, false);
+  }
+
+  /** Methode which acquire lock
+   * @param cache cache directory
+   * @param locked locked file or directory
+   * @param wait true if methode waits for lock
+   * @return lock or null if it is locked and wait is false
+   * @throws IOException if lock file cannot be created
+   */
+  private static CacheLock acquire(final File cache, final File locked, final boolean wait) throws IOException {
+    File lockFile = lockFile(cache, locked);
+    String path = lockFile.getPath();
+    synchronized (LOCKED) {
+      while (LOCKED.contains(path)) {
+        if (!wait) {
+          return null;
+        }
+        try {
+          LOCKED.wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for lock of " + path);
+        }
+      }
+      LOCKED.add(path);
+    }
+
+    RandomAccessFile file = null;
+    try {
+      lockFile.getParentFile().mkdirs();
+      file = new RandomAccessFile(lockFile, "rw");
+      FileLock lock = wait ? file.getChannel().lock() : file.getChannel().tryLock();
+      if (lock == null) {
+        file.close();
+        unlock(path);
+        return null;
+      }
+      return new CacheLock(path, file);
+    } catch (IOException e) {
+      if (file != null) {
+        file.close();
+      }
+      unlock(path);
+      throw e;
+    } catch (RuntimeException e) {
+      if (file != null) {
+        file.close();
+      }
+      unlock(path);
+      throw e;
+    }
+  }
+
+  /** Methode which return lock file of locked file
+   * @param cache cache directory
+   * @param locked locked file or directory
+   * @return absolute lock file
+   */
+  static File lockFile(final File cache, final File locked) {
+    String root = cache.getAbsolutePath();
+    String path = locked.getAbsolutePath();
+    File dir = new File(root, DIRECTORY);
+    if (path.startsWith(root) && path.length() > root.length() + 1
+        && path.charAt(root.length()) == File.separatorChar) {
+      path = path.substring(root.length() + 1);
+    } else {
+      dir = new File(dir, ABSOLUTE);
+      path = path.replace(':', '_');
+    }
+    return new File(dir, path + ".lock");
+  }
+
+  /** Methode which release path for threads of this process
+   * @param path path of lock file
+   */
+  private static void unlock(final String path) {
+    synchronized (LOCKED) {
+      LOCKED.remove(path);
+      LOCKED.notifyAll();
+    }
+  }
+
+  /** Methode which release lock */
+  public void release() {
+    try {
+      file.close();
+    } catch (IOException e) {
+      // channel is closed anyway
+    } finally {
+      unlock(path);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+/** Registry of projects which use the cache.
+ * <p>Every run of goal jdee write to directory <code>.projects</code> of
+ * cache one file for its project (goal prefetch for its reactor or list of
+ * dependencies).  First line of file is the base directory of project (or
+ * the list file), other lines are entries of cache
+ * (<code>group/artifact/version</code>) which the project use.  Entries
+ * reachable from registered projects which still exist are live, other
+ * entries can be deleted (see {@link CacheGcMojo}).</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class CacheRegistry {
+
+  /** Name of registry directory in cache */
+  public static final String DIRECTORY = ".projects";
+
+  /** Creates an instance, only static methodes are used */
+  private CacheRegistry() {
+    super();
+  }
+
+  /** Methode which return registry file of project
+   * @param cache cache directory
+   * @param basedir base directory of project
+   * @return registry file (named by CRC-32 of base directory path)
+   */
+  public static File registryFile(final File cache, final File basedir) {
+    CRC32 crc = new CRC32();
+    crc.update(basedir.getAbsolutePath().getBytes());
+    String name = Long.toHexString(0x100000000L | crc.getValue()).substring(1);
+    return new File(new File(cache, DIRECTORY), name + ".txt");
+  }
+
+  /** Methode which register entries used by project.  Previous entries of
+   * project are replaced.
+   * @param cache cache directory
+   * @param basedir base directory of project
+   * @param entries relative paths of used entries
+   * @throws IOException if registry cannot be written
+   */
+  public static void register(final File cache, final File basedir, final Collection entries) throws IOException {
+    File file = registryFile(cache, basedir);
+    file.getParentFile().mkdirs();
+    File tmp = new File(file.getPath() + ".tmp");
+    PrintWriter out = new PrintWriter(new FileWriter(tmp));
+    try {
+      out.println(basedir.getAbsolutePath());
+      for (Iterator iter = new TreeSet(entries).iterator(); iter.hasNext();) {
+        out.println(iter.next());
+      }
+    } finally {
+      out.close();
+    }
+    file.delete();
+    if (!tmp.renameTo(file)) {
+      throw new IOException("Cannot rename " + tmp + " to " + file);
+    }
+  }
+
+  /** Methode which return entries registered by project
+   * @param cache cache directory
+   * @param basedir base directory of project
+   * @return set of relative paths of entries, empty if project isn't
+   *         registered
+   * @throws IOException if registry cannot be read
+   */
+  public static Set entries(final File cache, final File basedir) throws IOException {
+    Set result = new TreeSet();
+    File file = registryFile(cache, basedir);
+    if (!file.isFile()) {
+      return result;
+    }
+    BufferedReader in = new BufferedReader(new FileReader(file));
+    try {
+      // first line is base directory
+      String line = in.readLine();
+      while ((line = in.readLine()) != null) {
+        if (line.length() > 0) {
+          result.add(line);
+        }
+      }
+    } finally {
+      in.close();
+    }
+    return result;
+  }
+
+  /** Methode which mark entries reachable from registered projects.  Project
+   * is alive while its directory contains <code>pom.xml</code> (list of
+   * prefetched dependencies while it exists).
+   * @param cache cache directory
+   * @param dead list to which are added registry files of projects which
+   *        doesn't exist any more
+   * @return set of relative paths of live entries
+   * @throws IOException if registry cannot be read
+   */
+  public static Set reachable(final File cache, final List dead) throws IOException {
+    Set result = new TreeSet();
+    File[] files = new File(cache, DIRECTORY).listFiles();
+    for (int i = 0; files != null && i < files.length; i++) {
+      if (!files[i].getName().endsWith(".txt")) {
+        continue;
+      }
+      BufferedReader in = new BufferedReader(new FileReader(files[i]));
+      try {
+        String basedir = in.readLine();
+        if (basedir == null
+            || !(new File(basedir).isFile() || new File(basedir, "pom.xml").isFile())) {
+          dead.add(files[i]);
+          continue;
+        }
+        String line;
+        while ((line = in.readLine()) != null) {
+          if (line.length() > 0) {
+            result.add(line);
+          }
+        }
+      } finally {
+        in.close();
+      }
+    }
+    return result;
+  }
+}
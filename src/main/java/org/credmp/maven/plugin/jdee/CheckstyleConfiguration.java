@@ -0,0 +1,223 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.Properties;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.ReportPlugin;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/** Configuration of maven-checkstyle-plugin read from project.
+ * <p>Configuration is read from build plugin and then from report plugin
+ * (report plugin has higher priority).  Locations which are written relative
+ * to this project or to some parent are transformed to absolute paths.
+ * Predefined configurations (e.g. <code>config/sun_checks.xml</code>) are
+ * searched on classpath.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class CheckstyleConfiguration {
+
+  /** Group id of checkstyle plugin */
+  private static final String GROUP_ID = "org.apache.maven.plugins";
+  /** Artifact id of checkstyle plugin */
+  private static final String ARTIFACT_ID = "maven-checkstyle-plugin";
+  /** Default name of property with suppressions file */
+  private static final String SUPPRESSIONS_EXPRESSION = "checkstyle.suppressions.file";
+  /** Name of property with header file */
+  private static final String HEADER_EXPRESSION = "checkstyle.header.file";
+
+  /** Project which configuration is read */
+  private final MavenProject project;
+  /** Value of configLocation */
+  private String configLocation;
+  /** Value of propertiesLocation */
+  private String propertiesLocation;
+  /** Value of propertyExpansion */
+  private String propertyExpansion;
+  /** Value of headerLocation */
+  private String headerLocation;
+  /** Value of suppressionsLocation */
+  private String suppressionsLocation;
+  /** Value of suppressionsFileExpression */
+  private String suppressionsFileExpression = SUPPRESSIONS_EXPRESSION;
+
+  /** Creates a new <code>CheckstyleConfiguration</code> instance and read
+   * configuration of checkstyle plugin from project.
+   * @param project maven project
+   */
+  public CheckstyleConfiguration(final MavenProject project) {
+    super();
+    this.project = project;
+    for (Iterator iter = project.getBuildPlugins().iterator(); iter.hasNext();) {
+      Object o = iter.next();
+      if (o instanceof Plugin) {
+        Plugin plugin = (Plugin) o;
+        if (GROUP_ID.equals(plugin.getGroupId()) && ARTIFACT_ID.equals(plugin.getArtifactId())
+            && plugin.getConfiguration() instanceof Xpp3Dom) {
+          read((Xpp3Dom) plugin.getConfiguration());
+        }
+      }
+    }
+    for (Iterator iter = project.getReportPlugins().iterator(); iter.hasNext();) {
+      Object o = iter.next();
+      if (o instanceof ReportPlugin) {
+        ReportPlugin plugin = (ReportPlugin) o;
+        if (GROUP_ID.equals(plugin.getGroupId()) && ARTIFACT_ID.equals(plugin.getArtifactId())
+            && plugin.getConfiguration() instanceof Xpp3Dom) {
+          read((Xpp3Dom) plugin.getConfiguration());
+        }
+      }
+    }
+  }
+
+  /** Methode which read values from plugin configuration
+   * @param config plugin configuration
+   */
+  private void read(final Xpp3Dom config) {
+    configLocation = value(config, "configLocation", configLocation);
+    propertiesLocation = value(config, "propertiesLocation", propertiesLocation);
+    propertyExpansion = value(config, "propertyExpansion", propertyExpansion);
+    headerLocation = value(config, "headerLocation", headerLocation);
+    suppressionsLocation = value(config, "suppressionsLocation", suppressionsLocation);
+    suppressionsFileExpression = value(config, "suppressionsFileExpression",
+                                       suppressionsFileExpression);
+  }
+
+  /** Methode which return value of configuration child or default value
+   * @param config configuration
+   * @param name name of child
+   * @param defaultValue value if child is not set
+   * @return value
+   */
+  private static String value(final Xpp3Dom config, final String name,
+                              final String defaultValue) {
+    Xpp3Dom child = config.getChild(name);
+    if (child == null || child.getValue() == null || "".equals(child.getValue().trim())) {
+      return defaultValue;
+    }
+    return child.getValue().trim();
+  }
+
+  /** Methode which return true if project configure checkstyle
+   * @return true if configLocation is set
+   */
+  public boolean isConfigured() {
+    return configLocation != null;
+  }
+
+  /** Methode which return configuration location as absolute path (or URL
+   * for configuration from classpath)
+   * @return configuration location or null
+   */
+  public String getConfigLocation() {
+    return resolve(configLocation);
+  }
+
+  /** Methode which return suppressions location as absolute path (or URL for
+   * suppressions from classpath)
+   * @return suppressions location or null
+   */
+  public String getSuppressionsLocation() {
+    return resolve(suppressionsLocation);
+  }
+
+  /** Methode which return properties used for expansion in checkstyle
+   * configuration.  Properties are read from project, from
+   * propertiesLocation and from propertyExpansion (in this priority).
+   * @return properties for expansion
+   * @throws IOException if properties cannot be read
+   */
+  public Properties getProperties() throws IOException {
+    Properties result = new Properties();
+    if (project.getProperties() != null) {
+      result.putAll(project.getProperties());
+    }
+    String location = resolve(propertiesLocation);
+    if (location != null) {
+      InputStream in = open(location);
+      try {
+        result.load(in);
+      } finally {
+        in.close();
+      }
+    }
+    if (propertyExpansion != null) {
+      // properties file format, backslashes of windows paths are kept
+      String expansion = propertyExpansion.replaceAll("\\\\", "\\\\\\\\");
+      result.load(new ByteArrayInputStream(expansion.getBytes("ISO-8859-1")));
+    }
+    String header = resolve(headerLocation);
+    if (header != null) {
+      result.setProperty(HEADER_EXPRESSION, header);
+    }
+    String suppressions = getSuppressionsLocation();
+    if (suppressions != null && suppressionsFileExpression != null) {
+      result.setProperty(suppressionsFileExpression, suppressions);
+    }
+    return result;
+  }
+
+  /** Methode which make absolute path from location.  This methode can find
+   * if location is write relative from this project or from some parent, or
+   * if it is resource on classpath.
+   * @param location location from configuration
+   * @return absolute path, URL or null
+   */
+  private String resolve(final String location) {
+    if (location == null) {
+      return null;
+    }
+    File file = new File(location);
+    if (!file.isAbsolute()) {
+      MavenProject parent = project;
+      while (parent != null && !file.exists()) {
+        file = new File(parent.getBasedir(), location);
+        parent = parent.getParent();
+      }
+    }
+    if (file.exists()) {
+      return file.getAbsolutePath();
+    }
+    URL resource = getClass().getClassLoader().getResource(location);
+    if (resource == null && location.startsWith("config/")) {
+      resource = getClass().getClassLoader().getResource(location.substring(7));
+    }
+    if (resource != null) {
+      return resource.toExternalForm();
+    }
+    return location;
+  }
+
+  /** Methode which open file or URL
+   * @param location file path or URL
+   * @return opened stream
+   * @throws IOException if location cannot be opened
+   */
+  private static InputStream open(final String location) throws IOException {
+    File file = new File(location);
+    if (file.exists()) {
+      return new FileInputStream(file);
+    }
+    return new URL(location).openStream();
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import com.puppycrawl.tools.checkstyle.Checker;
+import com.puppycrawl.tools.checkstyle.ConfigurationLoader;
+import com.puppycrawl.tools.checkstyle.PropertiesExpander;
+import com.puppycrawl.tools.checkstyle.api.AuditEvent;
+import com.puppycrawl.tools.checkstyle.api.AuditListener;
+import com.puppycrawl.tools.checkstyle.api.CheckstyleException;
+import com.puppycrawl.tools.checkstyle.api.Configuration;
+import com.puppycrawl.tools.checkstyle.filters.SuppressionsLoader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.ChangedFiles;
+import org.apache.maven.plugin.jdee.support.LineServer;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Goal which run checkstyle server for Emacs.
+ * <p>Checkstyle configuration of project (with property expansion,
+ * properties location, header and suppressions) is loaded once to checker
+ * which stay in memory.  Commands are read from standard input (see {@link
+ * LineServer}):</p>
+ * <ul>
+ *   <li><code>check</code> - check files changed since last check</li>
+ *   <li><code>check FILE ...</code> - check given files</li>
+ *   <li><code>reload</code> - load checkstyle configuration again</li>
+ *   <li><code>quit</code> - stop the server</li>
+ * </ul>
+ * <p>Each problem is written as line <code>FILE:LINE:COLUMN: SEVERITY:
+ * MESSAGE</code> which can be parsed by Emacs compilation mode.</p>
+ *
+ * @goal checkstyle-server
+ * @requiresProject true
+ */
+public class CheckstyleServerMojo extends AbstractMojo {
+
+  /**
+   * The Maven Project.
+   *
+   * @parameter expression="${project}"
+   * @required
+   * @readonly
+   */
+  protected MavenProject executedProject;
+
+  /**
+   * Location of the source directory.
+   *
+   * @parameter expression="${project.build.sourceDirectory}"
+   * @required
+   */
+  private File sourceDirectory;
+
+  /**
+   * Test source directory
+   *
+   * @parameter expression="${project.build.testSourceDirectory}"
+   * @required
+   */
+  private File testSourceDirectory;
+
+  /**
+   * Check test sources too. Default false
+   *
+   * @parameter expression="${includeTestSources}"
+   */
+  private boolean includeTestSources;
+
+  /** Warm checker */
+  private Checker checker;
+  /** Listener of checker which write problems */
+  private Listener listener = new Listener();
+  /** Watched source files */
+  private ChangedFiles sources;
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if checkstyle isn't configured or server
+   *         fails
+   */
+  public void execute() throws MojoExecutionException {
+    File[] roots = includeTestSources
+      ? new File[] {sourceDirectory, testSourceDirectory}
+      : new File[] {sourceDirectory};
+    sources = new ChangedFiles(roots, ".java");
+    try {
+      loadChecker();
+      new LineServer(System.in, System.out, new LineServer.Handler() {
+          public void handle(final String command, final String[] arguments,
+                             final PrintStream out) throws Exception {
+            if ("check".equals(command)) {
+              check(arguments, out);
+            } else if ("reload".equals(command)) {
+              loadChecker();
+            } else {
+              throw new IllegalArgumentException("Unknown command: " + command);
+            }
+          }
+        }).run();
+    } catch (IOException e) {
+      throw new MojoExecutionException("Checkstyle server failed", e);
+    } catch (CheckstyleException e) {
+      throw new MojoExecutionException("Cannot load checkstyle configuration", e);
+    } finally {
+      if (checker != null) {
+        checker.destroy();
+      }
+    }
+  }
+
+  /** Methode which load checkstyle configuration to new checker
+   * @throws IOException if properties cannot be read
+   * @throws CheckstyleException if configuration cannot be loaded
+   * @throws MojoExecutionException if checkstyle isn't configured in project
+   */
+  private void loadChecker() throws IOException, CheckstyleException, MojoExecutionException {
+    CheckstyleConfiguration config = new CheckstyleConfiguration(executedProject);
+    if (!config.isConfigured()) {
+      throw new MojoExecutionException("maven-checkstyle-plugin with configLocation"
+                                       + " isn't configured in project");
+    }
+    Configuration configuration =
+      ConfigurationLoader.loadConfiguration(config.getConfigLocation(),
+                                            new PropertiesExpander(config.getProperties()));
+    Checker newChecker = new Checker();
+    newChecker.setModuleClassLoader(Thread.currentThread().getContextClassLoader());
+    newChecker.configure(configuration);
+    if (config.getSuppressionsLocation() != null) {
+      newChecker.addFilter(SuppressionsLoader.loadSuppressions(config.getSuppressionsLocation()));
+    }
+    newChecker.addListener(listener);
+    if (checker != null) {
+      checker.destroy();
+    }
+    checker = newChecker;
+    getLog().info("Checkstyle configuration loaded: " + config.getConfigLocation());
+  }
+
+  /** Methode which check files
+   * @param arguments files to check, if empty then changed files are checked
+   * @param out output for problems
+   */
+  private void check(final String[] arguments, final PrintStream out) {
+    List files;
+    if (arguments.length == 0) {
+      files = sources.scan();
+    } else {
+      files = new ArrayList();
+      for (int i = 0; i < arguments.length; i++) {
+        files.add(new File(arguments[i]).getAbsoluteFile());
+      }
+    }
+    if (files.isEmpty()) {
+      return;
+    }
+    listener.setOutput(out);
+    int errors = checker.process((File[]) files.toArray(new File[files.size()]));
+    out.println(";; checked " + files.size() + " files, " + errors + " errors");
+  }
+
+  /** Listener which write problems in compilation mode format */
+  private class Listener implements AuditListener {
+
+    /** Output for problems */
+    private PrintStream output = System.out;
+
+    /** Set output for problems
+     * @param newOutput output
+     */
+    public void setOutput(final PrintStream newOutput) {
+      this.output = newOutput;
+    }
+
+    public void auditStarted(final AuditEvent event) {
+      // nothing
+    }
+
+    public void auditFinished(final AuditEvent event) {
+      output.flush();
+    }
+
+    public void fileStarted(final AuditEvent event) {
+      // nothing
+    }
+
+    public void fileFinished(final AuditEvent event) {
+      // nothing
+    }
+
+    public void addError(final AuditEvent event) {
+      output.println(event.getFileName() + ":" + event.getLine() + ":" + event.getColumn()
+                     + ": " + event.getSeverityLevel().getName() + ": " + event.getMessage());
+    }
+
+    public void addException(final AuditEvent event, final Throwable throwable) {
+      output.println(event.getFileName() + ":0:0: error: " + throwable);
+      // file must be checked again
+      sources.forget(new File(event.getFileName()));
+    }
+  }
+}
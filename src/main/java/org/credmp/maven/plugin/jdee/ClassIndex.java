@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Index of classes in javadoc docsets.
+ * <p>Every docset has its own list of classes (file <code>.class-index</code>
+ * in docset) which is made when docset is extracted or generated (it is
+ * older then <code>package-list</code> of docset).  Lists of all docsets
+ * are merged to one sorted file with lines <code>CLASS TAB HTML</code>, so
+ * the help of class is found by one search in one file.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class ClassIndex {
+
+  /** Name of list of classes in docset */
+  public static final String DOCSET_FILE = ".class-index";
+
+  /** Directories in docset which doesn't contain pages of classes */
+  private static final String[] SKIPPED = {"class-use", "doc-files", "src-html", "resources", "index-files"};
+
+  /** Methode which return classes of docset
+   * @param docset root directory of javadoc
+   * @return list of String[] {class name, relative path of html}
+   * @throws IOException if list cannot be read or written
+   */
+  public static List docsetClasses(final File docset) throws IOException {
+    File cache = new File(docset, DOCSET_FILE);
+    File packageList = new File(docset, "package-list");
+    if (!packageList.isFile()) {
+      packageList = new File(docset, "element-list");
+    }
+    if (cache.isFile() && cache.lastModified() >= packageList.lastModified()) {
+      return readClasses(cache);
+    }
+
+    List result = new ArrayList();
+    collectClasses(docset, "", result);
+    PrintWriter out = new PrintWriter(new FileWriter(cache));
+    try {
+      for (Iterator iter = result.iterator(); iter.hasNext();) {
+        String[] line = (String[]) iter.next();
+        out.println(line[0] + "\t" + line[1]);
+      }
+    } finally {
+      out.close();
+    }
+    return result;
+  }
+
+  /** Methode which write merged index of docsets.  If the class is in more
+   * docsets the first docset is used.  Index is written only if it is
+   * changed.
+   * @param index index file
+   * @param docsets list of docset directories
+   * @return count of classes in index
+   * @throws IOException if index cannot be written
+   */
+  public static int write(final File index, final List docsets) throws IOException {
+    Map classes = new TreeMap();
+    for (Iterator iter = docsets.iterator(); iter.hasNext();) {
+      File docset = (File) iter.next();
+      for (Iterator lines = docsetClasses(docset).iterator(); lines.hasNext();) {
+        String[] line = (String[]) lines.next();
+        if (!classes.containsKey(line[0])) {
+          classes.put(line[0], new File(docset, line[1]).getAbsolutePath());
+        }
+      }
+    }
+
+    StringBuffer content = new StringBuffer();
+    for (Iterator iter = classes.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      content.append(entry.getKey());
+      content.append('\t');
+      content.append(entry.getValue());
+      content.append('\n');
+    }
+    String text = content.toString();
+    if (index.isFile() && index.length() == text.getBytes().length && text.equals(FileUtil.readFile(index))) {
+      return classes.size();
+    }
+    FileWriter out = new FileWriter(index);
+    try {
+      out.write(text);
+    } finally {
+      out.close();
+    }
+    return classes.size();
+  }
+
+  /** Methode which read list of classes
+   * @param file list of classes
+   * @return list of String[] {class name, relative path of html}
+   * @throws IOException if file cannot be read
+   */
+  private static List readClasses(final File file) throws IOException {
+    List result = new ArrayList();
+    BufferedReader in = new BufferedReader(new FileReader(file));
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        int tab = line.indexOf('\t');
+        if (tab > 0) {
+          result.add(new String[] {line.substring(0, tab), line.substring(tab + 1)});
+        }
+      }
+    } finally {
+      in.close();
+    }
+    return result;
+  }
+
+  /** Recursive search of class pages.  Page of class has name which begin
+   * with upper case letter, nested class has name
+   * <code>Outer.Inner.html</code>.
+   * @param dir searched directory
+   * @param path relative path of directory (with ending slash)
+   * @param result list of String[] {class name, relative path of html}
+   */
+  private static void collectClasses(final File dir, final String path, final List result) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (int i = 0; i < files.length; i++) {
+      String name = files[i].getName();
+      if (files[i].isDirectory()) {
+        boolean skip = name.startsWith(".");
+        for (int j = 0; j < SKIPPED.length && !skip; j++) {
+          skip = SKIPPED[j].equals(name);
+        }
+        if (!skip) {
+          collectClasses(files[i], path + name + "/", result);
+        }
+      } else if (name.endsWith(".html") && Character.isUpperCase(name.charAt(0))
+                 && name.indexOf('-') < 0 && path.length() > 0) {
+        String className = path.replace('/', '.') + name.substring(0, name.length() - 5);
+        result.add(new String[] {className, path + name});
+      }
+    }
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.apache.maven.plugin.jdee.support.ClassFileInfo;
+import org.apache.maven.plugin.logging.Log;
+
+/** Analyzer of classpath which find duplicate classes and jars which are not
+ * used by project.
+ * <p>Central directories of all jars are read in parallel.  Classes of
+ * project are read in parallel too and all classes referenced from their
+ * constant pools are searched in jars.  Super types of found classes are
+ * searched too, because compiler needs them.  Jar without any referenced
+ * class or super type is dead - it isn't needed for writing code of
+ * project.  Jar which cannot be read is never dead.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class ClasspathAnalyzer {
+
+  /** Log for reporting unreadable files */
+  private final Log log;
+  /** Count of threads */
+  private final int threads;
+  /** Class name (internal form) - list of jars which contains it */
+  private final Map classJars = new HashMap();
+  /** Analyzed jars in classpath order */
+  private final List jars = new ArrayList();
+  /** Jars which were read */
+  private final Set indexed = new HashSet();
+
+  /** Creates a new <code>ClasspathAnalyzer</code> instance.
+   * @param log log for reporting unreadable files
+   * @param threads count of threads for reading files
+   */
+  public ClasspathAnalyzer(final Log log, final int threads) {
+    super();
+    this.log = log;
+    this.threads = Math.max(1, threads);
+  }
+
+  /** Methode which read central directories of jars.
+   * @param files jar files (other files and directories are skipped)
+   */
+  public void indexJars(final List files) {
+    List tasks = new ArrayList();
+    for (Iterator iter = files.iterator(); iter.hasNext();) {
+      final File file = (File) iter.next();
+      if (file == null || !file.isFile()) {
+        continue;
+      }
+      jars.add(file);
+      tasks.add(new Callable() {
+          public Object call() throws IOException {
+            return jarClasses(file);
+          }
+        });
+    }
+    List results = runAll(tasks);
+    for (int i = 0; results != null && i < results.size(); i++) {
+      File jar = (File) jars.get(i);
+      List classes = (List) results.get(i);
+      if (classes == null) {
+        continue;
+      }
+      indexed.add(jar);
+      for (Iterator iter = classes.iterator(); iter.hasNext();) {
+        Object name = iter.next();
+        List owners = (List) classJars.get(name);
+        if (owners == null) {
+          owners = new ArrayList(1);
+          classJars.put(name, owners);
+        }
+        owners.add(jar);
+      }
+    }
+  }
+
+  /** Methode which return classes which are in more jars.
+   * @return sorted map: class name - list of jars in classpath order
+   */
+  public Map duplicateClasses() {
+    Map result = new TreeMap();
+    for (Iterator iter = classJars.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      if (((List) entry.getValue()).size() > 1) {
+        result.put(((String) entry.getKey()).replace('/', '.'), entry.getValue());
+      }
+    }
+    return result;
+  }
+
+  /** Methode which return jars from which is not referenced any class.
+   * @param classDirectories directories with compiled classes of project
+   * @return set of dead jars or null if directories contains no class or
+   *         some class cannot be read
+   */
+  public Set deadJars(final File[] classDirectories) {
+    List classFiles = new ArrayList();
+    for (int i = 0; i < classDirectories.length; i++) {
+      collectClassFiles(classDirectories[i], classFiles);
+    }
+    if (classFiles.isEmpty()) {
+      return null;
+    }
+
+    List tasks = new ArrayList();
+    for (Iterator iter = classFiles.iterator(); iter.hasNext();) {
+      final File file = (File) iter.next();
+      tasks.add(new Callable() {
+          public Object call() throws IOException {
+            return ClassFileInfo.read(file).getReferences();
+          }
+        });
+    }
+    List results = runAll(tasks);
+    if (results == null || results.contains(null)) {
+      // unknown references, any jar can be used
+      return null;
+    }
+    LinkedList referenced = new LinkedList();
+    for (Iterator iter = results.iterator(); iter.hasNext();) {
+      referenced.addAll((Set) iter.next());
+    }
+
+    Set result = new HashSet(indexed);
+    result.removeAll(usedJars(referenced));
+    return result;
+  }
+
+  /** Methode which return jars with referenced classes and with their super
+   * types (transitively)
+   * @param referenced referenced class names, the list is consumed
+   * @return set of used jars
+   */
+  private Set usedJars(final LinkedList referenced) {
+    Set used = new HashSet();
+    Set visited = new HashSet();
+    Map opened = new HashMap();
+    try {
+      while (!referenced.isEmpty()) {
+        String name = (String) referenced.removeFirst();
+        List owners = (List) classJars.get(name);
+        if (owners == null || !visited.add(name)) {
+          continue;
+        }
+        used.addAll(owners);
+        File jar = (File) owners.get(0);
+        try {
+          ZipFile zip = (ZipFile) opened.get(jar);
+          if (zip == null) {
+            zip = new ZipFile(jar);
+            opened.put(jar, zip);
+          }
+          ZipEntry entry = zip.getEntry(name + ".class");
+          if (entry != null) {
+            InputStream in = zip.getInputStream(entry);
+            try {
+              referenced.addAll(ClassFileInfo.read(in).getSuperTypes());
+            } finally {
+              in.close();
+            }
+          }
+        } catch (IOException e) {
+          log.warn("Cannot read super types of " + name + " from " + jar + ": " + e.getMessage());
+        }
+      }
+    } finally {
+      for (Iterator iter = opened.values().iterator(); iter.hasNext();) {
+        try {
+          ((ZipFile) iter.next()).close();
+        } catch (IOException e) {
+          // read only
+        }
+      }
+    }
+    return used;
+  }
+
+  /** Methode which return names of classes in jar
+   * @param jar jar file
+   * @return list of class names in internal form
+   * @throws IOException if jar cannot be read
+   */
+  private static List jarClasses(final File jar) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(jar, "r");
+    try {
+      List entries = ZipExtractor.readEntries(raf.getChannel());
+      List result = new ArrayList(entries.size());
+      for (Iterator iter = entries.iterator(); iter.hasNext();) {
+        String name = ((ZipExtractor.Entry) iter.next()).getName();
+        if (name.endsWith(".class") && !name.startsWith("META-INF/")
+            && !name.endsWith("module-info.class")) {
+          result.add(name.substring(0, name.length() - 6));
+        }
+      }
+      return result;
+    } finally {
+      raf.close();
+    }
+  }
+
+  /** Methode which find all class files in directory
+   * @param directory directory with classes
+   * @param result list of class files
+   */
+  private static void collectClassFiles(final File directory, final List result) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (int i = 0; i < files.length; i++) {
+      if (files[i].isDirectory()) {
+        collectClassFiles(files[i], result);
+      } else if (files[i].getName().endsWith(".class")) {
+        result.add(files[i]);
+      }
+    }
+  }
+
+  /** Methode which run all tasks in parallel and return their results in
+   * order of tasks.  Failed task has result null and it is reported to log.
+   * @param tasks list of {@link Callable}
+   * @return list of results or null if thread was interrupted
+   */
+  private List runAll(final List tasks) {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List futures = executor.invokeAll(tasks);
+      List result = new ArrayList(futures.size());
+      for (Iterator iter = futures.iterator(); iter.hasNext();) {
+        try {
+          result.add(((Future) iter.next()).get());
+        } catch (ExecutionException e) {
+          log.warn("Cannot analyze classpath entry: " + e.getCause());
+          result.add(null);
+        }
+      }
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
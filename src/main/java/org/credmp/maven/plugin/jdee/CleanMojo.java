@@ -18,6 +18,7 @@ package org.apache.maven.plugin.jdee;
 import java.io.File;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.BenchmarkMetrics;
 import org.apache.maven.project.MavenProject;
 
 /**
@@ -25,6 +26,7 @@ import org.apache.maven.project.MavenProject;
  *
  * @goal clean
  * @phase process-sources
+ * @threadSafe
  */
 public class CleanMojo extends AbstractMojo {
 
@@ -54,16 +56,30 @@ public class CleanMojo extends AbstractMojo {
   private File testSourceDirectory;
 
   /** Methode which execute goal.
-   * <p>Delete files src/main/java/prj.el, src/test/java/prj.el and xref.data
+   * <p>Delete files prj.el and prj-packages.el in src/main/java and
+   * src/test/java, prj-deps.el, pathing jars, prj-classes.txt and xref.data
    * .maven-emacs-plugin-cache directory</p>
    * @todo delete xref.data
    * @throws MojoExecutionException some exception raise
    */
   public void execute() throws MojoExecutionException {
+    long start = System.currentTimeMillis();
     File f = new File(sourceDirectory, "prj.el");
     f.delete();
     f = new File(testSourceDirectory, "prj.el");
     f.delete();
+    f = new File(sourceDirectory, JdeeMojo.PACKAGE_MAP_FILE);
+    f.delete();
+    f = new File(testSourceDirectory, JdeeMojo.PACKAGE_MAP_FILE);
+    f.delete();
+    f = new File(executedProject.getBasedir(), JdeeMojo.DEPS_DATA_FILE);
+    f.delete();
+    for (int i = 0; i < JdeeMojo.PATHING_JAR_FILES.length; i++) {
+      f = new File(executedProject.getBasedir(), JdeeMojo.PATHING_JAR_FILES[i]);
+      f.delete();
+    }
+    f = new File(executedProject.getBasedir(), JdeeMojo.CLASS_INDEX_FILE);
+    f.delete();
     f = new File(executedProject.getBasedir(), "xref.data");
     f.delete();
     f = new File(executedProject.getBasedir() + File.separator
@@ -71,5 +87,6 @@ public class CleanMojo extends AbstractMojo {
     if (f.exists()) {
       FileUtil.deleteDirectory(f);
     }
+    BenchmarkMetrics.record("clean", start);
   }
 }
@@ -0,0 +1,208 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.IncrementalCompiler;
+import org.apache.maven.plugin.jdee.support.LineServer;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Goal which run compile server for Emacs.
+ * <p>Java compiler of JDK (<code>javax.tools</code>) with resolved
+ * classpath of project stay in memory and sources are compiled
+ * incrementally to buildDirectory and testBuildDirectory (see {@link
+ * IncrementalCompiler}).  Commands are read from standard input (see
+ * {@link LineServer}):</p>
+ * <ul>
+ *   <li><code>compile</code> - compile sources changed since last
+ *       compilation and sources which depend on them</li>
+ *   <li><code>compile FILE ...</code> - compile given sources and sources
+ *       which depend on them</li>
+ *   <li><code>rebuild</code> - compile all sources</li>
+ *   <li><code>quit</code> - stop the server</li>
+ * </ul>
+ * <p>Diagnostics are written as soon as compiler report them, as lines
+ * <code>FILE:LINE:COLUMN: KIND: MESSAGE</code> which can be parsed by Emacs
+ * compilation mode.</p>
+ *
+ * @goal compile-server
+ * @requiresProject true
+ * @requiresDependencyResolution test
+ */
+public class CompileServerMojo extends AbstractMojo {
+
+  /**
+   * The Maven Project.
+   *
+   * @parameter expression="${project}"
+   * @required
+   * @readonly
+   */
+  protected MavenProject executedProject;
+
+  /**
+   * Location of the source directory.
+   *
+   * @parameter expression="${project.build.sourceDirectory}"
+   * @required
+   */
+  private File sourceDirectory;
+
+  /**
+   * Build directory
+   *
+   * @parameter expression="${project.build.outputDirectory}"
+   * @required
+   */
+  private File buildDirectory;
+
+  /**
+   * Test source directory
+   *
+   * @parameter expression="${project.build.testSourceDirectory}"
+   * @required
+   */
+  private File testSourceDirectory;
+
+  /**
+   * Test build directory
+   *
+   * @parameter expression="${project.build.testOutputDirectory}"
+   * @required
+   */
+  private File testBuildDirectory;
+
+  /**
+   * Other arguments of compiler separated by spaces, e.g.
+   * <code>-g -source 1.5 -target 1.5</code>.
+   *
+   * @parameter expression="${compilerArguments}" default-value="-g"
+   */
+  private String compilerArguments;
+
+  /**
+   * Encoding of sources.
+   *
+   * @parameter expression="${project.build.sourceEncoding}"
+   */
+  private String encoding;
+
+  /** Compiler of main sources */
+  private IncrementalCompiler mainCompiler;
+  /** Compiler of test sources */
+  private IncrementalCompiler testCompiler;
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if JDK compiler isn't available or
+   *         server fails
+   */
+  public void execute() throws MojoExecutionException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new MojoExecutionException("Java compiler isn't available, maven must run on JDK");
+    }
+    List arguments = new ArrayList();
+    if (compilerArguments != null && compilerArguments.trim().length() > 0) {
+      arguments.addAll(Arrays.asList(compilerArguments.trim().split("\\s+")));
+    }
+    if (encoding != null && !"".equals(encoding)) {
+      arguments.add("-encoding");
+      arguments.add(encoding);
+    }
+
+    List mainClasspath = new ArrayList();
+    List testClasspath = new ArrayList();
+    testClasspath.add(buildDirectory.getAbsolutePath());
+    for (Iterator iter = executedProject.getArtifacts().iterator(); iter.hasNext();) {
+      Artifact artifact = (Artifact) iter.next();
+      if (artifact.getFile() == null || !artifact.getArtifactHandler().isAddedToClasspath()) {
+        continue;
+      }
+      String path = artifact.getFile().getAbsolutePath();
+      if (Artifact.SCOPE_COMPILE.equals(artifact.getScope())
+          || Artifact.SCOPE_PROVIDED.equals(artifact.getScope())
+          || Artifact.SCOPE_SYSTEM.equals(artifact.getScope())) {
+        mainClasspath.add(path);
+      }
+      testClasspath.add(path);
+    }
+
+    mainCompiler = new IncrementalCompiler(compiler, new File[] {sourceDirectory}, buildDirectory,
+                                           mainClasspath, arguments);
+    testCompiler = new IncrementalCompiler(compiler, new File[] {testSourceDirectory}, testBuildDirectory,
+                                           testClasspath, arguments);
+    getLog().info("Compile server is ready, classpath has " + testClasspath.size() + " entries");
+    try {
+      new LineServer(System.in, System.out, new LineServer.Handler() {
+          public void handle(final String command, final String[] arguments,
+                             final PrintStream out) throws Exception {
+            if ("compile".equals(command)) {
+              compile(arguments, out);
+            } else if ("rebuild".equals(command)) {
+              mainCompiler.rebuild(out);
+              testCompiler.rebuild(out);
+            } else {
+              throw new IllegalArgumentException("Unknown command: " + command);
+            }
+          }
+        }).run();
+    } catch (IOException e) {
+      throw new MojoExecutionException("Compile server failed", e);
+    }
+  }
+
+  /** Methode which compile changed or given sources.  Test sources which
+   * depend on changed main classes are compiled too, all of them if value
+   * of main constant is changed.
+   * @param arguments files to compile, if empty then changed files are
+   *        compiled
+   * @param out output for diagnostics
+   * @throws IOException if classes cannot be written
+   */
+  private void compile(final String[] arguments, final PrintStream out) throws IOException {
+    if (arguments.length == 0) {
+      Set changed = mainCompiler.compileChanged(new HashSet(), out);
+      if (mainCompiler.isConstantChanged()) {
+        testCompiler.rebuild(out);
+      } else {
+        testCompiler.compileChanged(changed, out);
+      }
+    } else {
+      List files = new ArrayList();
+      for (int i = 0; i < arguments.length; i++) {
+        files.add(new File(arguments[i]));
+      }
+      Set changed = mainCompiler.compileFiles(files, new HashSet(), out);
+      if (mainCompiler.isConstantChanged()) {
+        testCompiler.rebuild(out);
+      } else {
+        testCompiler.compileFiles(files, changed, out);
+      }
+    }
+  }
+}
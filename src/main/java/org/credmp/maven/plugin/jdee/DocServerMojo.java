@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.DocRenderer;
+import org.apache.maven.plugin.jdee.support.LineServer;
+
+/**
+ * Goal which run documentation server for Emacs.
+ * <p>Sources of first level dependencies are extracted to cache (as by goal
+ * jdee), but no javadoc is generated.  Javadoc of single class is rendered
+ * from sources when Emacs ask for it and rendered pages are cached (see
+ * {@link DocRenderer}).  It is lighter alternative to generating of whole
+ * javadocs, use it with <code>javadocScope=on-demand</code>.  Commands are
+ * read from standard input (see {@link LineServer}):</p>
+ * <ul>
+ *   <li><code>doc CLASS</code> - write path to html page of class</li>
+ *   <li><code>stats</code> - write count of cached and rendered pages</li>
+ *   <li><code>clear</code> - delete all rendered pages</li>
+ *   <li><code>quit</code> - stop the server</li>
+ * </ul>
+ *
+ * @goal doc-server
+ * @requiresProject true
+ */
+public class DocServerMojo extends JdeeMojo {
+
+  /**
+   * Maximal count of classes with rendered pages, the least recently used
+   * class is deleted first.
+   *
+   * @parameter expression="${docCacheSize}" default-value="100"
+   */
+  private int docCacheSize;
+
+  /**
+   * Directory for rendered pages, it is cleaned when server starts.
+   *
+   * @parameter expression="${docDirectory}" default-value="${project.build.directory}/mep-doc"
+   */
+  private File docDirectory;
+
+  /** Renderer of pages */
+  private DocRenderer renderer;
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if dependencies cannot be resolved,
+   *         javadoc tool isn't available or server fails
+   */
+  public void execute() throws MojoExecutionException {
+    IdeDependency[] deps;
+    try {
+      deps = doDependencyResolution(executedProject);
+    } catch (MojoExecutionException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new MojoExecutionException("Cannot resolve dependencies of " + executedProject.getId(), e);
+    }
+    List firstLevel = new ArrayList();
+    List classpath = new ArrayList();
+    for (int i = 0; i < deps.length; i++) {
+      if (deps[i].isFirstLevel() && !deps[i].isSystemScoped()) {
+        firstLevel.add(deps[i]);
+      }
+      if (deps[i].getFile() != null && deps[i].isAddedToClasspath()) {
+        classpath.add(deps[i].getFile().getAbsolutePath());
+      }
+    }
+
+    List roots = new ArrayList();
+    addRoots(roots, executedProject.getCompileSourceRoots());
+    addRoots(roots, executedProject.getTestCompileSourceRoots());
+    addRoots(roots, extractSources((IdeDependency[]) firstLevel.toArray(new IdeDependency[firstLevel.size()])));
+    try {
+      renderer = new DocRenderer(roots, classpath, docDirectory, docCacheSize);
+    } catch (IllegalStateException e) {
+      throw new MojoExecutionException(e.getMessage());
+    }
+    getLog().info("Doc server is ready, " + roots.size() + " source roots");
+    try {
+      new LineServer(System.in, System.out, new LineServer.Handler() {
+          public void handle(final String command, final String[] arguments,
+                             final PrintStream out) throws Exception {
+            if ("doc".equals(command)) {
+              if (arguments.length != 1) {
+                throw new IllegalArgumentException("Usage: doc CLASS");
+              }
+              out.println(renderer.render(arguments[0], out).getAbsolutePath());
+            } else if ("stats".equals(command)) {
+              out.println("cached " + renderer.getHits() + ", rendered " + renderer.getMisses());
+            } else if ("clear".equals(command)) {
+              renderer.clear();
+            } else {
+              throw new IllegalArgumentException("Unknown command: " + command);
+            }
+          }
+        }).run();
+    } catch (IOException e) {
+      throw new MojoExecutionException("Doc server failed", e);
+    } finally {
+      renderer.clear();
+    }
+  }
+
+  /** Methode which add existing source roots
+   * @param roots list of roots (File)
+   * @param paths added paths (String)
+   */
+  private static void addRoots(final List roots, final List paths) {
+    for (Iterator iter = paths.iterator(); iter.hasNext();) {
+      File root = new File((String) iter.next());
+      if (root.isDirectory()) {
+        roots.add(root);
+      }
+    }
+  }
+}
@@ -14,10 +14,13 @@
 package org.apache.maven.plugin.jdee;
 
 import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
 
 /** Methode which make support for work with wile and directories
  * @author Lukas Benda
- * @version 1.2
+ * @version 1.3
  */
 public class FileUtil {
 
@@ -43,4 +46,25 @@ public class FileUtil {
     FileUtil.cleanDirectory(directory);
     directory.delete();
   }
+
+  /** Methode which read whole file in default encoding
+   * @param file read file
+   * @return content of file
+   * @throws IOException if file cannot be read
+   * @since 1.3
+   */
+  public static String readFile(final File file) throws IOException {
+    Reader in = new FileReader(file);
+    try {
+      StringBuffer result = new StringBuffer((int) file.length());
+      char[] buffer = new char[8192];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        result.append(buffer, 0, n);
+      }
+      return result.toString();
+    } finally {
+      in.close();
+    }
+  }
 }
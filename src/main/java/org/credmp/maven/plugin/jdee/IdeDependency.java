@@ -38,6 +38,8 @@ public class IdeDependency implements Comparable {
   private boolean systemScoped;
   /** Is this a provided dependency? */
   private boolean provided;
+  /** Is this a runtime dependency? */
+  private boolean runtime;
   /** Is this dependency added to classpath? */
   private boolean addedToClasspath;
   /** Resolved artifact file. */
@@ -115,6 +117,22 @@ public class IdeDependency implements Comparable {
     this.firstLevel = newFirstLevel;
   }
 
+  /** Get the <code>Runtime</code> value.
+   * @return true if dependency is needed only for running
+   * @since 1.3
+   */
+  public final boolean isRuntime() {
+    return runtime;
+  }
+
+  /** Set the <code>Runtime</code> value.
+   * @param newRuntime The new Runtime value.
+   * @since 1.3
+   */
+  public final void setRuntime(final boolean newRuntime) {
+    this.runtime = newRuntime;
+  }
+
     /**
      * Getter for <code>javadocAttachment</code>.
      *
@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/** Executor of I/O bound tasks (extraction, javadoc processes).
+ * <p>On java 21 and newer every task run in its own virtual thread
+ * (<code>Executors.newVirtualThreadPerTaskExecutor</code> is called by
+ * reflection, because plugin is compiled for java 1.5), but at most
+ * <code>threads</code> tasks run at once, so the count of open files and
+ * processes is the same as on older java, where the fixed pool of platform
+ * threads is used.</p>
+ * <p>Tasks of one {@link #invokeAll(List)} are structured: when any task
+ * fails or the caller is interrupted, all other tasks are cancelled before
+ * the methode returns.  {@link #invokeEach(List)} run all tasks to their
+ * end and return result of each of them.</p>
+ * <p>Count of running tasks can be limited more (e.g. to be polite to remote
+ * repositories).</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class IoExecutor {
+
+  /** Wrapped executor */
+  private final ExecutorService executor;
+  /** True if tasks run in virtual threads */
+  private final boolean virtual;
+  /** Permits of running tasks or null if count isn't limited */
+  private final Semaphore permits;
+
+  /** Creates a new <code>IoExecutor</code> instance.
+   * @param threads maximal count of running tasks; 1 means serial run in
+   *        platform thread even on new java
+   */
+  public IoExecutor(final int threads) {
+    this(threads, 0);
+  }
+
+  /** Creates a new <code>IoExecutor</code> instance with limited count of
+   * running tasks.
+   * @param threads maximal count of running tasks; 1 means serial run in
+   *        platform thread even on new java
+   * @param limit other limit of running tasks, 0 is no limit
+   */
+  public IoExecutor(final int threads, final int limit) {
+    super();
+    ExecutorService service = null;
+    if (threads != 1) {
+      try {
+        service = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor", new Class[0])
+          .invoke(null, new Object[0]);
+      } catch (Exception e) {
+        // java older then 21
+        service = null;
+      }
+    }
+    virtual = service != null;
+    executor = service != null ? service : Executors.newFixedThreadPool(Math.max(1, threads));
+    int bound = virtual ? Math.max(1, threads) : 0;
+    if (limit > 0 && (bound == 0 || limit < bound)) {
+      bound = limit;
+    }
+    permits = bound > 0 ? new Semaphore(bound) : null;
+  }
+
+  /** Get the <code>Virtual</code> value.
+   * @return true if tasks run in virtual threads
+   */
+  public final boolean isVirtual() {
+    return virtual;
+  }
+
+  /** Methode which run all tasks and return their results in order of
+   * tasks.  If any task fails, the other are cancelled and the failure is
+   * thrown.
+   * @param tasks list of {@link Callable}
+   * @return list of results
+   * @throws ExecutionException if any task fails
+   * @throws InterruptedException if caller is interrupted
+   */
+  public List invokeAll(final List tasks) throws ExecutionException, InterruptedException {
+    CompletionService completion = new ExecutorCompletionService(executor);
+    List futures = new ArrayList(tasks.size());
+    try {
+      for (Iterator iter = tasks.iterator(); iter.hasNext();) {
+        futures.add(completion.submit(limited((Callable) iter.next())));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        // throws first failure
+        completion.take().get();
+      }
+      List result = new ArrayList(futures.size());
+      for (Iterator iter = futures.iterator(); iter.hasNext();) {
+        result.add(((Future) iter.next()).get());
+      }
+      return result;
+    } finally {
+      for (Iterator iter = futures.iterator(); iter.hasNext();) {
+        ((Future) iter.next()).cancel(true);
+      }
+    }
+  }
+
+  /** Methode which run all tasks and wait for all of them.  Failure of task
+   * doesn't cancel the other tasks.  If caller is interrupted, all tasks
+   * are cancelled.
+   * @param tasks list of {@link Callable}
+   * @return list of done {@link Future} in order of tasks
+   * @throws InterruptedException if caller is interrupted
+   */
+  public List invokeEach(final List tasks) throws InterruptedException {
+    List futures = new ArrayList(tasks.size());
+    boolean done = false;
+    try {
+      for (Iterator iter = tasks.iterator(); iter.hasNext();) {
+        futures.add(executor.submit(limited((Callable) iter.next())));
+      }
+      for (Iterator iter = futures.iterator(); iter.hasNext();) {
+        try {
+          ((Future) iter.next()).get();
+        } catch (ExecutionException e) {
+          // reported by caller
+        }
+      }
+      done = true;
+      return futures;
+    } finally {
+      if (!done) {
+        for (Iterator iter = futures.iterator(); iter.hasNext();) {
+          ((Future) iter.next()).cancel(true);
+        }
+      }
+    }
+  }
+
+  /** Methode which wrap task, so it waits for permit if count of running
+   * tasks is limited
+   * @param task task
+   * @return limited task
+   */
+  private Callable limited(final Callable task) {
+    if (permits == null) {
+      return task;
+    }
+    return new Callable() {
+        public Object call() throws Exception {
+          permits.acquire();
+          try {
+            return task.call();
+          } finally {
+            permits.release();
+          }
+        }
+      };
+  }
+
+  /** Methode which stop executor */
+  public void close() {
+    executor.shutdownNow();
+  }
+}
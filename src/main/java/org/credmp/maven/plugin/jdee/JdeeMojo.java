@@ -17,11 +17,10 @@ package org.apache.maven.plugin.jdee;
 
 import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -31,19 +30,22 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
 import java.util.zip.ZipException;
-import java.util.zip.ZipFile;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
@@ -62,27 +64,31 @@ import org.apache.maven.artifact.versioning.VersionRange;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.DependencyManagement;
 import org.apache.maven.model.Exclusion;
-import org.apache.maven.model.Plugin;
-import org.apache.maven.model.ReportPlugin;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.jdee.support.AsynchronousProcess;
+import org.apache.maven.plugin.jdee.support.BenchmarkMetrics;
 import org.apache.maven.plugin.jdee.support.ClassBrowser;
+import org.apache.maven.plugin.jdee.support.ImportScanner;
+import org.apache.maven.plugin.jdee.support.JavadocWorker;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.ProjectBuildingException;
 import org.apache.maven.project.artifact.InvalidDependencyVersionException;
-import org.codehaus.plexus.util.xml.Xpp3Dom;
 
 /**
  * Goal which make prj.el files in src/main/java and src/main/test,
  * uncompress javadoc and source in cache directory and make xref.data file
+ * <p>Goal can run in parallel build: files of project are written only in
+ * its directories and directories of shared cache are extracted and
+ * generated under {@link CacheLock}.</p>
  *
  * @author Arjen Wiersma <arjenw@gmail.com>
  * @author Lukas Benda
  * @since 1.0
- * @version 1.2.2
+ * @version 1.3
  * @goal jdee
  * @phase process-sources
+ * @threadSafe
  */
 public class JdeeMojo extends AbstractMojo {
 
@@ -137,6 +143,14 @@ public class JdeeMojo extends AbstractMojo {
      */
     private File buildDirectory;
 
+    /**
+     * Project build directory
+     *
+     * @parameter expression="${project.build.directory}"
+     * @required
+     */
+    private File targetDirectory;
+
     /**
      * Test source directory
      *
@@ -202,6 +216,125 @@ public class JdeeMojo extends AbstractMojo {
 
     private static final String VERSION = "1.2.2";
 
+    /** Name of dependency data file shared by main and test prj.el */
+    public static final String DEPS_DATA_FILE = "prj-deps.el";
+
+    /** Names of pathing jars written next to dependency data file, so they
+     * live as long as prj.el which refers to them (mvn clean keeps them) */
+    public static final String[] PATHING_JAR_FILES = {
+        "prj-classpath.jar", "prj-run-classpath.jar", "prj-test-classpath.jar", "prj-test-run-classpath.jar"
+    };
+
+    /** Lisp function which read list from dependency data file.  Data file
+     * is read only when it wasn't read yet or its stamp is changed. */
+    private static final String DEPS_DATA_FUNCTION =
+        "(defvar jde-maven2-deps-data-cache nil)\n"
+        + "(defun jde-maven2-deps-data (file stamp key)\n"
+        + "  (let ((entry (assoc file jde-maven2-deps-data-cache)))\n"
+        + "    (unless (equal (cadr entry) stamp)\n"
+        + "      (setq jde-maven2-deps-data-cache (delq entry jde-maven2-deps-data-cache))\n"
+        + "      (setq entry (with-temp-buffer\n"
+        + "                    (insert-file-contents file)\n"
+        + "                    (cons file (cons stamp (read (current-buffer))))))\n"
+        + "      (setq jde-maven2-deps-data-cache (cons entry jde-maven2-deps-data-cache)))\n"
+        + "    (plist-get (cddr entry) key)))\n";
+
+    /** Name of map of packages to source roots (next to prj.el) */
+    public static final String PACKAGE_MAP_FILE = "prj-packages.el";
+
+    /** Lisp function which find source of class by map of packages and
+     * advice of JDEE function which use it.  Map is read again only when it
+     * is changed. */
+    private static final String CLASS_SOURCE_FUNCTION =
+        "(defvar jde-maven2-package-map nil)\n"
+        + "(defvar jde-maven2-package-map-cache nil)\n"
+        + "(defun jde-maven2-class-source (class)\n"
+        + "  (when (and jde-maven2-package-map (file-readable-p jde-maven2-package-map))\n"
+        + "    (let ((modified (nth 5 (file-attributes jde-maven2-package-map))))\n"
+        + "      (unless (and (equal (car jde-maven2-package-map-cache) jde-maven2-package-map)\n"
+        + "                   (equal (cadr jde-maven2-package-map-cache) modified))\n"
+        + "        (let ((table (make-hash-table :test 'equal)))\n"
+        + "          (dolist (entry (with-temp-buffer (insert-file-contents jde-maven2-package-map)\n"
+        + "                                           (read (current-buffer))))\n"
+        + "            (puthash (car entry) (cdr entry) table))\n"
+        + "          (setq jde-maven2-package-map-cache (list jde-maven2-package-map modified table)))))\n"
+        + "    (let* ((outer (car (split-string class \"\\\\$\")))\n"
+        + "           (dot (string-match \"\\\\.[^.]*$\" outer))\n"
+        + "           (package (if dot (substring outer 0 dot) \"\"))\n"
+        + "           (name (concat (if dot (substring outer (1+ dot)) outer) \".java\"))\n"
+        + "           (roots (gethash package (nth 2 jde-maven2-package-map-cache)))\n"
+        + "           result)\n"
+        + "      (while (and roots (not result))\n"
+        + "        (let ((file (expand-file-name name (expand-file-name (replace-regexp-in-string \"\\\\.\" \"/\" package)\n"
+        + "                                                             (car roots)))))\n"
+        + "          (if (file-exists-p file) (setq result file)))\n"
+        + "        (setq roots (cdr roots)))\n"
+        + "      result)))\n"
+        + "(defadvice jde-find-class-source-file (around jde-maven2-package-map activate)\n"
+        + "  (let ((file (jde-maven2-class-source (ad-get-arg 0))))\n"
+        + "    (if file (setq ad-return-value file) ad-do-it)))\n";
+
+    /** Name of merged index of javadoc classes */
+    public static final String CLASS_INDEX_FILE = "prj-classes.txt";
+
+    /** Lisp function which find javadoc of class in merged index.  JDEE
+     * call it only with name of class, so index is taken from variable
+     * <code>jde-maven2-class-index</code>.  Index is read again only when it
+     * is changed. */
+    private static final String CLASS_HELP_FUNCTION =
+        "(defvar jde-maven2-class-index nil)\n"
+        + "(defvar jde-maven2-class-index-cache nil)\n"
+        + "(defun jde-maven2-class-help (class)\n"
+        + "  (let ((index jde-maven2-class-index))\n"
+        + "    (when (and index (file-readable-p index))\n"
+        + "      (let ((modified (nth 5 (file-attributes index))))\n"
+        + "        (unless (and (equal (car jde-maven2-class-index-cache) index)\n"
+        + "                     (equal (cadr jde-maven2-class-index-cache) modified))\n"
+        + "          (setq jde-maven2-class-index-cache\n"
+        + "                (list index modified (with-temp-buffer (insert-file-contents index)\n"
+        + "                                       (buffer-string)))))\n"
+        + "        (let ((text (nth 2 jde-maven2-class-index-cache)))\n"
+        + "          (if (string-match (concat \"^\" (regexp-quote class) \"\\t\\\\(.*\\\\)$\") text)\n"
+        + "              (concat \"file://\" (match-string 1 text))))))))\n";
+
+    /** Lisp function which ask goal doc-server for javadoc of class
+     * (javadocScope <code>on-demand</code>).  Server is started in project
+     * directory at first request and it is kept for next requests; answer
+     * is complete at line <code>;; mep-done</code> of {@link
+     * org.apache.maven.plugin.jdee.support.LineServer}. */
+    private static final String DOC_SERVER_FUNCTION =
+        "(defvar jde-maven2-doc-server-program \"mvn\")\n"
+        + "(defvar jde-maven2-doc-server-directory nil)\n"
+        + "(defvar jde-maven2-doc-server-arguments nil)\n"
+        + "(defvar jde-maven2-doc-servers nil)\n"
+        + "(defun jde-maven2-doc-server-answer (process)\n"
+        + "  (with-current-buffer (process-buffer process)\n"
+        + "    (goto-char (point-min))\n"
+        + "    (while (and (eq (process-status process) 'run)\n"
+        + "                (not (re-search-forward \"^;; mep-done .*\\n\" nil t)))\n"
+        + "      (accept-process-output process 1)\n"
+        + "      (goto-char (point-min)))\n"
+        + "    (prog1 (buffer-substring (point-min) (point))\n"
+        + "      (delete-region (point-min) (point)))))\n"
+        + "(defun jde-maven2-doc-server-help (class)\n"
+        + "  (let* ((dir jde-maven2-doc-server-directory)\n"
+        + "         (process (cdr (assoc dir jde-maven2-doc-servers))))\n"
+        + "    (when dir\n"
+        + "      (unless (and process (eq (process-status process) 'run))\n"
+        + "        (let ((default-directory (file-name-as-directory dir)))\n"
+        + "          (setq process (apply 'start-process \"mep-doc-server\" (generate-new-buffer \" *mep-doc-server*\")\n"
+        + "                               jde-maven2-doc-server-program \"-B\" \"emacs:doc-server\"\n"
+        + "                               jde-maven2-doc-server-arguments)))\n"
+        + "        (set-process-query-on-exit-flag process nil)\n"
+        + "        (setq jde-maven2-doc-servers\n"
+        + "              (cons (cons dir process) (delq (assoc dir jde-maven2-doc-servers) jde-maven2-doc-servers)))\n"
+        + "        (jde-maven2-doc-server-answer process))\n"
+        + "      (when (eq (process-status process) 'run)\n"
+        + "        (process-send-string process (concat \"doc \" class \"\\n\"))\n"
+        + "        (let ((answer (jde-maven2-doc-server-answer process)))\n"
+        + "          (if (string-match \"^\\\\(.*\\\\.html\\\\)\\n;; mep-done doc \" answer)\n"
+        + "              (concat \"file://\" (match-string 1 answer))))))))\n";
+
     /**
      * Path to global cache. To this path will be uncopress source files and
      * javadoc files which is downloaded from maven repositories. If is not set
@@ -273,6 +406,111 @@ public class JdeeMojo extends AbstractMojo {
      */
     private boolean generateMissingJavadoc;
 
+    /**
+     * Generate missing javadoc in background. The prj.el is written
+     * immediately with javadocs which already exist and the missing javadocs
+     * are generated by separate process which survive this maven run.
+     * Generated javadocs are add to jde-help-docsets when prj.el is loaded
+     * again.
+     *
+     * @parameter expression="${deferJavadoc}"
+     */
+    private boolean deferJavadoc;
+
+    /**
+     * Packages of dependency sources from which is missing javadoc
+     * generated.  Values are:
+     * <ul>
+     *   <li><code>all</code> - all packages with full javadoc (class use
+     *       pages, versions and authors)</li>
+     *   <li><code>imports</code> - only packages which are imported by
+     *       sources or test sources of project, without class use pages.
+     *       Javadoc is generated again with new packages when project import
+     *       some package which isn't documented yet.</li>
+     *   <li><code>on-demand</code> - nothing is generated, sources are only
+     *       extracted and javadoc of single class is rendered when Emacs ask
+     *       goal doc-server for it.  prj.el add docset which start the
+     *       server in project directory at first request.</li>
+     * </ul>
+     *
+     * @parameter expression="${javadocScope}" default-value="all"
+     */
+    private String javadocScope;
+
+    /**
+     * Share files with the same content between all extracted attachments in
+     * cache (e.g. between versions of one library).  Shared files are hard
+     * links to one copy in directory .blobs of cache, files are copied if the
+     * file system doesn't support hard links.
+     *
+     * @parameter expression="${deduplicateCache}"
+     */
+    private boolean deduplicateCache;
+
+    /**
+     * Set jde-global-classpath (used for completion, beanshell and compile)
+     * only to first level dependencies, which can be used in sources of
+     * project.  Full classpath with all dependencies is set to
+     * jde-run-option-classpath and jde-db-option-classpath.  If compile of
+     * project needs some second level dependency (e.g. superclass of some
+     * used class) then it must be added as dependency of project.
+     *
+     * @parameter expression="${firstLevelClasspath}"
+     */
+    private boolean firstLevelClasspath;
+
+    /**
+     * Analyze classpath: find classes which are in more jars and jars from
+     * which project doesn't use any class (dead jars).  Values are:
+     * <ul>
+     *   <li><code>report</code> - only write report</li>
+     *   <li><code>prune</code> - write report and remove dead jars from
+     *       jde-global-classpath (full classpath is set to
+     *       jde-run-option-classpath and jde-db-option-classpath)</li>
+     *   <li><code>reorder</code> - write report and move dead jars to the end
+     *       of jde-global-classpath</li>
+     * </ul>
+     * Project must be compiled for finding dead jars.
+     *
+     * @parameter expression="${classpathAnalysis}"
+     */
+    private String classpathAnalysis;
+
+    /**
+     * Write all dependencies to Class-Path of pathing jar (jar with only
+     * manifest) and set only this jar in prj.el compile, run and debug
+     * classpaths.  jde-global-classpath keeps all jars, because completion
+     * doesn't read Class-Path of manifest.  Pathing jars are
+     * prj-classpath.jar and prj-test-classpath.jar (with prj-run-classpath.jar
+     * and prj-test-run-classpath.jar when run classpath differs) in project
+     * directory next to prj-deps.el, so mvn clean doesn't break prj.el.  They
+     * are written only if the list of dependencies is changed and removed by
+     * emacs:clean.
+     *
+     * @parameter expression="${pathingJar}"
+     */
+    private boolean pathingJar;
+
+    /**
+     * Record dependency collection tree with times of nodes, conflicts and
+     * omitted artifacts to target/jdee-resolution.txt and as folded stacks
+     * for flame graph to target/jdee-resolution.folded.
+     *
+     * @parameter expression="${resolutionProfile}"
+     */
+    private boolean resolutionProfile;
+
+    /**
+     * Maximal count of running I/O bound tasks (extraction, javadoc
+     * generation).  On java 21 tasks run in virtual threads, on older java
+     * in pool of platform threads.  Value 1 run tasks serially, default is
+     * four threads for each processor.  Sources and javadocs are always
+     * resolved serially.
+     *
+     * @parameter expression="${ioThreads}" default-value="0"
+     */
+    private int ioThreads;
+
     /**
      * Directory to java home
      *
@@ -329,10 +567,35 @@ public class JdeeMojo extends AbstractMojo {
      */
     private boolean noRecreate;
 
-    private Set getProjectArtifacts() throws InvalidVersionSpecificationException {
+    /** Idle extractors of attachments, buffers are reused for all
+     * dependencies */
+    private LinkedList zipExtractors = new LinkedList();
+
+    /** Store of extracted files shared by extractors */
+    private BlobStore blobStore;
+
+    /** Executor of I/O bound tasks */
+    private IoExecutor ioExecutor;
+
+    /** Extracted dependency sources for map of packages */
+    private List sourceRoots = new ArrayList();
+
+    /** Packages imported by project sources (for javadocScope imports) */
+    private Set importedPackages;
+
+    /** Entries of cache (group/artifact/version) used by project */
+    private final Set cacheEntries = new TreeSet();
+
+    /** Javadoc jobs (lines of queue file) for background worker */
+    private Map javadocQueue = new HashMap();
+
+    /** Age of queued mark after which is javadoc queued again (worker died) */
+    private static final long JAVADOC_QUEUE_TIMEOUT = 24L * 60 * 60 * 1000;
+
+    private Set getProjectArtifacts(MavenProject project) throws InvalidVersionSpecificationException {
         Set artifacts = new HashSet();
 
-        for (Iterator dependencies = executedProject.getDependencies().iterator(); dependencies.hasNext();) {
+        for (Iterator dependencies = project.getDependencies().iterator(); dependencies.hasNext();) {
             Dependency dep = (Dependency) dependencies.next();
             
             String groupId = dep.getGroupId();
@@ -451,14 +714,22 @@ public class JdeeMojo extends AbstractMojo {
 
             try {
                 List listeners = new ArrayList();
+                ResolutionProfiler profiler = null;
+                if (resolutionProfile) {
+                    profiler = new ResolutionProfiler();
+                    listeners.add(profiler);
+                }
 
-                artifactResolutionResult = artifactCollector.collect(getProjectArtifacts(),
+                artifactResolutionResult = artifactCollector.collect(getProjectArtifacts(project),
                                                                      project.getArtifact(),
                                                                      managedVersions,
                                                                      localRepo,
                                                                      project.getRemoteArtifactRepositories(),
                                                                      artifactMetadataSource, null,
                                                                      listeners);
+                if (profiler != null) {
+                    writeResolutionProfile(profiler);
+                }
             } catch (ArtifactResolutionException e) {
                 getLog().error("Artifact resolution failed for:\n" +
                                "Group: " + e.getGroupId() + "\n" +
@@ -508,6 +779,7 @@ public class JdeeMojo extends AbstractMojo {
                                                           Artifact.SCOPE_PROVIDED.equals(art.getScope()),
                                                           art.getArtifactHandler().isAddedToClasspath(),
                                                           art.getFile(), art.getType(), dependencyDepth);
+                    dep.setRuntime(Artifact.SCOPE_RUNTIME.equals(art.getScope()));
                     
                     // no duplicate entries allowed. System paths can cause this problem.
                     if (!dependencies.contains(dep)) {
@@ -524,16 +796,271 @@ public class JdeeMojo extends AbstractMojo {
         return ideDeps;
     }
 
+    /** Methode which collect javadoc docsets and dependency sources of
+     * first level dependencies to dependency data.
+     * @param deps dependencies all dependensies of this project
+     * @param data dependency data (keyword - list of lisp forms)
+     * @since 1.3
+     */
+    private void collectDocsets(IdeDependency[] deps, Map data) {
+        List docsets = new ArrayList();
+        List docsetDirs = new ArrayList();
+        List pendingJavadoc = new ArrayList();
+        List dependSourcePath = new ArrayList();
+        sourceRoots.clear();
+
+        // attachments are extracted (and javadocs generated) in parallel
+        List tasks = new ArrayList();
+        for (int i = 0; i < deps.length; i++) {
+            if (deps[i].isFirstLevel()) {
+                final IdeDependency dependency = deps[i];
+                tasks.add(new Callable() {
+                        public Object call() {
+                            return attachmentPaths(dependency);
+                        }
+                    });
+            }
+        }
+
+        for (Iterator iter = runIo(tasks).iterator(); iter.hasNext();) {
+            String[] paths = (String[]) iter.next();
+            if (paths == null) {
+                continue;
+            }
+            if (paths[0] != null) {
+                dependSourcePath.add("\"" + paths[0] + "\"");
+                sourceRoots.add(new File(paths[0]));
+            }
+            if (paths[1] != null) {
+                docsets.add("(\"User (javadoc)\" \"" + paths[1] + "\" nil)");
+                docsetDirs.add(new File(paths[1]));
+            }
+            if (paths[2] != null) {
+                pendingJavadoc.add("\"" + paths[2] + "\"");
+            }
+        }
+        if (!docsets.isEmpty()) { data.put(":docsets", docsets); }
+        if (!docsetDirs.isEmpty()) {
+            File index = new File(executedProject.getBasedir(), CLASS_INDEX_FILE);
+            try {
+                int count = ClassIndex.write(index, docsetDirs);
+                getLog().debug("Class index " + index + ": " + count + " classes");
+                data.put(":class-index", Collections.singletonList("\"" + index.getAbsolutePath() + "\""));
+            } catch (IOException e) {
+                getLog().warn("Cannot write class index " + index + ": " + e.getMessage());
+            }
+        }
+        if (!pendingJavadoc.isEmpty()) { data.put(":pending-javadoc", pendingJavadoc); }
+        if (dependJavadocs && "on-demand".equals(javadocScope)) {
+            // javadoc isn't generated, Emacs ask doc-server for it
+            data.put(":doc-server", Collections.singletonList("\""
+                                                              + executedProject.getBasedir().getAbsolutePath()
+                                                              + "\""));
+        }
+        if (!dependSourcePath.isEmpty()) { data.put(":sourcepath", dependSourcePath); }
+    }
+
+    /** Methode which extract sources and javadoc of first level dependency
+     * and generate (or queue) missing javadoc.
+     * @param dependency first level dependency
+     * @return array {sources path, javadoc path, pending javadoc path}, item
+     *         is null if it isn't used
+     * @since 1.3
+     */
+    private String[] attachmentPaths(IdeDependency dependency) {
+        getLog().debug("First level dependecies: " + dependency.getGroupId() + ":" + dependency.getArtifactId());
+        String[] result = new String[3];
+        String sourcePath = null;
+        if (dependSources || (dependJavadocs && generateMissingJavadoc)) {
+            sourcePath = classifierPath(dependency, "sources");
+            if (dependSources && sourcePath != null && !"".equals(sourcePath)) {
+                result[0] = sourcePath;
+            }
+        }
+
+        if (dependJavadocs) {
+            String javadocPath = classifierPath(dependency, "javadoc");
+            if ((javadocPath == null || "".equals(javadocPath))
+                && (generateMissingJavadoc && sourcePath != null && !"".equals(sourcePath))) {
+                File javadocDir = new File(dependecyCachePath(dependency), "javadoc");
+                List packages = javadocPackages(javadocDir, sourcePath);
+                if ("on-demand".equals(javadocScope)) {
+                    getLog().debug("Javadoc is rendered on demand from: " + sourcePath);
+                } else if (packages != null && packages.isEmpty()) {
+                    getLog().debug("No package is imported from: " + sourcePath);
+                } else if (deferJavadoc) {
+                    if (isJavadocGenerated(javadocDir, sourcePath, packages)) {
+                        javadocPath = javadocDir.getAbsolutePath();
+                    } else if (queueJavadoc(javadocDir, sourcePath, "javadoc", packages)) {
+                        result[2] = javadocDir.getAbsolutePath();
+                    }
+                } else {
+                    javadocPath = generateJavadoc(dependency, sourcePath, "javadoc", packages);
+                }
+            }
+            if (javadocPath != null && !"".equals(javadocPath)) {
+                result[1] = javadocPath;
+            }
+        }
+        return result;
+    }
+
+    /** Methode which collect classpaths of main or test project to
+     * dependency data (keys <code>:classpath</code>,
+     * <code>:compile-classpath</code> and <code>:run-classpath</code>, with
+     * prefix <code>:test-</code> for test).
+     * Main classpath contains compile, provided and system dependencies,
+     * runtime dependencies are only in main run classpath and test
+     * dependencies only in test classpaths.
+     * @param deps dependencies all dependensies of this project
+     * @param test true if classpaths are for test prj.el
+     * @param deadJars jars which are removed from (or moved to end of)
+     *        jde-global-classpath
+     * @param data dependency data (keyword - list of lisp forms)
+     * @throws MojoExecutionException if pathing jar cannot be written
+     * @since 1.3
+     */
+    private void collectClasspaths(IdeDependency[] deps, boolean test, Set deadJars, Map data)
+        throws MojoExecutionException {
+        List classpath = new ArrayList();
+        List runClasspath = new ArrayList();
+        boolean prune = "prune".equals(classpathAnalysis);
+        List deadClasspath = new ArrayList();
+        boolean runtimeOnly = false;
+        for (int i = 0; i < deps.length; i++) {
+            if (!test && deps[i].isTestDependency()) {
+                continue;
+            }
+            runClasspath.add(deps[i].getFile());
+            if (!test && deps[i].isRuntime()) {
+                runtimeOnly = true;
+                continue;
+            }
+            if (!firstLevelClasspath || deps[i].isFirstLevel()) {
+                if (!deadJars.contains(deps[i].getFile())) {
+                    classpath.add(deps[i].getFile());
+                } else if (!prune) {
+                    deadClasspath.add(deps[i].getFile());
+                }
+            }
+        }
+        classpath.addAll(deadClasspath);
+        boolean separateRunClasspath = firstLevelClasspath || runtimeOnly || (prune && !deadJars.isEmpty());
+
+        String key = test ? ":test-" : ":";
+        data.put(key + "classpath", quotePaths(classpath));
+        if (pathingJar) {
+            // jde-global-classpath keeps jars for completion, commands get pathing jars
+            // next to prj-deps.el, target directory is deleted by mvn clean
+            File basedir = executedProject.getBasedir();
+            int index = test ? 2 : 0;
+            File compileJar = writePathingJar(new File(basedir, PATHING_JAR_FILES[index]), classpath);
+            data.put(key + "compile-classpath", quotePaths(Collections.singletonList(compileJar)));
+            if (separateRunClasspath) {
+                runClasspath = Collections.singletonList(writePathingJar(new File(basedir,
+                                                                                  PATHING_JAR_FILES[index + 1]),
+                                                                         runClasspath));
+            } else {
+                runClasspath = Collections.singletonList(compileJar);
+            }
+            data.put(key + "run-classpath", quotePaths(runClasspath));
+        } else if (separateRunClasspath) {
+            data.put(key + "run-classpath", quotePaths(runClasspath));
+        }
+    }
+
+    /** Methode which write dependency data file which is shared by main and
+     * test prj.el.  The file contains one property list (keyword - list) and
+     * it is read (not evaluated) by function
+     * <code>jde-maven2-deps-data</code> only when its stamp is changed.  The
+     * file is written only if its content is changed.
+     * @param dataFile dependency data file
+     * @param data dependency data (keyword - list of lisp forms)
+     * @return stamp of data
+     * @throws MojoExecutionException if file cannot be written
+     * @since 1.3
+     */
+    private String writeDependencyData(File dataFile, Map data) throws MojoExecutionException {
+        StringBuffer sb = new StringBuffer();
+        sb.append(";; Generated by maven-jdee-plugin version " + VERSION + "\n");
+        sb.append(";; Don't make any changes in this file.\n");
+        sb.append("(");
+        for (Iterator iter = data.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            sb.append(entry.getKey());
+            sb.append("\n (");
+            for (Iterator forms = ((List) entry.getValue()).iterator(); forms.hasNext();) {
+                sb.append("\n  ");
+                sb.append(forms.next());
+            }
+            sb.append(")");
+            if (iter.hasNext()) { sb.append("\n "); }
+        }
+        sb.append(")\n");
+        String content = sb.toString();
+
+        byte[] bytes = content.getBytes();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        String stamp = Long.toHexString(crc.getValue()) + "-" + bytes.length;
+
+        if (dataFile.isFile() && dataFile.length() == bytes.length) {
+            try {
+                if (content.equals(FileUtil.readFile(dataFile))) {
+                    return stamp;
+                }
+            } catch (IOException e) {
+                getLog().debug("Cannot read " + dataFile + ": " + e.getMessage());
+            }
+        }
+        writeFile(dataFile, content);
+        return stamp;
+    }
+
+    /** Methode which return lisp form which read list from dependency data
+     * @param dataFile dependency data file
+     * @param stamp stamp of dependency data
+     * @param key keyword of list
+     * @return lisp form
+     * @since 1.3
+     */
+    private String dependencyData(File dataFile, String stamp, String key) {
+        return "(jde-maven2-deps-data \"" + dataFile.getAbsolutePath() + "\" \"" + stamp + "\" " + key + ")";
+    }
+
+    /** Methode which write recorded collection tree to
+     * target/jdee-resolution.txt and folded stacks for flame graph to
+     * target/jdee-resolution.folded
+     * @param profiler listener which recorded collection
+     * @since 1.3
+     */
+    private void writeResolutionProfile(ResolutionProfiler profiler) {
+        File tree = new File(targetDirectory, "jdee-resolution.txt");
+        File folded = new File(targetDirectory, "jdee-resolution.folded");
+        try {
+            targetDirectory.mkdirs();
+            profiler.writeTree(tree);
+            profiler.writeFolded(folded);
+            getLog().info("Dependency collection took " + profiler.getTotalMillis() + " ms ("
+                          + profiler.getConflicts() + " conflicts), see " + tree + " and " + folded);
+        } catch (IOException e) {
+            getLog().warn("Cannot write resolution profile: " + e.getMessage());
+        }
+    }
+
     /** Methode which create file prj.el
      * @param sourceDir direcotry in which will be prj.el write
      * @param outputDir name of direcotry in which shell be write copiled class
-     * @param deps dependencies all dependensies of this project
      * @param test true if now is created test prj.el
+     * @param dataFile dependency data file shared with other prj.el
+     * @param data dependency data written to <code>dataFile</code>
+     * @param stamp stamp of dependency data
      * @throws MojoExecutionException common exception
      * @since 1.0
-     * @version 1.2.2
+     * @version 1.3
      */
-    private void createJdeePrj(File sourceDir, File outputDir, IdeDependency[] deps, boolean test)
+    private void createJdeePrj(File sourceDir, File outputDir, boolean test, File dataFile, Map data,
+                               String stamp)
         throws MojoExecutionException {
         getLog().debug("createJdeePrj");
         File f = sourceDir;
@@ -550,6 +1077,18 @@ public class JdeeMojo extends AbstractMojo {
             sb.append(projectVersion);
             sb.append("\")\n");
         } else { sb.append("(jde-project-file-version \"1.0\")\n"); }
+        sb.append(DEPS_DATA_FUNCTION);
+        if (data.containsKey(":class-index")) {
+            sb.append(CLASS_HELP_FUNCTION);
+            sb.append("(setq jde-maven2-class-index (car " + dependencyData(dataFile, stamp, ":class-index")
+                      + "))\n");
+        }
+        if (data.containsKey(":doc-server")) {
+            sb.append(DOC_SERVER_FUNCTION);
+            sb.append("(setq jde-maven2-doc-server-directory (car "
+                      + dependencyData(dataFile, stamp, ":doc-server") + "))\n");
+            sb.append("(setq jde-maven2-doc-server-arguments (list " + arguments() + "))\n");
+        }
         sb.append("(jde-set-variables\n" + "  '(jde-project-name \"" + artifactId);
         if (test) { sb.append("-test"); }
         sb.append("\")\n" + "  '(jde-project-file-name \"prj.el\")\n\n");
@@ -558,59 +1097,60 @@ public class JdeeMojo extends AbstractMojo {
         sb.append("))\n");
         sb.append("  '(jde-compile-option-directory \"" + outputDir + "\")\n");
 
-        sb.append("  '(jde-global-classpath '(\n");
-        sb.append("    \"" + outputDir + "\"\n");
-        if (test) { sb.append("    \"" + buildDirectory + "\"\n"); }
-
-        StringBuffer javadoc = new StringBuffer("  '(jde-help-docsets (append '(\n");
-        StringBuffer dependSourcePath = new StringBuffer("  '(jde-depend-sourcepath '(\n");
-
-        boolean appendJavadoc = false;
-        boolean appendSourcepath = false;
-        for (int i = 0; i < deps.length; i++) {
-            sb.append("    \"");
-            sb.append(deps[i].getFile().getAbsolutePath());
-            sb.append("\"\n");
-
-            if (deps[i].isFirstLevel()) {
-                getLog().debug("First level dependecies: " + deps[i].getGroupId() + ":" + deps[i].getArtifactId());
-                String sourcePath = null;
-                if (dependSources || (dependJavadocs && generateMissingJavadoc)) {
-                    sourcePath = classifierPath(deps[i], "sources");
-                    if (dependSources && sourcePath != null && !"".equals(sourcePath)) {
-                        dependSourcePath.append("    \"");
-                        dependSourcePath.append(sourcePath);
-                        dependSourcePath.append("\"\n");
-                        appendSourcepath = true;
-                    }
-                }
-
-                if (dependJavadocs) {
-                    String javadocPath = classifierPath(deps[i], "javadoc");
-                    if ((javadocPath == null || "".equals(javadocPath))
-                        && (generateMissingJavadoc && sourcePath != null && !"".equals(sourcePath))) {
-                        javadocPath = generateJavadoc(deps[i], sourcePath, "javadoc");
-                    }
-                    if (javadocPath != null && !"".equals(javadocPath)) {
-                        javadoc.append("    (\"User (javadoc)\" \"");
-                        javadoc.append(javadocPath);
-                        javadoc.append("\" nil)\n");
-                        appendJavadoc = true;
-                    }
-                }
-            }
+        List outputs = new ArrayList();
+        outputs.add(outputDir);
+        if (test) { outputs.add(buildDirectory); }
+        StringBuffer outputPaths = new StringBuffer();
+        appendPaths(outputPaths, outputs);
+
+        String key = test ? ":test-" : ":";
+        sb.append("  '(jde-global-classpath (append '(\n");
+        sb.append(outputPaths.toString());
+        sb.append("    )\n    " + dependencyData(dataFile, stamp, key + "classpath") + "))\n");
+
+        if (data.containsKey(key + "compile-classpath")) {
+            sb.append("  '(jde-compile-option-classpath (append '(\n");
+            sb.append(outputPaths.toString());
+            sb.append("    )\n    " + dependencyData(dataFile, stamp, key + "compile-classpath") + "))\n");
+        }
+        if (data.containsKey(key + "run-classpath")) {
+            String runClasspath = dependencyData(dataFile, stamp, key + "run-classpath");
+            sb.append("  '(jde-run-option-classpath (append '(\n");
+            sb.append(outputPaths.toString());
+            sb.append("    )\n    " + runClasspath + "))\n");
+            sb.append("  '(jde-db-option-classpath (append '(\n");
+            sb.append(outputPaths.toString());
+            sb.append("    )\n    " + runClasspath + "))\n");
         }
-        sb.append("))\n");
 
-        if (appendJavadoc) {
+        if (data.containsKey(":docsets") || data.containsKey(":pending-javadoc")
+            || data.containsKey(":doc-server")) {
+            sb.append("\n  '(jde-help-docsets (append\n    ");
+            if (data.containsKey(":class-index")) {
+                // one merged index instead of all docsets
+                sb.append("(list (list \"User (not javadoc)\" jde-maven2-class-index 'jde-maven2-class-help))");
+            } else {
+                sb.append(dependencyData(dataFile, stamp, ":docsets"));
+            }
             sb.append("\n");
-            sb.append(javadoc.toString());
-            sb.append(") jde-global-help-docsets))\n");
+            if (data.containsKey(":pending-javadoc")) {
+                // javadocs from background worker are used when they exist
+                sb.append("    (delq nil (mapcar (lambda (dir) (if (file-directory-p dir)"
+                          + " (list \"User (javadoc)\" dir nil)))\n      ");
+                sb.append(dependencyData(dataFile, stamp, ":pending-javadoc"));
+                sb.append("))\n");
+            }
+            if (data.containsKey(":doc-server")) {
+                // javadoc of dependency without javadoc is rendered by doc-server
+                sb.append("    (list (list \"User (not javadoc)\" jde-maven2-doc-server-directory"
+                          + " 'jde-maven2-doc-server-help))\n");
+            }
+            sb.append("    jde-global-help-docsets))\n");
         }
-        if (appendSourcepath) {
-            sb.append("\n");
-            sb.append(dependSourcePath.toString());
-            sb.append("))\n");
+        if (data.containsKey(":sourcepath")) {
+            sb.append("\n  '(jde-depend-sourcepath\n    ");
+            sb.append(dependencyData(dataFile, stamp, ":sourcepath"));
+            sb.append(")\n");
         }
         sb.append(")\n\n");
 
@@ -618,6 +1158,21 @@ public class JdeeMojo extends AbstractMojo {
                   + executedProject.getBasedir().getAbsolutePath() + File.separator
                   + "pom.xml\")\n\n");
 
+        if (dependSources) {
+            File packageMap = new File(sourceDir, PACKAGE_MAP_FILE);
+            List projectRoots = new ArrayList();
+            projectRoots.add(sourceDir);
+            if (test) { projectRoots.add(sourceDirectory); }
+            try {
+                int count = PackageIndex.write(packageMap, projectRoots, sourceRoots);
+                getLog().debug("Package map " + packageMap + ": " + count + " packages");
+                sb.append(CLASS_SOURCE_FUNCTION);
+                sb.append("(setq jde-maven2-package-map \"" + packageMap.getAbsolutePath() + "\")\n\n");
+            } catch (IOException e) {
+                getLog().warn("Cannot write package map " + packageMap + ": " + e.getMessage());
+            }
+        }
+
         String checkstyle = checkStyleConfiguration();
         if (checkstyle != null && !"".equals(checkstyle)) {
             sb.append("(setq jde-checkstyle-style \"" + checkstyle + "\")\n\n");
@@ -674,12 +1229,22 @@ public class JdeeMojo extends AbstractMojo {
             sb.append("\")");
             sb.append("\n");
         }
+        writeFile(jdeePrjEl, sb.toString());
+    }
+
+    /** Methode which write content to file
+     * @param file written file
+     * @param content content of file
+     * @throws MojoExecutionException if file cannot be written
+     * @since 1.3
+     */
+    private void writeFile(File file, String content) throws MojoExecutionException {
         FileWriter w = null;
         try {
-            w = new FileWriter(jdeePrjEl);
-            w.write(sb.toString());
+            w = new FileWriter(file);
+            w.write(content);
         } catch (IOException e) {
-            throw new MojoExecutionException("Error creating file " + jdeePrjEl, e);
+            throw new MojoExecutionException("Error creating file " + file, e);
         } finally {
             if (w != null) {
                 try {
@@ -692,6 +1257,52 @@ public class JdeeMojo extends AbstractMojo {
         }
     }
 
+    /** Methode which return list of quoted absolute paths
+     * @param files list of files
+     * @return list of lisp strings
+     * @since 1.3
+     */
+    private List quotePaths(List files) {
+        List result = new ArrayList(files.size());
+        for (Iterator iter = files.iterator(); iter.hasNext();) {
+            result.add("\"" + ((File) iter.next()).getAbsolutePath() + "\"");
+        }
+        return result;
+    }
+
+    /** Methode which append list of paths in lisp format (one path on line)
+     * @param sb buffer to which are paths append
+     * @param files list of files
+     * @since 1.3
+     */
+    private void appendPaths(StringBuffer sb, List files) {
+        for (Iterator iter = files.iterator(); iter.hasNext();) {
+            sb.append("    \"");
+            sb.append(((File) iter.next()).getAbsolutePath());
+            sb.append("\"\n");
+        }
+    }
+
+    /** Methode which write pathing jar (jar with only manifest which
+     * Class-Path contains all given files).  The jar is written only if the
+     * list of files is changed.
+     * @param jar pathing jar
+     * @param files files in Class-Path of pathing jar
+     * @return pathing jar
+     * @throws MojoExecutionException if jar cannot be written
+     * @since 1.3
+     */
+    private File writePathingJar(File jar, List files) throws MojoExecutionException {
+        try {
+            if (PathingJar.write(jar, files)) {
+                getLog().info("Pathing jar written: " + jar);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error creating file " + jar, e);
+        }
+        return jar;
+    }
+
     /** Methode which return arguments which will be call this maven
      * @return arguments to run
      */
@@ -712,6 +1323,17 @@ public class JdeeMojo extends AbstractMojo {
         if (!generateMissingJavadoc) {
             result.append("\"-DgenerateMissingJavadoc=false\" ");
         }
+        if (deferJavadoc) { result.append("\"-DdeferJavadoc=true\" "); }
+        if (javadocScope != null && !"all".equals(javadocScope)) {
+            result.append("\"-DjavadocScope=" + javadocScope + "\" ");
+        }
+        if (deduplicateCache) { result.append("\"-DdeduplicateCache=true\" "); }
+        if (firstLevelClasspath) { result.append("\"-DfirstLevelClasspath=true\" "); }
+        if (pathingJar) { result.append("\"-DpathingJar=true\" "); }
+        if (ioThreads > 0) { result.append("\"-DioThreads=" + ioThreads + "\" "); }
+        if (classpathAnalysis != null && !"".equals(classpathAnalysis)) {
+            result.append("\"-DclasspathAnalysis=" + classpathAnalysis + "\" ");
+        }
         if (defaultGoal != null && !"".equals(defaultGoal)) {
             result.append("\"-DdefaultGoal=" + defaultGoal + "\" ");
         }
@@ -734,28 +1356,45 @@ public class JdeeMojo extends AbstractMojo {
         return result.toString();
     }
 
+    /** Methode which return basic cache path ended by separator.
+     * <p>Use path from parameter <code>globalCachePath</code> if is null or
+     * void string then will be use <code>.maven-emacs-plugin-cache</code> in
+     * project basic directory.</p>
+     * @return basic cache path
+     * @since 1.3
+     */
+    private String cachePath() {
+        String path = globalCachePath;
+        if (path == null || "".equals(path)) {
+            path = executedProject.getBasedir() + File.separator + ".maven-emacs-plugin-cache";
+        }
+        if (path.lastIndexOf(File.separator) < path.length() - 1) {
+            path += File.separator;
+        }
+        return path;
+    }
+
     /** <p>Methode which return cache path of dependencie (and create it if is it
-     * necessary).</p>
+     * necessary).  Path is remembered as entry used by project (see
+     * {@link CacheRegistry}).</p>
      * <p>Use basic cache path from parameter <code>globalCachePath</code> if is
      * null or void string then will be use
      * <code>.maven-emacs-plugin-cache</code> in project basic directory.</p>
      * @param dependency dependecie which chache path is neaded
      * @return File which represent cache direcotry of dependecy
      * @since 1.2.1
-     * @version 1.2.1
+     * @version 1.3
      */
     private File dependecyCachePath(IdeDependency dependency) {
-        String path = globalCachePath;
-        if (path == null || "".equals(path)) {
-            path = executedProject.getBasedir() + File.separator + ".maven-emacs-plugin-cache";
-        }
-        if (path.lastIndexOf(File.separator) < path.length() - 1) {
-            path += File.separator;
-        }
+        String path = cachePath();
 
         File f = new File(path + dependency.getGroupId() + File.separator
                           + dependency.getArtifactId() + File.separator
                           + dependency.getVersion() + File.separator);
+        synchronized (cacheEntries) {
+            cacheEntries.add(dependency.getGroupId() + "/" + dependency.getArtifactId()
+                             + "/" + dependency.getVersion());
+        }
         if (!f.exists()) {
             getLog().info("Create directory: " + f.getAbsolutePath());
             f.mkdirs();
@@ -768,13 +1407,14 @@ public class JdeeMojo extends AbstractMojo {
      * globalCachePath or if si null or "" then will use
      * .maven-emacs-plugin-cache in project.getBasedir().</p>
      * <p>This methode uncompress file only if last modification time of cache
-     * directory is less then file last modification time.</p>
+     * directory is less then file last modification time.  Only changed
+     * entries are written then (see {@link ZipExtractor#update(File, File)}).</p>
      * @param dependency dependenci which have document jarfile
      * @param classifier classifier - javadoc or source which will be unpack and
      *        return absolute path to direcotry
      * @return path to cache direcotry or null
      * @since 1.2
-     * @version 1.2.1
+     * @version 1.3
      */
     private String classifierPath(IdeDependency dependency, String classifier) {
         String result = null;
@@ -794,78 +1434,82 @@ public class JdeeMojo extends AbstractMojo {
             }
 
             result = f.getAbsolutePath();
-            if (!f.exists()) {
-                getLog().info("Create directory: " + f.getAbsolutePath());
-                f.mkdirs();
-            } else if (f.lastModified() < attachment.lastModified()) {
-                FileUtil.cleanDirectory(f);
-            }
+            CacheLock lock = null;
+            try {
+                // other module (or maven) can extract the same attachment
+                lock = CacheLock.lock(new File(cachePath()), f);
+                boolean update = false;
+                if (!f.exists()) {
+                    getLog().info("Create directory: " + f.getAbsolutePath());
+                    f.mkdirs();
+                } else if (ZipExtractor.isStale(f, attachment)) {
+                    // e.g. new SNAPSHOT, only changed entries are written
+                    getLog().info("Update directory: " + f.getAbsolutePath());
+                    update = true;
+                }
 
-            if (f.listFiles() == null || f.listFiles().length == 0) {
-                try {
-                    ZipFile zipFile = new ZipFile(attachment);
-                    byte[] data = new byte[100000];
-                    for (Enumeration en = zipFile.entries(); en.hasMoreElements(); ) {
-                        ZipEntry entry = (ZipEntry) en.nextElement();
-                        File file = new File(f, entry.getName());
-                        try {
-                            if (entry.isDirectory()) {
-                                file.mkdirs();
-                            } else {
-                                file.createNewFile();
-                            }
-                            if (entry.getTime() != -1) {
-                                file.setLastModified(entry.getTime());
-                            }
-                            if (!entry.isDirectory()) {
-                                try {
-                                    InputStream is = zipFile.getInputStream(entry);
-                                    try {
-                                        FileOutputStream fos = new FileOutputStream(file);
-                                        int readed;
-                                        while ((readed = is.read(data)) > -1) {
-                                            fos.write(data, 0, readed);
-                                        }
-                                        fos.flush();
-                                        fos.close();
-                                        is.close();
-                                    } catch (FileNotFoundException e) {
-                                        getLog().error("Cannot uzip entry in zip file: "
-                                                       + entry.getName() + " message: "
-                                                       + e.getMessage());
-                                    }
-                                } catch (IOException e) {
-                                    getLog().error("Cannot uzip entry in zip file: "
-                                                   + entry.getName() + " message: "
-                                                   + e.getMessage());
-                                }
-                            }
-                        } catch (IOException e) {
-                            getLog().error("Cannot unzip entry in zip file: "
-                                           + entry.getName()+ " message: "
-                                           + e.getMessage());
-                        }
+                if (update || f.listFiles() == null || f.listFiles().length == 0) {
+                    ZipExtractor extractor = borrowZipExtractor();
+                    try {
+                        int changed = extractor.update(attachment, f);
+                        getLog().debug("Written or deleted " + changed + " files in: " + f.getAbsolutePath());
+                    } finally {
+                        returnZipExtractor(extractor);
                     }
-                } catch (IOException e) { // ZipException is catched too
-                    getLog().error("Cannot unzip file: " + attachment.getAbsolutePath() + " message: " + e.getMessage());
-                    result = "";
+                }
+            } catch (IOException e) { // ZipException is catched too
+                getLog().error("Cannot unzip file: " + attachment.getAbsolutePath() + " message: " + e.getMessage());
+                result = "";
+            } finally {
+                if (lock != null) {
+                    lock.release();
                 }
             }
         }
         return result;
     }
 
+    /** Methode which borrow idle extractor of attachments (or create new
+     * one).  Extractors are reused, because each of them has its own
+     * buffers, and they are shared by parallel tasks.
+     * @return extractor with reusable buffers
+     * @since 1.3
+     */
+    private synchronized ZipExtractor borrowZipExtractor() {
+        if (!zipExtractors.isEmpty()) {
+            return (ZipExtractor) zipExtractors.removeLast();
+        }
+        ZipExtractor extractor = new ZipExtractor(getLog());
+        if (deduplicateCache) {
+            if (blobStore == null) {
+                blobStore = new BlobStore(new File(cachePath() + BlobStore.DIRECTORY));
+            }
+            extractor.setBlobStore(blobStore);
+        }
+        return extractor;
+    }
+
+    /** Methode which return borrowed extractor
+     * @param extractor extractor from {@link #borrowZipExtractor()}
+     * @since 1.3
+     */
+    private synchronized void returnZipExtractor(ZipExtractor extractor) {
+        zipExtractors.addLast(extractor);
+    }
+
     /**
      * Methode which generate javadoc for given depencies
      *
      * @param dependency dependency which will be generated
      * @param sourcePath path to sources
      * @param subDir name of javadoc subdirectory
+     * @param packages documented packages or null for all packages
      * @return path to javadoc directory
      * @since 1.2.1
-     * @version 1.2.1
+     * @version 1.3
      */
-    private String generateJavadoc(IdeDependency dependency, String sourcePath, String subDir) {
+    private String generateJavadoc(IdeDependency dependency, String sourcePath, String subDir,
+                                   List packages) {
         String result;
         File f = dependecyCachePath(dependency);
         if (subDir != null && !"".equals(subDir)) {
@@ -874,35 +1518,47 @@ public class JdeeMojo extends AbstractMojo {
 
         result = f.getAbsolutePath();
         File spf = new File(sourcePath + File.separator);
+        CacheLock lock;
+        try {
+            lock = CacheLock.lock(new File(cachePath()), f);
+        } catch (IOException e) {
+            getLog().error("Cannot lock javadoc directory: " + result + " because of error raise: "
+                           + e.getMessage());
+            return null;
+        }
+        try {
+            result = generateLockedJavadoc(f, sourcePath, spf, subDir, packages);
+        } finally {
+            lock.release();
+        }
+        return result;
+    }
+
+    /** Methode which generate javadoc to locked directory
+     * @param f javadoc directory
+     * @param sourcePath path to sources
+     * @param spf directory of sources
+     * @param subDir name of javadoc subdirectory
+     * @param packages documented packages or null for all packages
+     * @return path to javadoc directory or null if it cannot be generated
+     * @since 1.3
+     */
+    private String generateLockedJavadoc(File f, String sourcePath, File spf, String subDir,
+                                         List packages) {
+        String result = f.getAbsolutePath();
         if (!f.exists()) {
             getLog().info("Create directory: " + f.getAbsolutePath());
             f.mkdirs();
-        } else if (f.lastModified() < spf.lastModified()) {
+        } else if (f.lastModified() < spf.lastModified() || !isDocumented(f, packages)) {
             FileUtil.cleanDirectory(f);
         }
 
         if (f.list() == null || f.list().length == 0) {
-            List javadocParams = new LinkedList(Arrays.asList("-d", f.getAbsolutePath(), "-docletpath",
-                                                              javaHome + "/../lib/tools.jar",
-                                                              //"-doclet",
-                                                              //"com.sun.tools.doclets.standard.Standard",
-                                                              "-sourcepath", sourcePath, "-protected",
-                                                              "-use", "-version", "-author",
-                                                              "-subpackages"));
+            List javadocParams = new LinkedList(Arrays.asList("-d", f.getAbsolutePath()));
 
             try {
-                File[] files = spf.listFiles();
-                for (int i = 0; i < files.length; i++) {
-                    if (files[i].isDirectory()
-                        && !"META-INF".equals(files[i].getName())
-                        && (subDir == null || "".equals(subDir)
-                            || !subDir.equals(files[i].getName()))
-                        && files[i].list() != null
-                        && files[i].list().length > 0) {
-                        javadocParams.add(files[i].getName());
-                    }
-                }
-                StringBuffer parameters = new StringBuffer(javaHome + "/../bin/javadoc ");
+                javadocParams.addAll(javadocArguments(sourcePath, subDir, packages));
+                StringBuffer parameters = new StringBuffer(javadocExecutable() + " ");
                 String[] mainParam = new String[javadocParams.size()];
                 int j = 0;
                 for (Iterator iter = javadocParams.iterator(); iter.hasNext();) {
@@ -949,75 +1605,276 @@ public class JdeeMojo extends AbstractMojo {
         return result;
     }
 
-    /** Methode which return checkstyle configuration location.  This methode return
-     * config location as absolute path. This methode can find if location is write
-     * relative from this project or from some parent and transform file path from
-     * relative to absolute
-     * @todo reada checkstyle from repository or predefined checkstyle
-     *       <ul>
-     *         <li>config/sun_checks.xml - Sun Microsystems Definition (default).</li>
-     *         <li>config/maven_checks.xml - Maven Development Definitions.</li>
-     *         <li>config/turbine_checks.xml - Turbine Development Definitions.</li>
-     *         <li>config/avalon_checks.xml - Avalon Development Definitions.</li>
-     *       </ul>
-     * @todo make customization by propertyExpansion and propertesLocation tags
-     * @todo implement tags suppressionsLocation and suppressionsFileExpression
-     * @return chekstyle configuration location or null
-     * @since 1.2
-     * @version 1.2
+    /** Methode which return path to javadoc executable
+     * @return javadoc executable from JDK of this maven
+     * @since 1.3
      */
-    private String checkStyleConfiguration() {
-        String result = "";
-        for (Iterator iter = executedProject.getBuildPlugins().iterator();
-             iter.hasNext();) {
-            Object o = iter.next();
-            if (Plugin.class.isAssignableFrom(o.getClass())) {
-                Plugin plugin = (Plugin) o;
-                if ("org.apache.maven.plugins".equals(plugin.getGroupId())
-                    && "maven-checkstyle-plugin".equals(plugin.getArtifactId())) {
-                    if (Xpp3Dom.class.isAssignableFrom(plugin.getConfiguration().getClass())) {
-                        Xpp3Dom pluginConfig = (Xpp3Dom) plugin.getConfiguration();
-                        result = pluginConfig.getChild("configLocation").getValue();
+    private String javadocExecutable() {
+        return javaHome + "/../bin/javadoc";
+    }
 
-                    }
+    /** Methode which return javadoc arguments (without target directory) for
+     * generating javadoc from all packages of sources or from selected
+     * packages.  Selected packages are documented without class use pages,
+     * versions and authors, which are slow for large libraries.
+     * @param sourcePath path to sources
+     * @param subDir name of javadoc subdirectory which is skipped in sources
+     * @param packages documented packages or null for all packages
+     * @return list of arguments
+     * @since 1.3
+     */
+    private List javadocArguments(String sourcePath, String subDir, List packages) {
+        if (packages != null) {
+            List javadocParams = new ArrayList(Arrays.asList("-docletpath",
+                                                             javaHome + "/../lib/tools.jar",
+                                                             "-sourcepath", sourcePath,
+                                                             "-protected", "-quiet"));
+            javadocParams.addAll(packages);
+            return javadocParams;
+        }
+        List javadocParams = new ArrayList(Arrays.asList("-docletpath",
+                                                         javaHome + "/../lib/tools.jar",
+                                                         //"-doclet",
+                                                         //"com.sun.tools.doclets.standard.Standard",
+                                                         "-sourcepath", sourcePath, "-protected",
+                                                         "-use", "-version", "-author",
+                                                         "-subpackages"));
+        File[] files = new File(sourcePath + File.separator).listFiles();
+        for (int i = 0; files != null && i < files.length; i++) {
+            if (files[i].isDirectory()
+                && !"META-INF".equals(files[i].getName())
+                && files[i].getName().indexOf('.') < 0
+                && (subDir == null || "".equals(subDir)
+                    || !subDir.equals(files[i].getName()))
+                && files[i].list() != null
+                && files[i].list().length > 0) {
+                javadocParams.add(files[i].getName());
+            }
+        }
+        return javadocParams;
+    }
+
+    /** Methode which return packages of sources which will be documented.
+     * If javadocScope is <code>imports</code>, they are packages imported
+     * by project joined with packages which are already documented (so the
+     * javadoc only grows).
+     * @param javadocDir directory with generated javadoc
+     * @param sourcePath path to sources
+     * @return sorted list of packages (empty if no package is used) or null
+     *         for all packages
+     * @since 1.3
+     */
+    private List javadocPackages(File javadocDir, String sourcePath) {
+        if (!"imports".equals(javadocScope)) {
+            return null;
+        }
+        Set result = new TreeSet();
+        try {
+            Set available = PackageIndex.rootPackages(new File(sourcePath), true);
+            for (Iterator iter = getImportedPackages().iterator(); iter.hasNext();) {
+                Object name = iter.next();
+                if (available.contains(name)) {
+                    result.add(name);
                 }
             }
+        } catch (IOException e) {
+            getLog().warn("Cannot read packages of " + sourcePath + ": " + e.getMessage());
+            return null;
+        }
+        if (!result.isEmpty() && isJavadocGenerated(javadocDir, sourcePath, null)) {
+            Set documented = documentedPackages(javadocDir);
+            if (documented == null) {
+                // javadoc of all packages
+                return null;
+            }
+            result.addAll(documented);
         }
+        return new ArrayList(result);
+    }
 
-        for (Iterator iter = executedProject.getReportPlugins().iterator();
-             iter.hasNext();) {
-            Object o = iter.next();
-            if (ReportPlugin.class.isAssignableFrom(o.getClass())) {
-                ReportPlugin plugin = (ReportPlugin) o;
-                if ("org.apache.maven.plugins".equals(plugin.getGroupId())
-                    && "maven-checkstyle-plugin".equals(plugin.getArtifactId())) {
-                    if (Xpp3Dom.class.isAssignableFrom(plugin.getConfiguration().getClass())) {
-                        Xpp3Dom pluginConfig = (Xpp3Dom) plugin.getConfiguration();
-                        result = pluginConfig.getChild("configLocation").getValue();
+    /** Methode which return packages imported by sources and test sources of
+     * project.  Sources are scanned only once in one maven run.
+     * @return set of package names
+     * @since 1.3
+     */
+    private synchronized Set getImportedPackages() {
+        if (importedPackages == null) {
+            importedPackages = ImportScanner.importedPackages(new File[] {sourceDirectory, testSourceDirectory});
+            getLog().debug("Imported packages: " + importedPackages);
+        }
+        return importedPackages;
+    }
 
-                    }
+    /** Methode which return packages documented in generated javadoc
+     * (read from <code>package-list</code> or <code>element-list</code>).
+     * @param javadocDir directory with generated javadoc
+     * @return set of package names or null if list of packages doesn't exist
+     * @since 1.3
+     */
+    private Set documentedPackages(File javadocDir) {
+        File packageList = new File(javadocDir, "package-list");
+        if (!packageList.isFile()) {
+            packageList = new File(javadocDir, "element-list");
+        }
+        if (!packageList.isFile()) {
+            return null;
+        }
+        Set result = new TreeSet();
+        try {
+            String[] lines = FileUtil.readFile(packageList).split("\n");
+            for (int i = 0; i < lines.length; i++) {
+                String line = lines[i].trim();
+                if (line.length() > 0 && !line.startsWith("module:")) {
+                    result.add(line);
                 }
             }
+        } catch (IOException e) {
+            return null;
         }
-        // This part make absolute path from relative path
-        if (result != null && !"".equals(result)) {
-            File file = new File(result);
-            if (file.exists()) {
-                result = file.getAbsolutePath();
-            } else {
-                // Try find configuration which is write as relative path in some parent of
-                // this projet
-                MavenProject parent = executedProject.getParent();
-                while (parent != null && !file.exists()) {
-                    file = new File(parent.getBasedir(), result);
-                    parent = parent.getParent();
-                }
-                if (file.exists()) {
-                    result = file.getAbsolutePath();
+        return result;
+    }
+
+    /** Methode which return true if all packages are documented in javadoc
+     * directory.
+     * @param javadocDir directory with generated javadoc
+     * @param packages required packages or null for all packages
+     * @return true if javadoc contains all packages
+     * @since 1.3
+     */
+    private boolean isDocumented(File javadocDir, List packages) {
+        if (packages == null) {
+            return true;
+        }
+        Set documented = documentedPackages(javadocDir);
+        return documented == null || documented.containsAll(packages);
+    }
+
+    /** Methode which return true if javadoc generated from sources exists,
+     * is not older then sources and contains required packages.
+     * @param javadocDir directory with generated javadoc
+     * @param sourcePath path to sources
+     * @param packages required packages or null for all packages
+     * @return true if javadoc can be used
+     * @since 1.3
+     */
+    private boolean isJavadocGenerated(File javadocDir, String sourcePath, List packages) {
+        return javadocDir.isDirectory()
+            && javadocDir.list() != null && javadocDir.list().length > 0
+            && javadocDir.lastModified() >= new File(sourcePath).lastModified()
+            && isDocumented(javadocDir, packages);
+    }
+
+    /** Methode which add javadoc generation to queue of background worker.
+     * Javadoc which is already queued (by this or another maven run) is not
+     * queued again.  Javadoc which failed is not queued again until sources
+     * are changed.
+     * @param javadocDir directory to which will be javadoc generated
+     * @param sourcePath path to sources
+     * @param subDir name of javadoc subdirectory
+     * @param packages documented packages or null for all packages
+     * @return true if javadoc is queued, false if it failed before
+     * @since 1.3
+     */
+    private synchronized boolean queueJavadoc(File javadocDir, String sourcePath, String subDir,
+                                              List packages) {
+        String target = javadocDir.getAbsolutePath();
+        if (javadocQueue.containsKey(target)) {
+            return true;
+        }
+        File queued = new File(target + JavadocWorker.QUEUED_SUFFIX);
+        if (queued.exists()
+            && queued.lastModified() > System.currentTimeMillis() - JAVADOC_QUEUE_TIMEOUT) {
+            getLog().debug("Javadoc is already queued: " + target);
+            return true;
+        }
+        File failed = new File(target + JavadocWorker.FAILED_SUFFIX);
+        if (failed.exists() && failed.lastModified() >= new File(sourcePath).lastModified()) {
+            getLog().warn("Javadoc generation failed, see " + target + JavadocWorker.LOG_SUFFIX
+                          + "; it is generated again when sources are changed");
+            return false;
+        }
+
+        StringBuffer job = new StringBuffer(target);
+        job.append('\t');
+        job.append(javadocExecutable());
+        for (Iterator iter = javadocArguments(sourcePath, subDir, packages).iterator(); iter.hasNext();) {
+            job.append('\t');
+            job.append(iter.next());
+        }
+        javadocQueue.put(target, job.toString());
+        return true;
+    }
+
+    /** Methode which write queued javadoc jobs to queue file and start
+     * background worker which process it.  Worker run in new java process, so
+     * it survive this maven run.
+     * @since 1.3
+     */
+    private void startJavadocWorker() {
+        if (javadocQueue.isEmpty()) {
+            return;
+        }
+        File queueDir = new File(cachePath() + ".javadoc-queue");
+        queueDir.mkdirs();
+        PrintWriter w = null;
+        try {
+            File queue = File.createTempFile("javadoc", ".queue", queueDir);
+            w = new PrintWriter(new OutputStreamWriter(new FileOutputStream(queue), "UTF-8"));
+            int jobs = 0;
+            for (Iterator iter = javadocQueue.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry entry = (Map.Entry) iter.next();
+                File queued = new File(entry.getKey() + JavadocWorker.QUEUED_SUFFIX);
+                if (!queued.createNewFile()
+                    && queued.lastModified() > System.currentTimeMillis() - JAVADOC_QUEUE_TIMEOUT) {
+                    // queued by other module in the meantime
+                    continue;
                 }
+                queued.setLastModified(System.currentTimeMillis());
+                w.println(entry.getValue());
+                jobs++;
+            }
+            w.close();
+            w = null;
+            if (jobs == 0) {
+                queue.delete();
+                return;
             }
+
+            File classpath = new File(JavadocWorker.class.getProtectionDomain()
+                                      .getCodeSource().getLocation().toURI());
+            Process process = Runtime.getRuntime().exec(new String[] {
+                    javaHome + File.separator + "bin" + File.separator + "java",
+                    "-cp", classpath.getAbsolutePath(),
+                    JavadocWorker.class.getName(), queue.getAbsolutePath()});
+            // worker write its output to log file, nobody read the pipes
+            process.getOutputStream().close();
+            process.getInputStream().close();
+            process.getErrorStream().close();
+            getLog().info("Javadoc of " + jobs
+                          + " dependencies is generated in background: " + queue);
+        } catch (IOException e) {
+            getLog().error("Cannot start background javadoc generation: " + e.getMessage());
+        } catch (URISyntaxException e) {
+            getLog().error("Cannot start background javadoc generation: " + e.getMessage());
+        } finally {
+            if (w != null) {
+                w.close();
+            }
+            javadocQueue.clear();
         }
-        return result;
+    }
+
+    /** Methode which return checkstyle configuration location.  This methode return
+     * config location as absolute path. This methode can find if location is write
+     * relative from this project or from some parent and transform file path from
+     * relative to absolute
+     * @return chekstyle configuration location or null
+     * @see CheckstyleConfiguration
+     * @since 1.2
+     * @version 1.3
+     */
+    private String checkStyleConfiguration() {
+        return new CheckstyleConfiguration(executedProject).getConfigLocation();
     }
 
     private void createXrefFile(File[] sourceDir, File[] outputDir)
@@ -1028,10 +1885,11 @@ public class JdeeMojo extends AbstractMojo {
             f.mkdirs();
         }
 
-        File xref = new File(f, "xref.data");
+        // not relative to working directory, modules can run in parallel
+        File xref = new File(executedProject.getBasedir(), "xref.data");
         FileWriter w = null;
         try {
-            w = new FileWriter("xref.data");
+            w = new FileWriter(xref);
 
             w.write("[" + artifactId + "]\n");
             w.write("  -javafilesonly\n");
@@ -1108,6 +1966,7 @@ public class JdeeMojo extends AbstractMojo {
         // local repository for reporting missing source jars
         List remoteRepos = useRemoteRepos ? getRemoteArtifactRepositories() : Collections.EMPTY_LIST;
 
+        // resolver of maven 2 isn't thread safe, artifacts are resolved serially
         for (int j = 0; j < deps.length; j++) {
             IdeDependency dependency = deps[j];
 
@@ -1129,32 +1988,8 @@ public class JdeeMojo extends AbstractMojo {
                                                                              dependency.getArtifactId(),
                                                                              dependency.getVersion(),
                                                                              type, classifier);
-            try {
-                artifactResolver.resolve(artifact, remoteRepos, localRepo);
-            } catch (ArtifactNotFoundException e) {
-                // ignore, the jar has not been found
-            } catch (ArtifactResolutionException e) {
-                getLog().warn("Error resolving artifact:\n" +
-                              "Group: " + e.getGroupId() + "\n" +
-                              "Artifact: " + e.getArtifactId() + "\n" +
-                              "Version: " + e.getVersion() + "\n" +
-                              "Message: " + e.getMessage() + "\n");
-            }
-
-            /*      boolean resolve = artifact.isResolved();
-                    if (!resolve) {
-                    try {
-                    File doc = new File(new File(new URI(localRepo.getUrl())),
-                    localRepo.pathOf(artifact));
-                    getLog().debug(doc.getAbsolutePath());
-                    getLog().debug(localRepo.getProtocol());
-                    resolve = doc.exists();
-                    } catch (URISyntaxException e) {
-                    // ignore
-                    }
-                    } */
-
-            if (artifact.isResolved()){
+            resolveClassifier(artifact, remoteRepos, useRemoteRepos);
+            if (artifact.isResolved()) {
                 if ("sources".equals(classifier)) {
                     dependency.setSourceAttachment(artifact.getFile());
                 } else if ("javadoc".equals(classifier)) {
@@ -1173,6 +2008,93 @@ public class JdeeMojo extends AbstractMojo {
         return missingClassifierDependencies;
     }
 
+    /** Methode which resolve artifact with classifier, errors are only
+     * reported.
+     * @param artifact artifact with classifier
+     * @param remoteRepos remote repositories
+     * @param useRemoteRepos false if only local repository is checked
+     * @since 1.3
+     */
+    private void resolveClassifier(Artifact artifact, List remoteRepos, boolean useRemoteRepos) {
+        try {
+            if (useRemoteRepos || !checkLocalRepository(artifact)) {
+                artifactResolver.resolve(artifact, remoteRepos, localRepo);
+            }
+        } catch (ArtifactNotFoundException e) {
+            // ignore, the jar has not been found
+        } catch (ArtifactResolutionException e) {
+            getLog().warn("Error resolving artifact:\n" +
+                          "Group: " + e.getGroupId() + "\n" +
+                          "Artifact: " + e.getArtifactId() + "\n" +
+                          "Version: " + e.getVersion() + "\n" +
+                          "Message: " + e.getMessage() + "\n");
+        }
+    }
+
+    /** Methode which run I/O bound tasks in parallel (see {@link
+     * IoExecutor}).  Failed task has result null and it is reported to log,
+     * results of other tasks are kept.
+     * @param tasks list of {@link Callable}
+     * @return list of results in order of tasks
+     * @since 1.3
+     */
+    private List runIo(List tasks) {
+        List futures;
+        try {
+            futures = getIoExecutor().invokeEach(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Collections.nCopies(tasks.size(), null);
+        }
+        List result = new ArrayList(futures.size());
+        for (Iterator iter = futures.iterator(); iter.hasNext();) {
+            try {
+                result.add(((Future) iter.next()).get());
+            } catch (ExecutionException e) {
+                getLog().error("Parallel task failed: " + e.getCause(), e.getCause());
+                result.add(null);
+            } catch (InterruptedException e) {
+                // future is done
+                Thread.currentThread().interrupt();
+                result.add(null);
+            }
+        }
+        return result;
+    }
+
+    /** Methode which return executor of I/O bound tasks (and create it if
+     * is it necessary).
+     * @return executor
+     * @since 1.3
+     */
+    private IoExecutor getIoExecutor() {
+        if (ioExecutor == null) {
+            int threads = ioThreads > 0 ? ioThreads : 4 * Runtime.getRuntime().availableProcessors();
+            ioExecutor = new IoExecutor(threads);
+            getLog().debug("I/O tasks run in " + (ioExecutor.isVirtual() ? "virtual" : "platform")
+                           + " threads, at most " + threads + " at once");
+        }
+        return ioExecutor;
+    }
+
+    /** Methode which check in local repository if artifact exists (without
+     * resolver, which is slow for many artifacts).  Existing artifact is set
+     * as resolved.
+     * @param artifact artifact (with classifier)
+     * @return true if artifact was found or it surely doesn't exist, false
+     *         if it must be resolved (snapshot can have other name)
+     * @since 1.3
+     */
+    private boolean checkLocalRepository(Artifact artifact) {
+        File file = new File(localRepo.getBasedir(), localRepo.pathOf(artifact));
+        if (file.exists()) {
+            artifact.setFile(file);
+            artifact.setResolved(true);
+            return true;
+        }
+        return !artifact.isSnapshot();
+    }
+
     /** Resolve source artifacts and download them if <code>downloadSources</code>
      * is <code>true</code>. Source and javadocs artifacts will be attached to the
      * <code>IdeDependency</code> Resolve source and javadoc artifacts. The
@@ -1192,12 +2114,71 @@ public class JdeeMojo extends AbstractMojo {
         //    missingJavadocDependencies.addAll(missingJavadocs);
     }
 
+    /** Methode which read all dependency jars and report classes which are in
+     * more jars.
+     * @param deps resolved dependencies
+     * @return analyzer with read jars
+     * @since 1.3
+     */
+    private ClasspathAnalyzer analyzeClasspath(IdeDependency[] deps) {
+        List files = new ArrayList();
+        for (int i = 0; i < deps.length; i++) {
+            files.add(deps[i].getFile());
+        }
+        ClasspathAnalyzer analyzer = new ClasspathAnalyzer(getLog(),
+                                                           Runtime.getRuntime().availableProcessors());
+        analyzer.indexJars(files);
+
+        // one line for each group of jars which share classes
+        Map groups = new HashMap();
+        for (Iterator iter = analyzer.duplicateClasses().entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            List classes = (List) groups.get(entry.getValue());
+            if (classes == null) {
+                classes = new ArrayList();
+                groups.put(entry.getValue(), classes);
+            }
+            classes.add(entry.getKey());
+        }
+        for (Iterator iter = groups.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry entry = (Map.Entry) iter.next();
+            List classes = (List) entry.getValue();
+            getLog().warn(classes.size() + " duplicate classes (e.g. " + classes.get(0)
+                          + ") in: " + entry.getKey());
+        }
+        return analyzer;
+    }
+
+    /** Methode which find and report jars from which project doesn't use any
+     * class
+     * @param analyzer analyzer with read jars
+     * @param classDirectories directories with compiled classes of project
+     * @return set of dead jars (empty if project isn't compiled or its
+     *         classes cannot be read)
+     * @since 1.3
+     */
+    private Set deadJars(ClasspathAnalyzer analyzer, File[] classDirectories) {
+        Set result = analyzer.deadJars(classDirectories);
+        if (result == null) {
+            getLog().warn("Dead jars are not searched, project isn't compiled"
+                          + " or its classes cannot be read: "
+                          + Arrays.asList(classDirectories));
+            return Collections.EMPTY_SET;
+        }
+        for (Iterator iter = result.iterator(); iter.hasNext();) {
+            getLog().info("No class is used by " + Arrays.asList(classDirectories)
+                          + " from: " + iter.next());
+        }
+        return result;
+    }
+
     /** Methode which execute goal
      * @since 1.0
      * @version 1.2.2
      */
     public void execute() throws MojoExecutionException {
         getLog().debug("execute");
+        long start = System.currentTimeMillis();
         try {
             //      doDependencyResolution( executedProject, localRepo );
             IdeDependency[] deps = doDependencyResolution(executedProject);
@@ -1205,8 +2186,33 @@ public class JdeeMojo extends AbstractMojo {
 
             resolveSourceAndJavadocArtifacts(deps);
 
-            createJdeePrj(sourceDirectory, buildDirectory, deps, false);
-            createJdeePrj(testSourceDirectory, testBuildDirectory, deps, true);
+            Set mainDeadJars = Collections.EMPTY_SET;
+            Set testDeadJars = Collections.EMPTY_SET;
+            if (classpathAnalysis != null && !"".equals(classpathAnalysis)) {
+                ClasspathAnalyzer analyzer = analyzeClasspath(deps);
+                mainDeadJars = deadJars(analyzer, new File[] {buildDirectory});
+                testDeadJars = deadJars(analyzer, new File[] {buildDirectory, testBuildDirectory});
+                if ("report".equals(classpathAnalysis)) {
+                    mainDeadJars = Collections.EMPTY_SET;
+                    testDeadJars = Collections.EMPTY_SET;
+                }
+            }
+
+            Map data = new LinkedHashMap();
+            collectClasspaths(deps, false, mainDeadJars, data);
+            collectClasspaths(deps, true, testDeadJars, data);
+            collectDocsets(deps, data);
+            File dataFile = new File(executedProject.getBasedir(), DEPS_DATA_FILE);
+            String stamp = writeDependencyData(dataFile, data);
+
+            createJdeePrj(sourceDirectory, buildDirectory, false, dataFile, data, stamp);
+            createJdeePrj(testSourceDirectory, testBuildDirectory, true, dataFile, data, stamp);
+            startJavadocWorker();
+            try {
+                CacheRegistry.register(new File(cachePath()), executedProject.getBasedir(), cacheEntries);
+            } catch (IOException e) {
+                getLog().warn("Cannot register project in cache: " + e.getMessage());
+            }
 
             if (isMakeXref()) {
                 File[] sourceDirs = new File[] {sourceDirectory, testSourceDirectory};
@@ -1218,6 +2224,103 @@ public class JdeeMojo extends AbstractMojo {
         } catch (Exception e) {
             throw new MojoExecutionException("Unable to build project dependencies.",
                                              e);
+        } finally {
+            closeResources();
+            BenchmarkMetrics.record("jdee", start);
+        }
+    }
+
+    /** Methode which extract sources and javadocs (and generate missing
+     * javadocs) of dependencies to cache without writing any project file.
+     * Entries are registered in cache under given owner.
+     * @param deps dependencies, all are processed as first level
+     * @param parallelism maximal count of parallel resolutions and
+     *        extractions
+     * @param owner file (pom.xml directory or list of dependencies) under
+     *        which entries are registered
+     * @return count of extracted or generated attachments
+     * @since 1.3
+     */
+    protected int prefetchAttachments(IdeDependency[] deps, int parallelism, File owner) {
+        try {
+            ioExecutor = new IoExecutor(ioThreads > 0 ? ioThreads
+                                        : 4 * Runtime.getRuntime().availableProcessors(), parallelism);
+            resolveSourceAndJavadocArtifacts(deps);
+            List tasks = new ArrayList();
+            for (int i = 0; i < deps.length; i++) {
+                final IdeDependency dependency = deps[i];
+                tasks.add(new Callable() {
+                        public Object call() {
+                            return attachmentPaths(dependency);
+                        }
+                    });
+            }
+            int result = 0;
+            for (Iterator iter = runIo(tasks).iterator(); iter.hasNext();) {
+                String[] paths = (String[]) iter.next();
+                for (int i = 0; paths != null && i < paths.length; i++) {
+                    if (paths[i] != null) {
+                        result++;
+                    }
+                }
+            }
+            startJavadocWorker();
+            try {
+                CacheRegistry.register(new File(cachePath()), owner, cacheEntries);
+            } catch (IOException e) {
+                getLog().warn("Cannot register prefetched entries in cache: " + e.getMessage());
+            }
+            return result;
+        } finally {
+            closeResources();
+        }
+    }
+
+    /** Methode which resolve and extract sources of dependencies in
+     * parallel.  Javadoc isn't generated.
+     * @param deps dependencies
+     * @return list of paths to extracted sources (String)
+     * @since 1.3
+     */
+    protected List extractSources(IdeDependency[] deps) {
+        try {
+            ioExecutor = new IoExecutor(ioThreads > 0 ? ioThreads
+                                        : 4 * Runtime.getRuntime().availableProcessors());
+            resolveSourceAndJavadocArtifacts(deps);
+            List tasks = new ArrayList();
+            for (int i = 0; i < deps.length; i++) {
+                final IdeDependency dependency = deps[i];
+                tasks.add(new Callable() {
+                        public Object call() {
+                            return classifierPath(dependency, "sources");
+                        }
+                    });
+            }
+            List result = new ArrayList();
+            for (Iterator iter = runIo(tasks).iterator(); iter.hasNext();) {
+                String path = (String) iter.next();
+                if (path != null && !"".equals(path)) {
+                    result.add(path);
+                }
+            }
+            return result;
+        } finally {
+            closeResources();
+        }
+    }
+
+    /** Methode which close extractors and executor.
+     * @since 1.3
+     */
+    private void closeResources() {
+        for (Iterator iter = zipExtractors.iterator(); iter.hasNext();) {
+            ((ZipExtractor) iter.next()).close();
+        }
+        zipExtractors.clear();
+        blobStore = null;
+        if (ioExecutor != null) {
+            ioExecutor.close();
+            ioExecutor = null;
         }
     }
 
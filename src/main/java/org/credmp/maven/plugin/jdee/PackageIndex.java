@@ -0,0 +1,162 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** Map of java packages to source roots.
+ * <p>Packages of extracted source attachments are remembered in file
+ * <code>.package-index</code> in the root, which is made again only when the
+ * root is changed (extraction change modification time of root).  Packages
+ * of project source directories are searched every time.  Merged map is
+ * written as lisp list <code>(("package" "root" ...) ...)</code>, so the
+ * source of class is found by one lookup.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class PackageIndex {
+
+  /** Name of list of packages in source root */
+  public static final String ROOT_FILE = ".package-index";
+
+  /** Methode which return packages of source root
+   * @param root source root
+   * @param cache true if list of packages is saved in root
+   * @return sorted set of package names (default package is empty string)
+   * @throws IOException if list cannot be read or written
+   */
+  public static Set rootPackages(final File root, final boolean cache) throws IOException {
+    File file = new File(root, ROOT_FILE);
+    if (cache && file.isFile() && file.lastModified() >= root.lastModified()) {
+      Set result = new TreeSet();
+      BufferedReader in = new BufferedReader(new FileReader(file));
+      try {
+        String line;
+        while ((line = in.readLine()) != null) {
+          result.add(line);
+        }
+      } finally {
+        in.close();
+      }
+      return result;
+    }
+
+    Set result = new TreeSet();
+    collectPackages(root, "", result);
+    if (cache && root.isDirectory()) {
+      PrintWriter out = new PrintWriter(new FileWriter(file));
+      try {
+        for (Iterator iter = result.iterator(); iter.hasNext();) {
+          out.println(iter.next());
+        }
+      } finally {
+        out.close();
+      }
+    }
+    return result;
+  }
+
+  /** Methode which write map of packages to source roots.  Map is written
+   * only if it is changed.
+   * @param mapFile written file
+   * @param projectRoots source directories of project (never cached)
+   * @param roots extracted source attachments
+   * @return count of packages
+   * @throws IOException if map cannot be written
+   */
+  public static int write(final File mapFile, final List projectRoots, final List roots) throws IOException {
+    Map packages = new TreeMap();
+    List all = new ArrayList(projectRoots);
+    all.addAll(roots);
+    for (int i = 0; i < all.size(); i++) {
+      File root = (File) all.get(i);
+      for (Iterator iter = rootPackages(root, i >= projectRoots.size()).iterator(); iter.hasNext();) {
+        Object name = iter.next();
+        List packageRoots = (List) packages.get(name);
+        if (packageRoots == null) {
+          packageRoots = new ArrayList(1);
+          packages.put(name, packageRoots);
+        }
+        packageRoots.add(root.getAbsolutePath());
+      }
+    }
+
+    StringBuffer content = new StringBuffer();
+    content.append(";; Generated by maven-jdee-plugin\n");
+    content.append(";; Don't make any changes in this file.\n");
+    content.append("(");
+    for (Iterator iter = packages.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      content.append("(\"");
+      content.append(entry.getKey());
+      content.append("\"");
+      for (Iterator rootIter = ((List) entry.getValue()).iterator(); rootIter.hasNext();) {
+        content.append(" \"");
+        content.append(rootIter.next());
+        content.append("\"");
+      }
+      content.append(")");
+      if (iter.hasNext()) {
+        content.append("\n ");
+      }
+    }
+    content.append(")\n");
+    String text = content.toString();
+    if (mapFile.isFile() && mapFile.length() == text.getBytes().length
+        && text.equals(FileUtil.readFile(mapFile))) {
+      return packages.size();
+    }
+    FileWriter out = new FileWriter(mapFile);
+    try {
+      out.write(text);
+    } finally {
+      out.close();
+    }
+    return packages.size();
+  }
+
+  /** Recursive search of packages with java files
+   * @param dir searched directory
+   * @param name package of directory
+   * @param result set of packages
+   */
+  private static void collectPackages(final File dir, final String name, final Set result) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (int i = 0; i < files.length; i++) {
+      String fileName = files[i].getName();
+      if (files[i].isDirectory()) {
+        if (fileName.indexOf('.') < 0 && !"META-INF".equals(fileName)) {
+          collectPackages(files[i], name.length() == 0 ? fileName : name + "." + fileName, result);
+        }
+      } else if (fileName.endsWith(".java")) {
+        result.add(name);
+      }
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.StringTokenizer;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/** Writer of pathing jars.
+ * <p>Pathing jar contains only manifest with Class-Path attribute, so one
+ * short path on command line represent whole classpath.  URLs in Class-Path
+ * are relative to directory of pathing jar, so the jar stays valid when the
+ * project (with local repository in it) is moved.  Only file on other root
+ * (e.g. other Windows drive) is written as absolute URL.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class PathingJar {
+
+  /** Methode which write pathing jar if its Class-Path differs from given
+   * files.
+   * @param jar pathing jar
+   * @param files files in Class-Path (directories are written with ending
+   *        slash)
+   * @return true if jar was written, false if it was up to date
+   * @throws IOException if jar cannot be written
+   */
+  public static boolean write(final File jar, final List files) throws IOException {
+    File parent = jar.getAbsoluteFile().getParentFile();
+    String classpath = classPath(parent, files);
+    if (classpath.equals(readClassPath(jar))) {
+      return false;
+    }
+
+    Manifest manifest = new Manifest();
+    Attributes attributes = manifest.getMainAttributes();
+    attributes.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+    attributes.putValue("Created-By", "maven-emacs-plugin");
+    attributes.put(Attributes.Name.CLASS_PATH, classpath);
+
+    parent.mkdirs();
+    File temporary = File.createTempFile(jar.getName(), ".tmp", parent);
+    try {
+      JarOutputStream out = new JarOutputStream(new FileOutputStream(temporary), manifest);
+      out.close();
+      jar.delete();
+      if (!temporary.renameTo(jar)) {
+        throw new IOException("Cannot rename " + temporary + " to " + jar);
+      }
+    } finally {
+      temporary.delete();
+    }
+    return true;
+  }
+
+  /** Methode which return value of Class-Path attribute for files
+   * @param directory directory of pathing jar
+   * @param files files in classpath
+   * @return space separated URLs
+   */
+  static String classPath(final File directory, final List files) {
+    StringBuffer result = new StringBuffer();
+    for (Iterator iter = files.iterator(); iter.hasNext();) {
+      File file = ((File) iter.next()).getAbsoluteFile();
+      if (result.length() > 0) {
+        result.append(' ');
+      }
+      String url = relativeUrl(directory, file);
+      if (file.isDirectory() && !url.endsWith("/")) {
+        url += "/";
+      }
+      result.append(url);
+    }
+    return result.toString();
+  }
+
+  /** Methode which return URL of file relative to directory
+   * @param directory absolute directory
+   * @param file absolute file
+   * @return relative URL or absolute URL if file is on other root
+   */
+  static String relativeUrl(final File directory, final File file) {
+    String[] base = segments(directory.toURI().getPath());
+    String[] target = segments(file.toURI().getPath());
+    if (target.length == 0 || base.length > 0 && !base[0].equals(target[0])
+        && (base[0].endsWith(":") || target[0].endsWith(":"))) {
+      // other drive
+      return file.toURI().toString();
+    }
+    int common = 0;
+    while (common < base.length && common < target.length - 1
+           && base[common].equals(target[common])) {
+      common++;
+    }
+    StringBuffer path = new StringBuffer();
+    for (int i = common; i < base.length; i++) {
+      path.append("../");
+    }
+    for (int i = common; i < target.length; i++) {
+      if (i > common) {
+        path.append('/');
+      }
+      path.append(target[i]);
+    }
+    try {
+      return new URI(null, null, path.toString(), null).getRawPath();
+    } catch (URISyntaxException e) {
+      return file.toURI().toString();
+    }
+  }
+
+  /** Methode which split path to its not empty segments
+   * @param path path with slashes
+   * @return segments
+   */
+  private static String[] segments(final String path) {
+    List result = new ArrayList();
+    for (StringTokenizer tokens = new StringTokenizer(path, "/"); tokens.hasMoreTokens();) {
+      result.add(tokens.nextToken());
+    }
+    return (String[]) result.toArray(new String[result.size()]);
+  }
+
+  /** Methode which read Class-Path of existing jar
+   * @param jar pathing jar
+   * @return value of Class-Path or null
+   */
+  private static String readClassPath(final File jar) {
+    if (!jar.isFile()) {
+      return null;
+    }
+    try {
+      JarFile file = new JarFile(jar);
+      try {
+        Manifest manifest = file.getManifest();
+        return manifest == null ? null
+          : manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+      } finally {
+        file.close();
+      }
+    } catch (IOException e) {
+      return null;
+    }
+  }
+}
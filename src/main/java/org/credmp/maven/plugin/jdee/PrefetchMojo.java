@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.BenchmarkMetrics;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Goal which warm the cache: it resolves sources and javadocs of
+ * dependencies, extracts them and generates missing javadocs to
+ * <code>globalCachePath</code> without writing prj.el or any other file of
+ * project.
+ * <p>Dependencies are first level dependencies of all projects of reactor,
+ * or dependencies listed in <code>gavFile</code> (one
+ * <code>groupId:artifactId:version</code> on line, lines beginning with #
+ * are comments).  All parameters of goal jdee (downloadSources,
+ * downloadJavadocs, generateMissingJavadoc, deduplicateCache ...) are used
+ * too.</p>
+ *
+ * @goal prefetch
+ * @aggregator
+ * @requiresProject false
+ */
+public class PrefetchMojo extends JdeeMojo {
+
+  /**
+   * Projects of reactor.
+   *
+   * @parameter expression="${reactorProjects}"
+   * @readonly
+   */
+  private List reactorProjects;
+
+  /**
+   * File with list of dependencies (groupId:artifactId:version).  If it is
+   * set then projects of reactor are not used.
+   *
+   * @parameter expression="${gavFile}"
+   */
+  private File gavFile;
+
+  /**
+   * Maximal count of parallel extractions and javadoc generations.
+   * Attachments are resolved one by one (resolver of maven isn't thread
+   * safe), so this doesn't bound resolutions.
+   *
+   * @parameter expression="${prefetchParallelism}" default-value="8"
+   */
+  private int prefetchParallelism;
+
+  /** Methode which execute goal
+   * @throws MojoExecutionException if dependencies cannot be read
+   */
+  public void execute() throws MojoExecutionException {
+    long start = System.currentTimeMillis();
+    Map deps = new LinkedHashMap();
+    File owner;
+    if (gavFile != null) {
+      readGavFile(deps);
+      owner = gavFile;
+    } else {
+      List projects = reactorProjects != null ? reactorProjects : Collections.singletonList(executedProject);
+      for (Iterator iter = projects.iterator(); iter.hasNext();) {
+        MavenProject project = (MavenProject) iter.next();
+        try {
+          IdeDependency[] projectDeps = doDependencyResolution(project);
+          for (int i = 0; i < projectDeps.length; i++) {
+            if (projectDeps[i].isFirstLevel() && !projectDeps[i].isSystemScoped()) {
+              deps.put(projectDeps[i].getGroupId() + ":" + projectDeps[i].getArtifactId()
+                       + ":" + projectDeps[i].getVersion(), projectDeps[i]);
+            }
+          }
+        } catch (Exception e) {
+          getLog().error("Cannot resolve dependencies of " + project.getId() + ": " + e.getMessage());
+        }
+      }
+      owner = executedProject.getBasedir();
+    }
+
+    getLog().info("Prefetch attachments of " + deps.size() + " dependencies");
+    IdeDependency[] array = (IdeDependency[]) deps.values().toArray(new IdeDependency[deps.size()]);
+    int count = prefetchAttachments(array, prefetchParallelism, owner);
+    getLog().info("Cache contains " + count + " attachments of " + deps.size() + " dependencies");
+    BenchmarkMetrics.record("prefetch", start);
+  }
+
+  /** Methode which read dependencies from gavFile
+   * @param deps map of dependencies (key is groupId:artifactId:version)
+   * @throws MojoExecutionException if file cannot be read or it contains
+   *         wrong line
+   */
+  private void readGavFile(final Map deps) throws MojoExecutionException {
+    try {
+      BufferedReader in = new BufferedReader(new FileReader(gavFile));
+      try {
+        String line;
+        while ((line = in.readLine()) != null) {
+          line = line.trim();
+          if (line.length() == 0 || line.startsWith("#")) {
+            continue;
+          }
+          String[] gav = line.split(":");
+          if (gav.length != 3) {
+            throw new MojoExecutionException("Line of " + gavFile
+                                             + " must be groupId:artifactId:version: " + line);
+          }
+          deps.put(line, new IdeDependency(gav[0], gav[1], gav[2], null, true, false, false, false,
+                                           true, null, "jar", 1));
+        }
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      throw new MojoExecutionException("Cannot read " + gavFile, e);
+    }
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.LineServer;
+import org.apache.maven.plugin.jdee.support.RepositoryServer;
+import org.apache.maven.plugin.jdee.support.SyntheticRepository;
+
+/**
+ * Goal which generate synthetic maven repository and serve it by local
+ * HTTP server with simulated latency and failures.
+ * <p>It is used for offline and repeatable benchmarks of dependency
+ * resolution.  Repository is generated to <code>directory/repository</code>
+ * and project which depends on it to <code>directory/project</code>.  Run
+ * <code>mvn emacs:jdee -Dmaven.repo.local=EMPTY_DIR</code> in the project
+ * while the server is running.  Commands are read from standard input (see
+ * {@link LineServer}):</p>
+ * <ul>
+ *   <li><code>stats</code> - write counts of requests, failures, missing
+ *       files and sent bytes</li>
+ *   <li><code>reset</code> - reset statistics</li>
+ *   <li><code>latency MILLIS [JITTER]</code> - change latency</li>
+ *   <li><code>failure-rate RATE</code> - change probability of failure</li>
+ *   <li><code>quit</code> - stop the server</li>
+ * </ul>
+ * <p>It is goal and not test because the measured client is real maven
+ * resolving from another process (another <code>mvn</code> started by user
+ * or by build host), which unit tests cannot fork.  Generator and server
+ * are in main sources anyway, {@link BenchmarkMojo} uses them.</p>
+ *
+ * @goal repository-simulator
+ * @requiresProject false
+ */
+public class RepositorySimulatorMojo extends AbstractMojo {
+
+  /**
+   * Directory for generated repository and project.
+   *
+   * @parameter expression="${directory}" default-value="${basedir}/target/synthetic"
+   * @required
+   */
+  private File directory;
+
+  /**
+   * Count of generated artifacts.
+   *
+   * @parameter expression="${artifacts}" default-value="500"
+   */
+  private int artifacts;
+
+  /**
+   * Count of dependencies of each artifact.
+   *
+   * @parameter expression="${dependencies}" default-value="5"
+   */
+  private int dependencies;
+
+  /**
+   * Count of first level dependencies of generated project.
+   *
+   * @parameter expression="${projectDependencies}" default-value="50"
+   */
+  private int projectDependencies;
+
+  /**
+   * Probability (0 - 1) of missing sources jar.
+   *
+   * @parameter expression="${missingSources}" default-value="0.2"
+   */
+  private double missingSources;
+
+  /**
+   * Probability (0 - 1) of missing javadoc jar.
+   *
+   * @parameter expression="${missingJavadocs}" default-value="0.5"
+   */
+  private double missingJavadocs;
+
+  /**
+   * Latency of every request in milliseconds.
+   *
+   * @parameter expression="${latency}" default-value="50"
+   */
+  private long latency;
+
+  /**
+   * Maximal random addition to latency in milliseconds.
+   *
+   * @parameter expression="${jitter}" default-value="0"
+   */
+  private long jitter;
+
+  /**
+   * Probability (0 - 1) of failed request (HTTP status 503).
+   *
+   * @parameter expression="${failureRate}" default-value="0"
+   */
+  private double failureRate;
+
+  /**
+   * Port of server, 0 for any free port.
+   *
+   * @parameter expression="${port}" default-value="0"
+   */
+  private int port;
+
+  /**
+   * Seed of random numbers, the same seed give the same repository.
+   *
+   * @parameter expression="${seed}" default-value="1"
+   */
+  private long seed;
+
+  /**
+   * Only generate repository and project, don't run server.
+   *
+   * @parameter expression="${generateOnly}"
+   */
+  private boolean generateOnly;
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if repository cannot be generated or
+   *         server fails
+   */
+  public void execute() throws MojoExecutionException {
+    File repository = new File(directory, "repository");
+    File project = new File(directory, "project");
+    RepositoryServer server = new RepositoryServer(repository, port, seed);
+    try {
+      if (!repository.isDirectory()) {
+        SyntheticRepository generator = new SyntheticRepository(repository, seed);
+        generator.setArtifacts(artifacts);
+        generator.setDependencies(dependencies);
+        generator.setMissingSources(missingSources);
+        generator.setMissingJavadocs(missingJavadocs);
+        long start = System.currentTimeMillis();
+        int files = generator.generate();
+        getLog().info("Synthetic repository generated: " + repository + " (" + files + " files, "
+                      + (System.currentTimeMillis() - start) + " ms)");
+      } else {
+        getLog().info("Synthetic repository exists: " + repository);
+      }
+      if (generateOnly) {
+        writeProject(project, repository.toURI().toString());
+        return;
+      }
+
+      server.setLatency(latency);
+      server.setJitter(jitter);
+      server.setFailureRate(failureRate);
+      server.start();
+      writeProject(project, server.getUrl());
+      getLog().info("Synthetic repository served on " + server.getUrl());
+
+      final RepositoryServer running = server;
+      new LineServer(System.in, System.out, new LineServer.Handler() {
+          public void handle(final String command, final String[] arguments,
+                             final PrintStream out) throws Exception {
+            if ("stats".equals(command)) {
+              out.println(running.getStatistics());
+            } else if ("reset".equals(command)) {
+              running.resetStatistics();
+            } else if ("latency".equals(command) && arguments.length > 0) {
+              running.setLatency(Long.parseLong(arguments[0]));
+              if (arguments.length > 1) {
+                running.setJitter(Long.parseLong(arguments[1]));
+              }
+            } else if ("failure-rate".equals(command) && arguments.length > 0) {
+              running.setFailureRate(Double.parseDouble(arguments[0]));
+            } else {
+              throw new IllegalArgumentException("Unknown command: " + command);
+            }
+          }
+        }).run();
+      getLog().info(server.getStatistics());
+    } catch (IOException e) {
+      throw new MojoExecutionException("Repository simulator failed", e);
+    } finally {
+      server.stop();
+    }
+  }
+
+  /** Methode which write project which depends on synthetic repository
+   * @param project directory of project
+   * @param url URL of repository
+   * @throws IOException if project cannot be written
+   */
+  private void writeProject(final File project, final String url) throws IOException {
+    SyntheticRepository generator = new SyntheticRepository(null, seed);
+    generator.setArtifacts(artifacts);
+    generator.writeProject(project, "synthetic-project", url, projectDependencies, null);
+    getLog().info("Synthetic project written: " + project);
+  }
+}
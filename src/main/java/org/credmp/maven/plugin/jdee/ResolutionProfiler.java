@@ -0,0 +1,311 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.ResolutionListener;
+import org.apache.maven.artifact.versioning.VersionRange;
+
+/** Listener of dependency collection which record collection tree with
+ * times.
+ * <p>Time between two events of collector is charged to the artifact which
+ * is processed.  Time before <code>testArtifact</code> is charged to the
+ * tested artifact, because collector read its metadata (pom) just before
+ * it.  Omitted, conflicting, managed and rescoped artifacts are marked in
+ * the tree.</p>
+ * <p>Tree is written as text with inclusive and self times and as folded
+ * stacks (<code>parent;child;... MICROSECONDS</code>) which can be drawn by
+ * flamegraph.pl.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class ResolutionProfiler implements ResolutionListener {
+
+  /** Root of tree (it has no artifact) */
+  private final Node root = new Node(null, null);
+  /** Nodes which children are processed */
+  private final LinkedList stack = new LinkedList();
+  /** Last tested node */
+  private Node tested;
+  /** Time of last event */
+  private long last = System.nanoTime();
+  /** Count of conflicts */
+  private int conflicts;
+
+  /** Creates a new <code>ResolutionProfiler</code> instance. */
+  public ResolutionProfiler() {
+    super();
+    stack.addLast(root);
+  }
+
+  /** Methode which charge time since last event to node
+   * @param node node which spent the time
+   */
+  private void charge(final Node node) {
+    long now = System.nanoTime();
+    node.self += now - last;
+    last = now;
+  }
+
+  /** Methode which return processed node
+   * @return node on top of stack
+   */
+  private Node current() {
+    return (Node) stack.getLast();
+  }
+
+  public void testArtifact(final Artifact artifact) {
+    tested = new Node(current(), artifact);
+    charge(tested);
+  }
+
+  public void startProcessChildren(final Artifact artifact) {
+    charge(current());
+    if (tested != null && tested.artifact == artifact) {
+      stack.addLast(tested);
+    } else {
+      // unknown node, e.g. other collector
+      Node node = new Node(current(), artifact);
+      stack.addLast(node);
+    }
+  }
+
+  public void endProcessChildren(final Artifact artifact) {
+    charge(current());
+    if (stack.size() > 1) {
+      stack.removeLast();
+    }
+  }
+
+  public void includeArtifact(final Artifact artifact) {
+    charge(tested != null ? tested : current());
+  }
+
+  public void omitForNearer(final Artifact omitted, final Artifact kept) {
+    charge(tested != null ? tested : current());
+    conflicts++;
+    note(omitted, "omitted for nearer " + kept.getVersion());
+  }
+
+  public void updateScope(final Artifact artifact, final String scope) {
+    charge(current());
+    note(artifact, "scope updated to " + scope);
+  }
+
+  public void manageArtifact(final Artifact artifact, final Artifact replacement) {
+    charge(current());
+    note(artifact, "managed to " + replacement.getVersion());
+  }
+
+  public void omitForCycle(final Artifact artifact) {
+    charge(current());
+    note(artifact, "omitted for cycle");
+  }
+
+  public void updateScopeCurrentPom(final Artifact artifact, final String scope) {
+    charge(current());
+    note(artifact, "scope " + scope + " from current pom");
+  }
+
+  public void selectVersionFromRange(final Artifact artifact) {
+    charge(current());
+    note(artifact, "version selected from range");
+  }
+
+  public void restrictRange(final Artifact artifact, final Artifact replacement,
+                            final VersionRange newRange) {
+    charge(current());
+    conflicts++;
+    note(artifact, "range restricted to " + newRange);
+  }
+
+  /** Methode which add note to tested node (or to node of artifact on stack)
+   * @param artifact artifact of event
+   * @param note note
+   */
+  private void note(final Artifact artifact, final String note) {
+    Node node = tested;
+    if (node == null || !sameArtifact(node.artifact, artifact)) {
+      node = null;
+      for (Iterator iter = stack.iterator(); iter.hasNext();) {
+        Node n = (Node) iter.next();
+        if (n.artifact != null && sameArtifact(n.artifact, artifact)) {
+          node = n;
+        }
+      }
+    }
+    if (node == null) {
+      node = tested != null ? tested : current();
+    }
+    node.notes.add(note);
+  }
+
+  /** Methode which return true if artifacts have the same group and
+   * artifact id
+   * @param a first artifact
+   * @param b second artifact
+   * @return true if it is the same artifact (in any version)
+   */
+  private static boolean sameArtifact(final Artifact a, final Artifact b) {
+    return a.getGroupId().equals(b.getGroupId()) && a.getArtifactId().equals(b.getArtifactId());
+  }
+
+  /** Get the <code>Conflicts</code> value.
+   * @return count of version conflicts
+   */
+  public final int getConflicts() {
+    return conflicts;
+  }
+
+  /** Methode which return total recorded time
+   * @return time in milliseconds
+   */
+  public long getTotalMillis() {
+    return root.total() / 1000000;
+  }
+
+  /** Methode which write tree as text
+   * @param file output file
+   * @throws IOException if file cannot be written
+   */
+  public void writeTree(final File file) throws IOException {
+    PrintWriter out = new PrintWriter(new FileWriter(file));
+    try {
+      out.println("# total ms / self ms  artifact  [notes]");
+      for (Iterator iter = root.children.iterator(); iter.hasNext();) {
+        writeTree(out, (Node) iter.next(), 0);
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /** Recursive write of tree
+   * @param out output
+   * @param node written node
+   * @param depth depth of node
+   */
+  private void writeTree(final PrintWriter out, final Node node, final int depth) {
+    StringBuffer line = new StringBuffer();
+    line.append(millis(node.total()));
+    line.append(" / ");
+    line.append(millis(node.self));
+    line.append("  ");
+    for (int i = 0; i < depth; i++) {
+      line.append("  ");
+    }
+    line.append(node.label());
+    if (!node.notes.isEmpty()) {
+      line.append("  ");
+      line.append(node.notes);
+    }
+    out.println(line.toString());
+    for (Iterator iter = node.children.iterator(); iter.hasNext();) {
+      writeTree(out, (Node) iter.next(), depth + 1);
+    }
+  }
+
+  /** Methode which write folded stacks for flame graph
+   * @param file output file
+   * @throws IOException if file cannot be written
+   */
+  public void writeFolded(final File file) throws IOException {
+    PrintWriter out = new PrintWriter(new FileWriter(file));
+    try {
+      for (Iterator iter = root.children.iterator(); iter.hasNext();) {
+        writeFolded(out, (Node) iter.next(), "");
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /** Recursive write of folded stacks
+   * @param out output
+   * @param node written node
+   * @param prefix stack of parents
+   */
+  private void writeFolded(final PrintWriter out, final Node node, final String prefix) {
+    String stackName = prefix + node.label().replace(' ', '_').replace(';', '_');
+    long micros = node.self / 1000;
+    if (micros > 0) {
+      out.println(stackName + " " + micros);
+    }
+    for (Iterator iter = node.children.iterator(); iter.hasNext();) {
+      writeFolded(out, (Node) iter.next(), stackName + ";");
+    }
+  }
+
+  /** Methode which format nanoseconds as milliseconds
+   * @param nanos time in nanoseconds
+   * @return formated time
+   */
+  private static String millis(final long nanos) {
+    long tenths = nanos / 100000;
+    return (tenths / 10) + "." + (tenths % 10);
+  }
+
+  /** Node of collection tree */
+  private static class Node {
+    /** Artifact of node */
+    private final Artifact artifact;
+    /** Children of node */
+    private final List children = new ArrayList();
+    /** Notes (conflicts, scope changes) */
+    private final List notes = new ArrayList();
+    /** Self time in nanoseconds */
+    private long self;
+
+    /** Creates a new <code>Node</code> instance.
+     * @param parent parent node or null
+     * @param artifact artifact of node
+     */
+    Node(final Node parent, final Artifact artifact) {
+      this.artifact = artifact;
+      if (parent != null) {
+        parent.children.add(this);
+      }
+    }
+
+    /** Methode which return label of node
+     * @return groupId:artifactId:version:scope
+     */
+    String label() {
+      if (artifact == null) {
+        return "root";
+      }
+      return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" + artifact.getVersion()
+        + (artifact.getScope() != null ? ":" + artifact.getScope() : "");
+    }
+
+    /** Methode which return inclusive time
+     * @return time of node and all children in nanoseconds
+     */
+    long total() {
+      long result = self;
+      for (Iterator iter = children.iterator(); iter.hasNext();) {
+        result += ((Node) iter.next()).total();
+      }
+      return result;
+    }
+  }
+}
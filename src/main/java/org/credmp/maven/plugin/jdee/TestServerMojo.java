@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.jdee.support.LineServer;
+import org.apache.maven.plugin.jdee.support.TestRunner;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Goal which run test server for Emacs.
+ * <p>JVM with test classpath (testBuildDirectory, buildDirectory and all
+ * resolved dependencies) stay warm and tests are run without start of
+ * maven and surefire.  Classes of project are loaded by new class loader
+ * for every run, so changed classes are used (see {@link TestRunner}).
+ * Commands are read from standard input (see {@link LineServer}):</p>
+ * <ul>
+ *   <li><code>test CLASS</code> - run all tests of class</li>
+ *   <li><code>test CLASS#METHOD</code> or <code>test CLASS METHOD</code> -
+ *       run one test method</li>
+ *   <li><code>rerun</code> - run the last tests again</li>
+ *   <li><code>quit</code> - stop the server</li>
+ * </ul>
+ * <p>Failures are written as line <code>FAILED TEST</code> followed by
+ * stack trace, the last line of answer is
+ * <code>;; tests NAME: run R, failures F, ignored I, time T ms</code>.</p>
+ *
+ * @goal test-server
+ * @requiresProject true
+ * @requiresDependencyResolution test
+ */
+public class TestServerMojo extends AbstractMojo {
+
+  /**
+   * The Maven Project.
+   *
+   * @parameter expression="${project}"
+   * @required
+   * @readonly
+   */
+  protected MavenProject executedProject;
+
+  /**
+   * Build directory
+   *
+   * @parameter expression="${project.build.outputDirectory}"
+   * @required
+   */
+  private File buildDirectory;
+
+  /**
+   * Test build directory
+   *
+   * @parameter expression="${project.build.testOutputDirectory}"
+   * @required
+   */
+  private File testBuildDirectory;
+
+  /** Runner of tests */
+  private TestRunner runner;
+  /** Arguments of last test command */
+  private String[] last;
+
+  /** Methode which execute goal.
+   * @throws MojoExecutionException if server fails
+   */
+  public void execute() throws MojoExecutionException {
+    List dependencies = new ArrayList();
+    for (Iterator iter = executedProject.getArtifacts().iterator(); iter.hasNext();) {
+      Artifact artifact = (Artifact) iter.next();
+      if (artifact.getFile() != null && artifact.getArtifactHandler().isAddedToClasspath()) {
+        dependencies.add(artifact.getFile());
+      }
+    }
+    try {
+      runner = new TestRunner(new File[] {testBuildDirectory, buildDirectory}, dependencies);
+      getLog().info("Test server is ready, classpath has " + (dependencies.size() + 2) + " entries");
+      new LineServer(System.in, System.out, new LineServer.Handler() {
+          public void handle(final String command, final String[] arguments,
+                             final PrintStream out) throws Exception {
+            if ("test".equals(command)) {
+              test(arguments, out);
+            } else if ("rerun".equals(command)) {
+              if (last == null) {
+                throw new IllegalStateException("No test was run");
+              }
+              test(last, out);
+            } else {
+              throw new IllegalArgumentException("Unknown command: " + command);
+            }
+          }
+        }).run();
+    } catch (IOException e) {
+      throw new MojoExecutionException("Test server failed", e);
+    }
+  }
+
+  /** Methode which run tests
+   * @param arguments CLASS, CLASS#METHOD or CLASS METHOD
+   * @param out output for results
+   * @throws Exception if tests cannot be run
+   */
+  private void test(final String[] arguments, final PrintStream out) throws Exception {
+    if (arguments.length == 0 || arguments.length > 2) {
+      throw new IllegalArgumentException("Usage: test CLASS[#METHOD]");
+    }
+    String className = arguments[0];
+    String methodName = arguments.length > 1 ? arguments[1] : null;
+    int hash = className.indexOf('#');
+    if (hash > 0) {
+      methodName = className.substring(hash + 1);
+      className = className.substring(0, hash);
+    }
+    last = arguments;
+    runner.run(className, methodName, out);
+  }
+}
@@ -0,0 +1,933 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+import org.apache.maven.plugin.logging.Log;
+
+/** Class which uncompress zip (jar) archives with NIO.
+ * <p>The central directory is read directly from the archive (ZIP64 records
+ * included), STORED entries are copied by channel transfer (and read back
+ * for check of CRC) and DEFLATED entries are inflated through reusable
+ * buffers.  Every file is preallocated from the size known from central
+ * directory.</p>
+ * <p>Method {@link #update(File, File)} keeps manifest of extracted entries
+ * (CRC-32 and size from central directory) in file {@link #MANIFEST} of
+ * target directory, so changed archive (e.g. new SNAPSHOT) rewrites only
+ * changed entries.</p>
+ * <p>Instance is not thread safe, but it can be reused for many archives.
+ * Call {@link #close()} when it isn't needed any more.</p>
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class ZipExtractor {
+
+  /** Signature of local file header */
+  private static final int LOCAL_HEADER = 0x04034b50;
+  /** Signature of central directory file header */
+  private static final int CENTRAL_HEADER = 0x02014b50;
+  /** Signature of end of central directory record */
+  private static final int END_HEADER = 0x06054b50;
+  /** Signature of ZIP64 end of central directory record */
+  private static final int ZIP64_END_HEADER = 0x06064b50;
+  /** Signature of ZIP64 end of central directory locator */
+  private static final int ZIP64_LOCATOR = 0x07064b50;
+  /** Length of end of central directory record without comment */
+  private static final int END_LENGTH = 22;
+  /** Length of ZIP64 end of central directory locator */
+  private static final int ZIP64_LOCATOR_LENGTH = 20;
+  /** Length of fixed part of local file header */
+  private static final int LOCAL_LENGTH = 30;
+  /** Length of fixed part of central directory file header */
+  private static final int CENTRAL_LENGTH = 46;
+  /** Id of ZIP64 extended information extra field */
+  private static final int ZIP64_EXTRA = 0x0001;
+  /** Value which mark 16 bit field stored in ZIP64 record */
+  private static final int ZIP64_MAGIC_SHORT = 0xFFFF;
+  /** Value which mark 32 bit field stored in ZIP64 record */
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+  /** Size of reusable buffers */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** Name of manifest of extracted entries in target directory */
+  public static final String MANIFEST = ".mep-extracted";
+
+  /** Compression method STORED */
+  public static final int STORED = 0;
+  /** Compression method DEFLATED */
+  public static final int DEFLATED = 8;
+
+  /** Log for reporting problems with single entries */
+  private final Log log;
+  /** Direct buffer for compressed data read from archive */
+  private final ByteBuffer inBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  /** Direct buffer for inflated data written to files */
+  private final ByteBuffer outBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  /** Inflater input array (Inflater works only with arrays) */
+  private final byte[] inflateIn = new byte[BUFFER_SIZE];
+  /** Inflater output array */
+  private final byte[] inflateOut = new byte[BUFFER_SIZE];
+  /** Reused inflater for raw deflate data */
+  private final Inflater inflater = new Inflater(true);
+  /** Reused checksum of inflated data */
+  private final CRC32 crc = new CRC32();
+  /** Store of shared files or null */
+  private BlobStore blobStore;
+
+  /** Creates a new <code>ZipExtractor</code> instance.
+   * @param log log for reporting problems with single entries
+   */
+  public ZipExtractor(final Log log) {
+    super();
+    this.log = log;
+  }
+
+  /** Get the <code>BlobStore</code> value.
+   * @return a value
+   */
+  public final BlobStore getBlobStore() {
+    return blobStore;
+  }
+
+  /** Set the <code>BlobStore</code> value.  If store is set then files with
+   * the same content are shared between all extracted archives.
+   * @param newBlobStore The new BlobStore value.
+   */
+  public final void setBlobStore(final BlobStore newBlobStore) {
+    this.blobStore = newBlobStore;
+  }
+
+  /** Methode which uncompress all entries of archive to directory.
+   * <p>Broken entries are reported to log and skipped, the other entries are
+   * extracted.</p>
+   * @param archive zip or jar file
+   * @param directory target directory
+   * @return count of extracted files
+   * @throws ZipException if central directory of archive cannot be read
+   * @throws IOException if archive cannot be read at all
+   */
+  public int extract(final File archive, final File directory) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(archive, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      List entries = readEntries(channel);
+      int count = 0;
+      for (Iterator iter = entries.iterator(); iter.hasNext();) {
+        Entry entry = (Entry) iter.next();
+        if (extractEntry(channel, entry, directory)) {
+          count++;
+        }
+      }
+      return count;
+    } finally {
+      raf.close();
+    }
+  }
+
+  /** Methode which uncompress archive to directory extracted from previous
+   * version of the archive.
+   * <p>CRC-32 and size of every entry in central directory are compared with
+   * manifest of previous extraction: only new and changed entries are
+   * written and files of entries which are not in archive any more are
+   * deleted.  Other files of directory (e.g. generated javadoc) are kept.
+   * If directory has no manifest, it is cleaned and whole archive is
+   * extracted.  Manifest is written again only if something was
+   * changed, otherwise only its modification time is set (see {@link
+   * #isStale(File, File)}).</p>
+   * @param archive zip or jar file
+   * @param directory target directory
+   * @return count of written and deleted files
+   * @throws ZipException if central directory of archive cannot be read
+   * @throws IOException if archive cannot be read at all or manifest cannot
+   *         be written
+   */
+  public int update(final File archive, final File directory) throws IOException {
+    File manifestFile = new File(directory, MANIFEST);
+    Map previous = readManifest(manifestFile);
+    if (previous == null) {
+      FileUtil.cleanDirectory(directory);
+      previous = new HashMap();
+    }
+    Map current = new HashMap();
+    int changed = 0;
+    RandomAccessFile raf = new RandomAccessFile(archive, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      for (Iterator iter = readEntries(channel).iterator(); iter.hasNext();) {
+        Entry entry = (Entry) iter.next();
+        if (MANIFEST.equals(entry.getName())) {
+          continue;
+        }
+        if (!entry.isDirectory()) {
+          long[] old = (long[]) previous.remove(entry.getName());
+          File file = entryFile(directory, entry);
+          if (old != null && old[0] == entry.getCrc() && old[1] == entry.getSize()
+              && file != null && file.isFile() && file.length() == entry.getSize()) {
+            current.put(entry.getName(), old);
+            continue;
+          }
+        }
+        if (extractEntry(channel, entry, directory)) {
+          current.put(entry.getName(), new long[] {entry.getCrc(), entry.getSize()});
+          changed++;
+        }
+      }
+    } finally {
+      raf.close();
+    }
+
+    // entries removed from archive
+    for (Iterator iter = previous.keySet().iterator(); iter.hasNext();) {
+      File file = new File(directory, (String) iter.next());
+      if (file.delete()) {
+        changed++;
+        for (File parent = file.getParentFile(); !directory.equals(parent) && parent.delete();) {
+          parent = parent.getParentFile();
+        }
+      }
+    }
+
+    if (changed > 0 || !manifestFile.isFile()) {
+      writeManifest(manifestFile, current);
+    } else {
+      manifestFile.setLastModified(System.currentTimeMillis());
+    }
+    return changed;
+  }
+
+  /** Methode which return true if directory must be updated from archive,
+   * i.e. archive is newer then directory and its manifest.
+   * @param directory target directory
+   * @param archive zip or jar file
+   * @return true if archive was changed after last extraction
+   */
+  public static boolean isStale(final File directory, final File archive) {
+    if (directory.lastModified() >= archive.lastModified()) {
+      return false;
+    }
+    File manifestFile = new File(directory, MANIFEST);
+    return !manifestFile.isFile() || manifestFile.lastModified() < archive.lastModified();
+  }
+
+  /** Methode which read manifest of extracted entries
+   * @param file manifest file
+   * @return map name of entry -&gt; long[] {crc, size} or null if manifest
+   *         doesn't exist or it is broken
+   */
+  private Map readManifest(final File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    Map result = new HashMap();
+    try {
+      BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      try {
+        String line;
+        while ((line = in.readLine()) != null) {
+          String[] parts = line.split(" ", 3);
+          if (parts.length != 3) {
+            return null;
+          }
+          result.put(parts[2], new long[] {Long.parseLong(parts[0], 16), Long.parseLong(parts[1])});
+        }
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      log.warn("Cannot read " + file + ", directory is extracted again: " + e.getMessage());
+      return null;
+    } catch (NumberFormatException e) {
+      log.warn("Broken " + file + ", directory is extracted again");
+      return null;
+    }
+    return result;
+  }
+
+  /** Methode which write manifest of extracted entries
+   * @param file manifest file
+   * @param entries map name of entry -&gt; long[] {crc, size}
+   * @throws IOException if manifest cannot be written
+   */
+  private static void writeManifest(final File file, final Map entries) throws IOException {
+    File tmp = new File(file.getPath() + ".tmp");
+    PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+    try {
+      for (Iterator iter = entries.entrySet().iterator(); iter.hasNext();) {
+        Map.Entry entry = (Map.Entry) iter.next();
+        long[] value = (long[]) entry.getValue();
+        out.println(Long.toHexString(value[0]) + " " + value[1] + " " + entry.getKey());
+      }
+    } finally {
+      out.close();
+    }
+    file.delete();
+    if (!tmp.renameTo(file)) {
+      throw new IOException("Cannot rename " + tmp + " to " + file);
+    }
+  }
+
+  /** Methode which uncompress one entry of opened archive.
+   * <p>Problems are reported to log, partly written file is deleted.</p>
+   * @param archive channel of archive
+   * @param entry entry from central directory of the archive
+   * @param directory target directory
+   * @return true if entry is regular file and was extracted
+   */
+  public boolean extractEntry(final FileChannel archive, final Entry entry,
+                              final File directory) {
+    File file = entryFile(directory, entry);
+    if (file == null) {
+      return false;
+    }
+    if (entry.isDirectory()) {
+      file.mkdirs();
+      return false;
+    }
+
+    boolean done = false;
+    try {
+      boolean share = blobStore != null && entry.getSize() > 0;
+      if (share && extractFromBlob(archive, entry, file)) {
+        done = true;
+        if (!isShared(file)) {
+          setTime(file, entry);
+        }
+      } else {
+        writeEntry(archive, entry, file);
+        done = true;
+        // time must be set before the file is shared, hard links have one
+        // modification time
+        setTime(file, entry);
+        if (share) {
+          blobStore.add(file, entry.getCrc(), entry.getSize());
+        }
+      }
+    } catch (IOException e) {
+      log.error("Cannot unzip entry in zip file: " + entry.getName()
+                + " message: " + e.getMessage());
+    } finally {
+      if (!done) {
+        file.delete();
+      }
+    }
+    return done;
+  }
+
+  /** Methode which set modification time of entry to extracted file
+   * @param file extracted file
+   * @param entry entry of archive
+   */
+  private static void setTime(final File file, final Entry entry) {
+    if (entry.getTime() != -1) {
+      file.setLastModified(entry.getTime());
+    }
+  }
+
+  /** Methode which return true if file is hard link to shared blob (or it
+   * can be and the count of links is unknown)
+   * @param file extracted file
+   * @return true if file is shared
+   */
+  private boolean isShared(final File file) {
+    int links = blobStore.linkCount(file);
+    return links > 1 || (links < 0 && blobStore.isLinkSupported());
+  }
+
+  /** Methode which return target file of entry or null if entry name try
+   * escape from target directory.
+   * @param directory target directory
+   * @param entry entry of archive
+   * @return target file or null
+   */
+  public File entryFile(final File directory, final Entry entry) {
+    String name = entry.getName().replace('\\', '/');
+    if (name.length() == 0 || name.startsWith("/") || name.indexOf(':') > -1
+        || name.equals("..") || name.startsWith("../") || name.endsWith("/..")
+        || name.indexOf("/../") > -1) {
+      log.error("Skip entry with unsafe name in zip file: " + entry.getName());
+      return null;
+    }
+    return new File(directory, name);
+  }
+
+  /** Methode which write content of regular entry to file
+   * @param archive channel of archive
+   * @param entry entry to write
+   * @param file target file
+   * @throws IOException if entry is malformed or file cannot be written
+   */
+  private void writeEntry(final FileChannel archive, final Entry entry, final File file)
+    throws IOException {
+    long start = dataOffset(archive, entry);
+
+    File parent = file.getParentFile();
+    if (parent != null && !parent.exists()) {
+      parent.mkdirs();
+    }
+    // never write through old file, it can be hard link to shared blob
+    file.delete();
+    RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      // preallocate, the file gets its final size before first write
+      raf.setLength(entry.getSize());
+      FileChannel out = raf.getChannel();
+      if (entry.getMethod() == STORED) {
+        copy(archive, start, entry, out);
+      } else {
+        inflate(archive, start, entry, out, null);
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  /** Methode which create file of entry from blob with the same content.
+   * @param archive channel of archive
+   * @param entry entry to extract
+   * @param file target file
+   * @return true if file was created from blob
+   * @throws IOException if entry is malformed
+   */
+  private boolean extractFromBlob(final FileChannel archive, final Entry entry, final File file)
+    throws IOException {
+    File blob = blobStore.blobFile(entry.getCrc(), entry.getSize());
+    if (!blob.isFile() || blob.length() != entry.getSize()) {
+      return false;
+    }
+    long start = dataOffset(archive, entry);
+    RandomAccessFile raf = new RandomAccessFile(blob, "r");
+    boolean same;
+    try {
+      // CRC and size are only a key, content must be really the same
+      if (entry.getMethod() == STORED) {
+        same = compare(archive, start, entry.getSize(), raf.getChannel());
+      } else {
+        same = inflate(archive, start, entry, null, raf.getChannel());
+      }
+    } finally {
+      raf.close();
+    }
+    if (!same) {
+      return false;
+    }
+    File parent = file.getParentFile();
+    if (parent != null && !parent.exists()) {
+      parent.mkdirs();
+    }
+    file.delete();
+    return blobStore.materialize(blob, file);
+  }
+
+  /** Methode which return position of entry data in archive
+   * @param archive channel of archive
+   * @param entry entry of archive
+   * @return offset of first byte of entry data
+   * @throws IOException if local header is broken
+   */
+  private long dataOffset(final FileChannel archive, final Entry entry) throws IOException {
+    long offset = entry.getLocalHeaderOffset();
+    if (offset < 0 || offset + LOCAL_LENGTH > archive.size()) {
+      throw new ZipException("local header is out of archive");
+    }
+    ByteBuffer header = ByteBuffer.allocate(LOCAL_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(archive, header, offset);
+    if (header.getInt(0) != LOCAL_HEADER) {
+      throw new ZipException("invalid local header signature");
+    }
+    long start = offset + LOCAL_LENGTH + u16(header, 26) + u16(header, 28);
+    if (start + entry.getCompressedSize() > archive.size()) {
+      throw new ZipException("entry data is out of archive");
+    }
+    if ((entry.getFlags() & 1) != 0) {
+      throw new ZipException("encrypted entries are not supported");
+    }
+    if (entry.getMethod() == STORED && entry.getCompressedSize() != entry.getSize()) {
+      throw new ZipException("stored entry has different compressed and uncompressed size");
+    }
+    if (entry.getMethod() != STORED && entry.getMethod() != DEFLATED) {
+      throw new ZipException("unsupported compression method " + entry.getMethod());
+    }
+    return start;
+  }
+
+  /** Methode which copy stored data to target channel by channel transfer
+   * (without copy through java heap) and check CRC of written data.  Data
+   * are read back from target file, which is mostly in page cache yet.
+   * @param archive channel of archive
+   * @param position start of data
+   * @param entry copied entry
+   * @param out target channel
+   * @throws IOException if data are malformed or cannot be written
+   */
+  private void copy(final FileChannel archive, final long position, final Entry entry,
+                    final FileChannel out) throws IOException {
+    long done = 0;
+    while (done < entry.getSize()) {
+      long n = archive.transferTo(position + done, entry.getSize() - done, out);
+      if (n <= 0) {
+        throw new ZipException("unexpected end of archive");
+      }
+      done += n;
+    }
+    crc.reset();
+    done = 0;
+    while (done < entry.getSize()) {
+      int n = (int) Math.min(BUFFER_SIZE, entry.getSize() - done);
+      inBuffer.clear();
+      inBuffer.limit(n);
+      readFully(out, inBuffer, done);
+      inBuffer.flip();
+      inBuffer.get(inflateIn, 0, n);
+      crc.update(inflateIn, 0, n);
+      done += n;
+    }
+    if (crc.getValue() != entry.getCrc()) {
+      throw new ZipException("invalid entry CRC");
+    }
+  }
+
+  /** Methode which compare stored data with content of other file
+   * @param archive channel of archive
+   * @param position start of data
+   * @param size count of bytes
+   * @param other compared channel
+   * @return true if the content is the same
+   * @throws IOException if data cannot be read
+   */
+  private boolean compare(final FileChannel archive, final long position, final long size,
+                          final FileChannel other) throws IOException {
+    long done = 0;
+    while (done < size) {
+      int n = (int) Math.min(BUFFER_SIZE, size - done);
+      inBuffer.clear();
+      inBuffer.limit(n);
+      readFully(archive, inBuffer, position + done);
+      outBuffer.clear();
+      outBuffer.limit(n);
+      readFully(other, outBuffer, done);
+      inBuffer.flip();
+      outBuffer.flip();
+      if (!inBuffer.equals(outBuffer)) {
+        return false;
+      }
+      done += n;
+    }
+    return true;
+  }
+
+  /** Methode which inflate entry data to target channel and check size and
+   * CRC.  If target channel is null, then inflated data are compared with
+   * content of <code>compare</code> channel.
+   * @param archive channel of archive
+   * @param position start of compressed data
+   * @param entry inflated entry
+   * @param out target channel or null
+   * @param compare compared channel (used if out is null)
+   * @return false if compared content differs
+   * @throws IOException if data are malformed or cannot be written
+   */
+  private boolean inflate(final FileChannel archive, final long position, final Entry entry,
+                          final FileChannel out, final FileChannel compare) throws IOException {
+    inflater.reset();
+    crc.reset();
+    long read = 0;
+    long written = 0;
+    boolean dummy = false;
+    try {
+      while (!inflater.finished()) {
+        if (inflater.needsInput()) {
+          long remaining = entry.getCompressedSize() - read;
+          if (remaining > 0) {
+            inBuffer.clear();
+            if (remaining < inBuffer.capacity()) {
+              inBuffer.limit((int) remaining);
+            }
+            int n = archive.read(inBuffer, position + read);
+            if (n <= 0) {
+              throw new ZipException("unexpected end of entry data");
+            }
+            read += n;
+            inBuffer.flip();
+            inBuffer.get(inflateIn, 0, n);
+            inflater.setInput(inflateIn, 0, n);
+          } else if (!dummy) {
+            // raw inflater sometimes needs one byte more than the stream has
+            dummy = true;
+            inflateIn[0] = 0;
+            inflater.setInput(inflateIn, 0, 1);
+          } else {
+            throw new ZipException("unexpected end of entry data");
+          }
+        }
+        int n = inflater.inflate(inflateOut);
+        if (n == 0) {
+          if (inflater.needsDictionary()) {
+            throw new ZipException("entry needs preset dictionary");
+          }
+          if (!inflater.needsInput() && !inflater.finished()) {
+            throw new ZipException("invalid deflate data");
+          }
+          continue;
+        }
+        written += n;
+        if (written > entry.getSize()) {
+          throw new ZipException("entry is larger than declared size");
+        }
+        crc.update(inflateOut, 0, n);
+        outBuffer.clear();
+        if (out != null) {
+          outBuffer.put(inflateOut, 0, n);
+          outBuffer.flip();
+          while (outBuffer.hasRemaining()) {
+            out.write(outBuffer);
+          }
+        } else {
+          outBuffer.limit(n);
+          readFully(compare, outBuffer, written - n);
+          for (int i = 0; i < n; i++) {
+            if (outBuffer.get(i) != inflateOut[i]) {
+              return false;
+            }
+          }
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new ZipException("invalid deflate data: " + e.getMessage());
+    }
+    if (written != entry.getSize()) {
+      throw new ZipException("entry is smaller than declared size");
+    }
+    if (crc.getValue() != entry.getCrc()) {
+      throw new ZipException("invalid entry CRC");
+    }
+    return true;
+  }
+
+  /** Release native resources of the inflater */
+  public void close() {
+    inflater.end();
+  }
+
+  /** Methode which read central directory of archive.
+   * @param archive channel of archive
+   * @return list of {@link Entry} in order of central directory
+   * @throws ZipException if archive isn't zip file or central directory is
+   *         broken
+   * @throws IOException if archive cannot be read
+   */
+  public static List readEntries(final FileChannel archive) throws IOException {
+    long size = archive.size();
+    if (size < END_LENGTH) {
+      throw new ZipException("archive is too short");
+    }
+
+    // end of central directory is followed only by comment (max 64KB)
+    int tailLength = (int) Math.min(size, END_LENGTH + ZIP64_MAGIC_SHORT);
+    ByteBuffer tail = ByteBuffer.allocate(tailLength).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(archive, tail, size - tailLength);
+    int end = -1;
+    for (int i = tailLength - END_LENGTH; i >= 0; i--) {
+      if (tail.getInt(i) == END_HEADER
+          && i + END_LENGTH + u16(tail, i + 20) <= tailLength) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      throw new ZipException("end of central directory not found");
+    }
+    long endPosition = size - tailLength + end;
+    long total = u16(tail, end + 10);
+    long cdSize = u32(tail, end + 12);
+    long cdOffset = u32(tail, end + 16);
+    long cdEnd = endPosition;
+
+    // sentinel values are valid values too (e.g. exactly 65535 entries), the
+    // archive is ZIP64 only if the locator is present
+    ByteBuffer locator = null;
+    if ((total == ZIP64_MAGIC_SHORT || cdSize == ZIP64_MAGIC || cdOffset == ZIP64_MAGIC)
+        && endPosition >= ZIP64_LOCATOR_LENGTH) {
+      locator = ByteBuffer.allocate(ZIP64_LOCATOR_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(archive, locator, endPosition - ZIP64_LOCATOR_LENGTH);
+      if (locator.getInt(0) != ZIP64_LOCATOR) {
+        locator = null;
+      }
+    }
+    if (locator != null) {
+      long zip64End = locator.getLong(8);
+      if (zip64End < 0 || zip64End + 56 > endPosition) {
+        throw new ZipException("ZIP64 end of central directory is out of archive");
+      }
+      ByteBuffer record = ByteBuffer.allocate(56).order(ByteOrder.LITTLE_ENDIAN);
+      readFully(archive, record, zip64End);
+      if (record.getInt(0) != ZIP64_END_HEADER) {
+        throw new ZipException("invalid ZIP64 end of central directory");
+      }
+      total = record.getLong(32);
+      cdSize = record.getLong(40);
+      cdOffset = record.getLong(48);
+      cdEnd = zip64End;
+    }
+
+    // archive can have some prefix (e.g. self extracting stub)
+    long shift = cdEnd - cdSize - cdOffset;
+    if (cdSize < 0 || cdOffset < 0 || shift < 0 || total < 0) {
+      throw new ZipException("central directory is out of archive");
+    }
+    if (cdSize > Integer.MAX_VALUE || total > cdSize / CENTRAL_LENGTH + 1) {
+      throw new ZipException("central directory is too large");
+    }
+
+    ByteBuffer cd = ByteBuffer.allocate((int) cdSize).order(ByteOrder.LITTLE_ENDIAN);
+    readFully(archive, cd, cdOffset + shift);
+    List result = new ArrayList((int) total);
+    int pos = 0;
+    for (long i = 0; i < total; i++) {
+      if (pos + CENTRAL_LENGTH > cdSize || cd.getInt(pos) != CENTRAL_HEADER) {
+        throw new ZipException("truncated central directory");
+      }
+      int nameLength = u16(cd, pos + 28);
+      int extraLength = u16(cd, pos + 30);
+      int commentLength = u16(cd, pos + 32);
+      int next = pos + CENTRAL_LENGTH + nameLength + extraLength + commentLength;
+      if (next > cdSize) {
+        throw new ZipException("truncated central directory");
+      }
+
+      Entry entry = new Entry();
+      entry.flags = u16(cd, pos + 8);
+      entry.method = u16(cd, pos + 10);
+      entry.time = dosToJavaTime(u16(cd, pos + 14), u16(cd, pos + 12));
+      entry.crc = u32(cd, pos + 16);
+      entry.compressedSize = u32(cd, pos + 20);
+      entry.size = u32(cd, pos + 24);
+      entry.localHeaderOffset = u32(cd, pos + 42);
+      entry.name = decode(cd, pos + CENTRAL_LENGTH, nameLength);
+      readZip64Extra(cd, pos + CENTRAL_LENGTH + nameLength, extraLength, entry);
+      if (entry.size < 0 || entry.compressedSize < 0) {
+        throw new ZipException("invalid size of entry " + entry.name);
+      }
+      entry.localHeaderOffset += shift;
+      result.add(entry);
+      pos = next;
+    }
+    return result;
+  }
+
+  /** Methode which replace 32 bit values of entry from ZIP64 extra field
+   * @param cd central directory
+   * @param start start of extra field
+   * @param length length of extra field
+   * @param entry entry which values will be replaced
+   * @throws ZipException if the extra field is broken
+   */
+  private static void readZip64Extra(final ByteBuffer cd, final int start, final int length,
+                                     final Entry entry) throws ZipException {
+    int pos = start;
+    while (pos + 4 <= start + length) {
+      int id = u16(cd, pos);
+      int size = u16(cd, pos + 2);
+      int data = pos + 4;
+      if (data + size > start + length) {
+        throw new ZipException("truncated extra field of entry " + entry.name);
+      }
+      if (id == ZIP64_EXTRA) {
+        int end = data + size;
+        if (entry.size == ZIP64_MAGIC && data + 8 <= end) {
+          entry.size = cd.getLong(data);
+          data += 8;
+        }
+        if (entry.compressedSize == ZIP64_MAGIC && data + 8 <= end) {
+          entry.compressedSize = cd.getLong(data);
+          data += 8;
+        }
+        if (entry.localHeaderOffset == ZIP64_MAGIC && data + 8 <= end) {
+          entry.localHeaderOffset = cd.getLong(data);
+        }
+        return;
+      }
+      pos = data + size;
+    }
+  }
+
+  /** Methode which read whole buffer from channel
+   * @param channel source channel
+   * @param buffer target buffer
+   * @param position position in channel
+   * @throws IOException if end of channel is reached
+   */
+  private static void readFully(final FileChannel channel, final ByteBuffer buffer,
+                                final long position) throws IOException {
+    long pos = position;
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, pos);
+      if (n < 0) {
+        throw new ZipException("unexpected end of archive");
+      }
+      pos += n;
+    }
+  }
+
+  /** Methode which decode entry name (java.util.zip use UTF-8 as default too)
+   * @param buffer buffer with name
+   * @param start start of name
+   * @param length length of name
+   * @return decoded name
+   */
+  private static String decode(final ByteBuffer buffer, final int start, final int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(start + i);
+    }
+    try {
+      return new String(bytes, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      return new String(bytes);
+    }
+  }
+
+  /** Methode which convert MS-DOS date and time to java time
+   * @param date MS-DOS date
+   * @param time MS-DOS time
+   * @return java time or -1
+   */
+  private static long dosToJavaTime(final int date, final int time) {
+    if (date == 0) {
+      return -1;
+    }
+    Calendar calendar = new GregorianCalendar(((date >> 9) & 0x7f) + 1980,
+                                              ((date >> 5) & 0x0f) - 1,
+                                              date & 0x1f,
+                                              (time >> 11) & 0x1f,
+                                              (time >> 5) & 0x3f,
+                                              (time & 0x1f) * 2);
+    return calendar.getTimeInMillis();
+  }
+
+  /** Read unsigned 16 bit value */
+  private static int u16(final ByteBuffer buffer, final int index) {
+    return buffer.getShort(index) & 0xFFFF;
+  }
+
+  /** Read unsigned 32 bit value */
+  private static long u32(final ByteBuffer buffer, final int index) {
+    return buffer.getInt(index) & ZIP64_MAGIC;
+  }
+
+  /** Entry of central directory */
+  public static class Entry {
+    /** Entry name */
+    private String name;
+    /** General purpose flags */
+    private int flags;
+    /** Compression method */
+    private int method;
+    /** Last modification time or -1 */
+    private long time;
+    /** CRC-32 of uncompressed data */
+    private long crc;
+    /** Size of compressed data */
+    private long compressedSize;
+    /** Size of uncompressed data */
+    private long size;
+    /** Position of local header in archive */
+    private long localHeaderOffset;
+
+    /** Get the <code>Name</code> value.
+     * @return a value
+     */
+    public final String getName() {
+      return name;
+    }
+
+    /** Get the <code>Flags</code> value.
+     * @return a value
+     */
+    public final int getFlags() {
+      return flags;
+    }
+
+    /** Get the <code>Method</code> value.
+     * @return a value
+     */
+    public final int getMethod() {
+      return method;
+    }
+
+    /** Get the <code>Time</code> value.
+     * @return a value
+     */
+    public final long getTime() {
+      return time;
+    }
+
+    /** Get the <code>Crc</code> value.
+     * @return a value
+     */
+    public final long getCrc() {
+      return crc;
+    }
+
+    /** Get the <code>CompressedSize</code> value.
+     * @return a value
+     */
+    public final long getCompressedSize() {
+      return compressedSize;
+    }
+
+    /** Get the <code>Size</code> value.
+     * @return a value
+     */
+    public final long getSize() {
+      return size;
+    }
+
+    /** Get the <code>LocalHeaderOffset</code> value.
+     * @return a value
+     */
+    public final long getLocalHeaderOffset() {
+      return localHeaderOffset;
+    }
+
+    /** Methode which return true if entry is directory
+     * @return true if entry name ends with slash
+     */
+    public final boolean isDirectory() {
+      return name.endsWith("/");
+    }
+  }
+}
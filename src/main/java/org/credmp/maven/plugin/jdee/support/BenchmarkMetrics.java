@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Iterator;
+
+/** Metrics of goals written for benchmark.
+ * <p>If system property <code>jdee.metrics</code> is set, then every goal
+ * append to this file line <code>GOAL MILLIS PEAK_HEAP</code> (separated by
+ * tabulator).  Peak heap is sum of peak usages of all heap memory pools of
+ * the JVM, so it is peak of the whole maven run up to the goal.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class BenchmarkMetrics {
+
+  /** System property with name of metrics file */
+  public static final String PROPERTY = "jdee.metrics";
+
+  /** Creates an instance, only static methodes are used */
+  private BenchmarkMetrics() {
+    super();
+  }
+
+  /** Methode which record metrics of goal if metrics are enabled
+   * @param goal name of goal
+   * @param start start time of goal
+   */
+  public static synchronized void record(final String goal, final long start) {
+    String file = System.getProperty(PROPERTY);
+    if (file == null || "".equals(file)) {
+      return;
+    }
+    try {
+      PrintWriter out = new PrintWriter(new FileWriter(file, true));
+      try {
+        out.println(goal + "\t" + (System.currentTimeMillis() - start) + "\t" + peakHeap());
+      } finally {
+        out.close();
+      }
+    } catch (IOException e) {
+      // metrics are not required
+    }
+  }
+
+  /** Methode which return peak usage of heap
+   * @return sum of peak usages of heap memory pools in bytes
+   */
+  public static long peakHeap() {
+    long result = 0;
+    for (Iterator iter = ManagementFactory.getMemoryPoolMXBeans().iterator(); iter.hasNext();) {
+      MemoryPoolMXBean pool = (MemoryPoolMXBean) iter.next();
+      if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+        result += pool.getPeakUsage().getUsed();
+      }
+    }
+    return result;
+  }
+
+  /** Methode which read metrics of goal from file
+   * @param file metrics file
+   * @param goal name of goal
+   * @return array {sum of times, maximal peak heap} or null if goal has no
+   *         metrics
+   * @throws IOException if file cannot be read
+   */
+  public static long[] read(final File file, final String goal) throws IOException {
+    if (!file.isFile()) {
+      return null;
+    }
+    long[] result = null;
+    BufferedReader in = new BufferedReader(new FileReader(file));
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        String[] fields = line.split("\t");
+        if (fields.length == 3 && goal.equals(fields[0])) {
+          if (result == null) {
+            result = new long[2];
+          }
+          result[0] += Long.parseLong(fields[1]);
+          result[1] = Math.max(result[1], Long.parseLong(fields[2]));
+        }
+      }
+    } finally {
+      in.close();
+    }
+    return result;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Class which find files changed since last scan.
+ * <p>Last modification times of all files with given suffix in root
+ * directories are remembered.  Each scan return files which are new or have
+ * other modification time then in previous scan.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class ChangedFiles {
+
+  /** Root directories */
+  private final File[] roots;
+  /** Suffix of watched files */
+  private final String suffix;
+  /** Modification times from last scan (File - Long) */
+  private Map times = new HashMap();
+  /** Files which was removed since previous scan */
+  private List removed = new ArrayList();
+
+  /** Creates a new <code>ChangedFiles</code> instance.
+   * @param roots root directories (which not exist are ignored)
+   * @param suffix suffix of watched files, e.g. <code>.java</code>
+   */
+  public ChangedFiles(final File[] roots, final String suffix) {
+    super();
+    this.roots = roots;
+    this.suffix = suffix;
+  }
+
+  /** Methode which scan roots and return changed files
+   * @return list of files which are new or changed since last scan
+   */
+  public synchronized List scan() {
+    Map current = new HashMap();
+    List result = new ArrayList();
+    for (int i = 0; i < roots.length; i++) {
+      if (roots[i] != null) {
+        scan(roots[i], current, result);
+      }
+    }
+    Set gone = new HashSet(times.keySet());
+    gone.removeAll(current.keySet());
+    removed = new ArrayList(gone);
+    times = current;
+    return result;
+  }
+
+  /** Methode which return files removed between the two last scans
+   * @return list of removed files
+   */
+  public synchronized List getRemoved() {
+    return removed;
+  }
+
+  /** Methode which forget modification time of file, so it is returned by
+   * next scan again (e.g. because of its check fails)
+   * @param file file which will be returned by next scan
+   */
+  public synchronized void forget(final File file) {
+    times.remove(file);
+  }
+
+  /** Methode which return all known files
+   * @return files from last scan
+   */
+  public synchronized List getFiles() {
+    return new ArrayList(times.keySet());
+  }
+
+  /** Recursive scan of directory
+   * @param directory scanned directory
+   * @param current modification times of this scan
+   * @param changed list of changed files
+   */
+  private void scan(final File directory, final Map current, final List changed) {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (int i = 0; i < files.length; i++) {
+      if (files[i].isDirectory()) {
+        scan(files[i], current, changed);
+      } else if (files[i].getName().endsWith(suffix)) {
+        Long time = new Long(files[i].lastModified());
+        current.put(files[i], time);
+        if (!time.equals(times.get(files[i]))) {
+          changed.add(files[i]);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,376 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/** Information read from constant pool of class file.
+ * <p>Class names are in internal form (<code>java/lang/String</code>).
+ * References contain all classes from constant pool and all classes used in
+ * descriptors and signatures, so the set is rather bigger than smaller.
+ * Super types are the super class and the interfaces of class.</p>
+ * <p>Constants are values of not private static final fields which compiler
+ * copy to classes which use them (their constant pool doesn't reference
+ * this class then).  <code>serialVersionUID</code> isn't constant.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class ClassFileInfo {
+
+  /** Magic number of class file */
+  private static final int MAGIC = 0xCAFEBABE;
+  /** Access flag of private member */
+  private static final int ACC_PRIVATE = 0x0002;
+
+  /** Name of class */
+  private String name;
+  /** Referenced classes */
+  private Set references = new HashSet();
+  /** Super class and interfaces */
+  private List superTypes = new ArrayList();
+  /** Field name - constant value */
+  private Map constants = new TreeMap();
+
+  /** Creates an instance, use {@link #read(File)} */
+  private ClassFileInfo() {
+    super();
+  }
+
+  /** Get the <code>Name</code> value.
+   * @return a value
+   */
+  public final String getName() {
+    return name;
+  }
+
+  /** Get the <code>References</code> value.
+   * @return set of class names in internal form
+   */
+  public final Set getReferences() {
+    return references;
+  }
+
+  /** Get the <code>SuperTypes</code> value.
+   * @return list of class names in internal form (super class first, none
+   *         for <code>java/lang/Object</code>)
+   */
+  public final List getSuperTypes() {
+    return superTypes;
+  }
+
+  /** Get the <code>Constants</code> value.
+   * @return sorted map: field name - value (Integer, Long, Float, Double
+   *         or String)
+   */
+  public final Map getConstants() {
+    return constants;
+  }
+
+  /** Methode which read class file
+   * @param file class file
+   * @return information about class
+   * @throws IOException if file cannot be read or isn't class file
+   */
+  public static ClassFileInfo read(final File file) throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(file));
+    try {
+      return read(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  /** Methode which read class file from stream
+   * @param stream stream with class file
+   * @return information about class
+   * @throws IOException if stream cannot be read or isn't class file
+   */
+  public static ClassFileInfo read(final InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(stream);
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a class file");
+    }
+    in.readUnsignedShort();
+    in.readUnsignedShort();
+
+    int count = in.readUnsignedShort();
+    String[] utf8 = new String[count];
+    // name index of Class constant, indexed by constant pool index
+    int[] classes = new int[count];
+    // numbers and utf8 indexes of strings
+    Object[] values = new Object[count];
+    for (int i = 1; i < count; i++) {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+      case 1: // Utf8
+        utf8[i] = in.readUTF();
+        break;
+      case 7: // Class
+        classes[i] = in.readUnsignedShort();
+        break;
+      case 3: // Integer
+        values[i] = new Integer(in.readInt());
+        break;
+      case 4: // Float
+        values[i] = new Float(in.readFloat());
+        break;
+      case 9: // Fieldref
+      case 10: // Methodref
+      case 11: // InterfaceMethodref
+      case 12: // NameAndType
+      case 17: // Dynamic
+      case 18: // InvokeDynamic
+        in.readInt();
+        break;
+      case 5: // Long
+        values[i] = new Long(in.readLong());
+        i++;
+        break;
+      case 6: // Double
+        values[i] = new Double(in.readDouble());
+        i++;
+        break;
+      case 8: // String
+        values[i] = new int[] {in.readUnsignedShort()};
+        break;
+      case 16: // MethodType
+      case 19: // Module
+      case 20: // Package
+        in.readUnsignedShort();
+        break;
+      case 15: // MethodHandle
+        in.readUnsignedByte();
+        in.readUnsignedShort();
+        break;
+      default:
+        throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+
+    ClassFileInfo result = new ClassFileInfo();
+    for (int i = 1; i < count; i++) {
+      String className = className(i, classes, utf8);
+      if (className != null) {
+        if (className.startsWith("[")) {
+          addDescriptor(className, result.references);
+        } else {
+          result.references.add(className);
+        }
+      }
+    }
+    for (int i = 1; i < count; i++) {
+      if (utf8[i] != null && utf8[i].indexOf(';') > 0) {
+        addDescriptor(utf8[i], result.references);
+      }
+    }
+
+    in.readUnsignedShort(); // access flags
+    result.name = className(in.readUnsignedShort(), classes, utf8);
+    if (result.name == null) {
+      throw new IOException("Class file without name");
+    }
+    String superClass = className(in.readUnsignedShort(), classes, utf8);
+    if (superClass != null) {
+      result.superTypes.add(superClass);
+    }
+    int interfaces = in.readUnsignedShort();
+    for (int i = 0; i < interfaces; i++) {
+      String name = className(in.readUnsignedShort(), classes, utf8);
+      if (name != null) {
+        result.superTypes.add(name);
+      }
+    }
+    result.references.remove(result.name);
+
+    int fields = in.readUnsignedShort();
+    for (int i = 0; i < fields; i++) {
+      int access = in.readUnsignedShort();
+      String name = utf8[in.readUnsignedShort()];
+      in.readUnsignedShort(); // descriptor
+      int attributes = in.readUnsignedShort();
+      for (int j = 0; j < attributes; j++) {
+        String attribute = utf8[in.readUnsignedShort()];
+        int length = in.readInt();
+        if ("ConstantValue".equals(attribute) && length == 2) {
+          Object value = values[in.readUnsignedShort()];
+          if (value instanceof int[]) {
+            value = utf8[((int[]) value)[0]];
+          }
+          if ((access & ACC_PRIVATE) == 0 && value != null && !"serialVersionUID".equals(name)) {
+            result.constants.put(name, value);
+          }
+        } else {
+          in.readFully(new byte[length]);
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Methode which return name of Class constant
+   * @param index index to constant pool
+   * @param classes name indexes of Class constants
+   * @param utf8 Utf8 constants
+   * @return class name or null if constant isn't Class
+   */
+  private static String className(final int index, final int[] classes, final String[] utf8) {
+    if (index <= 0 || index >= classes.length || classes[index] <= 0 || classes[index] >= utf8.length) {
+      return null;
+    }
+    return utf8[classes[index]];
+  }
+
+  /** Methode which add all classes from descriptor or signature (field,
+   * method or class, generic signatures included).  Text which isn't
+   * descriptor or signature (e.g. string constant) adds nothing.
+   * @param descriptor descriptor or signature
+   * @param references set of references
+   */
+  private static void addDescriptor(final String descriptor, final Set references) {
+    Set found = new HashSet();
+    try {
+      int i = 0;
+      if (descriptor.charAt(0) == '<') {
+        i = parseTypeParameters(descriptor, 0, found);
+      }
+      if (descriptor.charAt(i) == '(') {
+        // method: parameters, return type and thrown types
+        i++;
+        while (descriptor.charAt(i) != ')') {
+          i = parseType(descriptor, i, found);
+        }
+        i = parseType(descriptor, i + 1, found);
+        while (i < descriptor.length() && descriptor.charAt(i) == '^') {
+          i = parseType(descriptor, i + 1, found);
+        }
+      } else {
+        // field type or super class and interfaces of class
+        do {
+          i = parseType(descriptor, i, found);
+        } while (i < descriptor.length());
+      }
+      if (i != descriptor.length()) {
+        return;
+      }
+    } catch (IllegalArgumentException e) {
+      return;
+    } catch (IndexOutOfBoundsException e) {
+      return;
+    }
+    references.addAll(found);
+  }
+
+  /** Methode which parse formal type parameters
+   * (<code>&lt;T:Ljava/lang/Object;U::Ljava/lang/Comparable;&gt;</code>)
+   * @param signature parsed signature
+   * @param start index of <code>&lt;</code>
+   * @param found set of found classes
+   * @return index after <code>&gt;</code>
+   */
+  private static int parseTypeParameters(final String signature, final int start, final Set found) {
+    int i = start + 1;
+    while (signature.charAt(i) != '>') {
+      int colon = signature.indexOf(':', i);
+      if (colon <= i) {
+        throw new IllegalArgumentException(signature);
+      }
+      i = colon;
+      // class bound (may be empty) and interface bounds
+      while (signature.charAt(i) == ':') {
+        i++;
+        if ("LT[".indexOf(signature.charAt(i)) > -1) {
+          i = parseType(signature, i, found);
+        }
+      }
+    }
+    return i + 1;
+  }
+
+  /** Methode which parse one type (base type, class type, array or type
+   * variable)
+   * @param signature parsed descriptor or signature
+   * @param start index of first character of type
+   * @param found set of found classes
+   * @return index after the type
+   */
+  private static int parseType(final String signature, final int start, final Set found) {
+    char c = signature.charAt(start);
+    if ("BCDFIJSZV".indexOf(c) > -1) {
+      return start + 1;
+    }
+    if (c == '[') {
+      return parseType(signature, start + 1, found);
+    }
+    if (c == 'T') {
+      int end = signature.indexOf(';', start);
+      if (end <= start + 1) {
+        throw new IllegalArgumentException(signature);
+      }
+      return end + 1;
+    }
+    if (c != 'L') {
+      throw new IllegalArgumentException(signature);
+    }
+    int i = start + 1;
+    String name = null;
+    while (true) {
+      int end = i;
+      while (";<.".indexOf(signature.charAt(end)) < 0) {
+        end++;
+      }
+      if (end == i) {
+        throw new IllegalArgumentException(signature);
+      }
+      // inner class of generic class: Lpkg/Outer<TT;>.Inner;
+      name = name == null ? signature.substring(i, end) : name + "$" + signature.substring(i, end);
+      found.add(name);
+      i = end;
+      if (signature.charAt(i) == '<') {
+        i++;
+        while (signature.charAt(i) != '>') {
+          char wildcard = signature.charAt(i);
+          if (wildcard == '*') {
+            i++;
+          } else {
+            i = parseType(signature, wildcard == '+' || wildcard == '-' ? i + 1 : i, found);
+          }
+        }
+        i++;
+      }
+      if (signature.charAt(i) == ';') {
+        return i + 1;
+      }
+      if (signature.charAt(i) != '.') {
+        throw new IllegalArgumentException(signature);
+      }
+      i++;
+    }
+  }
+}
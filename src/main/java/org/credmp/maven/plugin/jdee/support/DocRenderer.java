@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.tools.Tool;
+import javax.tools.ToolProvider;
+
+/** Renderer of javadoc of single class from sources.
+ * <p>Source of class is found in source roots and javadoc tool of JDK is
+ * run only for this file in the same JVM.  Rendered pages are cached:
+ * at most <code>capacity</code> classes are kept, the least recently used
+ * class is deleted first.  Page is rendered again when its source is
+ * changed.</p>
+ * <p>Instance is not thread safe.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class DocRenderer {
+
+  /** Javadoc tool of JDK */
+  private final Tool javadoc;
+  /** Source roots (File) */
+  private final List sourceRoots;
+  /** Classpath for resolving of types which aren't in sources */
+  private final String classpath;
+  /** Directory with rendered pages */
+  private final File directory;
+  /** Rendered classes in access order: class name -&gt; directory */
+  private final Map rendered;
+
+  /** Count of pages taken from cache */
+  private int hits;
+  /** Count of rendered pages */
+  private int misses;
+
+  /** Creates a new <code>DocRenderer</code> instance.
+   * @param sourceRoots source roots (File)
+   * @param classpath list of classpath entries (String)
+   * @param directory directory for rendered pages, it is cleaned
+   * @param capacity maximal count of cached classes
+   * @throws IllegalStateException if javadoc tool isn't available (java
+   *         older then 1.8 or JRE without tools)
+   */
+  public DocRenderer(final List sourceRoots, final List classpath, final File directory,
+                     final int capacity) {
+    super();
+    try {
+      javadoc = (Tool) ToolProvider.class.getMethod("getSystemDocumentationTool", new Class[0])
+        .invoke(null, new Object[0]);
+    } catch (Exception e) {
+      throw new IllegalStateException("Javadoc tool isn't available, maven must run on JDK 1.8 or newer");
+    }
+    if (javadoc == null) {
+      throw new IllegalStateException("Javadoc tool isn't available, maven must run on JDK");
+    }
+    this.sourceRoots = sourceRoots;
+    this.classpath = join(classpath);
+    this.directory = directory;
+    this.rendered = new LinkedHashMap(16, 0.75f, true) {
+        protected boolean removeEldestEntry(final Map.Entry eldest) {
+          if (size() > capacity) {
+            deleteDirectory((File) eldest.getValue());
+            return true;
+          }
+          return false;
+        }
+      };
+    deleteDirectory(directory);
+    directory.mkdirs();
+  }
+
+  /** Get the <code>Hits</code> value.
+   * @return count of pages taken from cache
+   */
+  public final int getHits() {
+    return hits;
+  }
+
+  /** Get the <code>Misses</code> value.
+   * @return count of rendered pages
+   */
+  public final int getMisses() {
+    return misses;
+  }
+
+  /** Methode which return page of class, the page is rendered if it isn't
+   * cached or its source was changed.
+   * @param className full name of class, nested class can be separated by
+   *        dot or $
+   * @param out output for warnings of javadoc if it fails
+   * @return html page of class
+   * @throws IOException if source isn't found or javadoc fails
+   */
+  public File render(final String className, final PrintStream out) throws IOException {
+    String name = className.replace('$', '.');
+    File source = null;
+    String topLevel = name;
+    // nested classes are in source of top level class
+    while (source == null && topLevel.length() > 0) {
+      source = findSource(topLevel);
+      if (source == null) {
+        int dot = topLevel.lastIndexOf('.');
+        topLevel = dot > 0 ? topLevel.substring(0, dot) : "";
+      }
+    }
+    if (source == null) {
+      throw new FileNotFoundException("Source of class " + className + " isn't found");
+    }
+
+    File dir = (File) rendered.get(topLevel);
+    if (dir != null) {
+      File page = page(dir, topLevel, name);
+      if (page.isFile() && page.lastModified() >= source.lastModified()) {
+        hits++;
+        return page;
+      }
+    }
+
+    dir = new File(directory, topLevel);
+    deleteDirectory(dir);
+    dir.mkdirs();
+    List arguments = new ArrayList(Arrays.asList(new String[] {
+      "-d", dir.getAbsolutePath(), "-quiet", "-protected", "-Xdoclint:none",
+      "-sourcepath", join(sourceRoots)}));
+    if (classpath.length() > 0) {
+      arguments.add("-classpath");
+      arguments.add(classpath);
+    }
+    arguments.add(source.getAbsolutePath());
+    ByteArrayOutputStream messages = new ByteArrayOutputStream();
+    int status = javadoc.run(null, messages, messages,
+                             (String[]) arguments.toArray(new String[arguments.size()]));
+    File page = page(dir, topLevel, name);
+    if (!page.isFile()) {
+      out.print(messages.toString());
+      deleteDirectory(dir);
+      rendered.remove(topLevel);
+      throw new IOException("Javadoc of " + className + " failed with status " + status);
+    }
+    misses++;
+    rendered.put(topLevel, dir);
+    return page;
+  }
+
+  /** Methode which delete all rendered pages */
+  public void clear() {
+    for (Iterator iter = rendered.values().iterator(); iter.hasNext();) {
+      deleteDirectory((File) iter.next());
+    }
+    rendered.clear();
+  }
+
+  /** Methode which find source of top level class
+   * @param className full name of class
+   * @return source file or null
+   */
+  private File findSource(final String className) {
+    String path = className.replace('.', File.separatorChar) + ".java";
+    for (Iterator iter = sourceRoots.iterator(); iter.hasNext();) {
+      File file = new File((File) iter.next(), path);
+      if (file.isFile()) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  /** Methode which return page of class in directory of rendered top level
+   * class
+   * @param dir directory of rendering
+   * @param topLevel name of top level class
+   * @param className name of class (nested classes separated by dot)
+   * @return page of nested class if it exists, otherwise page of top level
+   *         class
+   */
+  private static File page(final File dir, final String topLevel, final String className) {
+    int dot = topLevel.lastIndexOf('.');
+    String packagePath = dot > 0 ? topLevel.substring(0, dot).replace('.', File.separatorChar) : "";
+    File packageDir = new File(dir, packagePath);
+    String simpleName = className.substring(dot + 1);
+    File page = new File(packageDir, simpleName + ".html");
+    return page.isFile() ? page : new File(packageDir, topLevel.substring(dot + 1) + ".html");
+  }
+
+  /** Methode which join paths by path separator
+   * @param paths list of File or String
+   * @return joined paths
+   */
+  private static String join(final List paths) {
+    StringBuffer result = new StringBuffer();
+    for (Iterator iter = paths.iterator(); iter.hasNext();) {
+      if (result.length() > 0) {
+        result.append(File.pathSeparator);
+      }
+      result.append(iter.next());
+    }
+    return result.toString();
+  }
+
+  /** Recursive delete of directory
+   * @param dir deleted directory
+   */
+  private static void deleteDirectory(final File dir) {
+    File[] files = dir.listFiles();
+    for (int i = 0; files != null && i < files.length; i++) {
+      if (files[i].isDirectory()) {
+        deleteDirectory(files[i]);
+      } else {
+        files[i].delete();
+      }
+    }
+    dir.delete();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/** Scanner of packages imported by java sources.
+ * <p>Only the header of file (up to the first type declaration) is read.
+ * Package of import is the part of name before the first segment which
+ * begins with upper case letter (class name), so static and nested imports
+ * give the package too.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class ImportScanner {
+
+  /** Creates an instance, only static methodes are used */
+  private ImportScanner() {
+    super();
+  }
+
+  /** Methode which return packages imported by all sources in roots
+   * @param roots source directories (which not exist are ignored)
+   * @return sorted set of package names
+   */
+  public static Set importedPackages(final File[] roots) {
+    Set result = new TreeSet();
+    for (int i = 0; i < roots.length; i++) {
+      if (roots[i] != null) {
+        scan(roots[i], result);
+      }
+    }
+    return result;
+  }
+
+  /** Methode which return package of imported name
+   * @param name name from import (without <code>import</code>,
+   *        <code>static</code> and semicolon)
+   * @return package name or null
+   */
+  public static String packageOf(final String name) {
+    String[] segments = name.split("\\.");
+    StringBuffer result = new StringBuffer();
+    // last segment is class, member or star, never the package
+    for (int i = 0; i < segments.length - 1; i++) {
+      if (segments[i].length() == 0 || Character.isUpperCase(segments[i].charAt(0))) {
+        break;
+      }
+      if (result.length() > 0) {
+        result.append('.');
+      }
+      result.append(segments[i]);
+    }
+    return result.length() > 0 ? result.toString() : null;
+  }
+
+  /** Recursive scan of directory
+   * @param dir scanned directory
+   * @param result set of packages
+   */
+  private static void scan(final File dir, final Set result) {
+    File[] files = dir.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (int i = 0; i < files.length; i++) {
+      if (files[i].isDirectory()) {
+        scan(files[i], result);
+      } else if (files[i].getName().endsWith(".java")) {
+        try {
+          scanFile(files[i], result);
+        } catch (IOException e) {
+          // unreadable source doesn't import anything
+        }
+      }
+    }
+  }
+
+  /** Methode which read imports of one source
+   * @param file java source
+   * @param result set of packages
+   * @throws IOException if file cannot be read
+   */
+  private static void scanFile(final File file, final Set result) throws IOException {
+    BufferedReader in = new BufferedReader(new FileReader(file));
+    try {
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (line.startsWith("import ")) {
+          String name = line.substring(7).trim();
+          if (name.startsWith("static ")) {
+            name = name.substring(7).trim();
+          }
+          int end = name.indexOf(';');
+          if (end > 0) {
+            String pkg = packageOf(name.substring(0, end).trim());
+            if (pkg != null) {
+              result.add(pkg);
+            }
+          }
+        } else if (line.indexOf("class ") > -1 || line.indexOf("interface ") > -1
+                   || line.indexOf("enum ") > -1) {
+          // imports are before the first type
+          break;
+        }
+      }
+    } finally {
+      in.close();
+    }
+  }
+}
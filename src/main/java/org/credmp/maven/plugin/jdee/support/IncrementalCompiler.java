@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import javax.lang.model.SourceVersion;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/** Incremental compiler of one source set (main or test sources).
+ * <p>Compiler and its file manager (with opened jars of classpath) stay in
+ * memory between compilations.  For every source are remembered classes
+ * which were generated from it and for every class are remembered classes
+ * which it references (read from constant pool, see {@link
+ * ClassFileInfo}).  Changed sources are compiled together with sources
+ * which reference any class of changed or removed sources, or any changed
+ * class of other source set (e.g. main classes for test sources).  Sub
+ * types of changed classes are changed too, so classes which use inherited
+ * members are compiled.  Classes of removed sources are deleted.</p>
+ * <p>Compiler of java older then 9 copies constants to classes which use
+ * them without reference to class of constant.  With such compiler all
+ * other sources are compiled when value of any constant is changed (see
+ * {@link #isConstantChanged()}).</p>
+ * <p>When compiler is created, sources are mapped to existing class files
+ * by name (<code>a/b/C$D.class</code> is from <code>a/b/C.java</code>), so
+ * only sources newer then their classes are compiled first time.</p>
+ * <p>Diagnostics are written immediately as lines <code>FILE:LINE:COLUMN:
+ * KIND: MESSAGE</code> which can be parsed by Emacs compilation mode.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class IncrementalCompiler {
+
+  /** Warm compiler */
+  private final JavaCompiler compiler;
+  /** Warm file manager */
+  private final StandardJavaFileManager fileManager;
+  /** Source roots */
+  private final File[] roots;
+  /** Output directory */
+  private final File outputDirectory;
+  /** Compiler options (with classpath and output directory) */
+  private final List options;
+  /** Watched sources */
+  private final ChangedFiles sources;
+  /** Source file - set of generated class names (internal form) */
+  private final Map sourceClasses = new HashMap();
+  /** Class name - set of referenced class names */
+  private final Map classReferences = new HashMap();
+  /** Class name - list of super types */
+  private final Map classSuperTypes = new HashMap();
+  /** Class name - map of constants (only classes with constants) */
+  private final Map classConstants = new HashMap();
+  /** True if compiler reference class of used constant */
+  private final boolean constantsReferenced;
+  /** True before first compilation */
+  private boolean first = true;
+  /** True if last compilation changed any constant */
+  private boolean constantChanged;
+
+  /** Creates a new <code>IncrementalCompiler</code> instance.
+   * @param compiler system java compiler
+   * @param roots source roots
+   * @param outputDirectory directory for classes
+   * @param classpath list of classpath entries (File or String)
+   * @param arguments other arguments of compiler (e.g. -source)
+   */
+  public IncrementalCompiler(final JavaCompiler compiler, final File[] roots, final File outputDirectory,
+                             final List classpath, final List arguments) {
+    super();
+    this.compiler = compiler;
+    this.fileManager = compiler.getStandardFileManager(null, null, null);
+    this.roots = roots;
+    this.outputDirectory = outputDirectory;
+    this.sources = new ChangedFiles(roots, ".java");
+    boolean referenced = false;
+    for (Iterator iter = compiler.getSourceVersions().iterator(); iter.hasNext();) {
+      referenced |= ((SourceVersion) iter.next()).ordinal() >= 9;
+    }
+    this.constantsReferenced = referenced;
+
+    StringBuffer path = new StringBuffer(outputDirectory.getAbsolutePath());
+    for (Iterator iter = classpath.iterator(); iter.hasNext();) {
+      path.append(File.pathSeparatorChar);
+      path.append(iter.next());
+    }
+    StringBuffer sourcePath = new StringBuffer();
+    for (int i = 0; i < roots.length; i++) {
+      if (sourcePath.length() > 0) {
+        sourcePath.append(File.pathSeparatorChar);
+      }
+      sourcePath.append(roots[i].getAbsolutePath());
+    }
+    options = new ArrayList(Arrays.asList(new String[] {
+          "-d", outputDirectory.getAbsolutePath(), "-classpath", path.toString(),
+          "-sourcepath", sourcePath.toString()}));
+    options.addAll(arguments);
+    mapExistingClasses(outputDirectory, "");
+  }
+
+  /** Methode which compile sources changed since last compilation and
+   * their dependents
+   * @param upstream changed classes of other source set on which this set
+   *        depends (internal names)
+   * @param out output for diagnostics
+   * @return changed (compiled or deleted) classes
+   * @throws IOException if classes cannot be written
+   */
+  public Set compileChanged(final Set upstream, final PrintStream out) throws IOException {
+    constantChanged = false;
+    List changed = sources.scan();
+    if (first) {
+      first = false;
+      for (Iterator iter = changed.iterator(); iter.hasNext();) {
+        if (isUpToDate((File) iter.next())) {
+          iter.remove();
+        }
+      }
+    }
+    return compile(changed, sources.getRemoved(), upstream, out);
+  }
+
+  /** Methode which compile given sources and their dependents.  Sources
+   * which are not in roots of this compiler are ignored.
+   * @param files compiled sources
+   * @param upstream changed classes of other source set
+   * @param out output for diagnostics
+   * @return changed classes
+   * @throws IOException if classes cannot be written
+   */
+  public Set compileFiles(final List files, final Set upstream, final PrintStream out) throws IOException {
+    constantChanged = false;
+    List own = new ArrayList();
+    for (Iterator iter = files.iterator(); iter.hasNext();) {
+      File file = ((File) iter.next()).getAbsoluteFile();
+      if (isOwn(file)) {
+        own.add(file);
+      }
+    }
+    return compile(own, new ArrayList(), upstream, out);
+  }
+
+  /** Methode which compile all sources again
+   * @param out output for diagnostics
+   * @return changed classes
+   * @throws IOException if classes cannot be written
+   */
+  public Set rebuild(final PrintStream out) throws IOException {
+    first = false;
+    constantChanged = false;
+    sources.scan();
+    return compile(sources.getFiles(), new ArrayList(), new HashSet(), out);
+  }
+
+  /** Methode which compile sources
+   * @param changed changed sources
+   * @param removed removed sources
+   * @param upstream changed classes of other source set
+   * @param out output for diagnostics
+   * @return changed classes
+   * @throws IOException if classes cannot be written
+   */
+  private Set compile(final List changed, final Collection removed, final Set upstream,
+                      final PrintStream out) throws IOException {
+    Set changedClasses = new HashSet(upstream);
+    Set compiled = new HashSet();
+    for (Iterator iter = changed.iterator(); iter.hasNext();) {
+      File file = ((File) iter.next()).getAbsoluteFile();
+      compiled.add(file);
+      changedClasses.addAll(classesOf(file));
+    }
+    Set result = new HashSet();
+    // constants before compilation
+    Map oldConstants = new HashMap();
+    for (Iterator iter = removed.iterator(); iter.hasNext();) {
+      File file = ((File) iter.next()).getAbsoluteFile();
+      Set classes = classesOf(file);
+      changedClasses.addAll(classes);
+      result.addAll(classes);
+      keepConstants(classes, oldConstants);
+      deleteClasses(file);
+    }
+    changedClasses.addAll(subTypes(changedClasses));
+    compiled.addAll(dependents(changedClasses));
+    if (compiled.isEmpty()) {
+      return result;
+    }
+    for (Iterator iter = compiled.iterator(); iter.hasNext();) {
+      File file = (File) iter.next();
+      Set classes = classesOf(file);
+      result.addAll(classes);
+      keepConstants(classes, oldConstants);
+      // nested classes which was removed from source must disappear
+      deleteClasses(file);
+    }
+
+    outputDirectory.mkdirs();
+    final Map generated = new HashMap();
+    JavaFileManager recording = new ForwardingJavaFileManager(fileManager) {
+        public JavaFileObject getJavaFileForOutput(final JavaFileManager.Location location,
+                                                   final String className,
+                                                   final JavaFileObject.Kind kind,
+                                                   final FileObject sibling) throws IOException {
+          if (kind == JavaFileObject.Kind.CLASS && sibling != null) {
+            generated.put(className.replace('.', '/'), new File(sibling.toUri()).getAbsoluteFile());
+          }
+          return super.getJavaFileForOutput(location, className, kind, sibling);
+        }
+      };
+    final int[] errors = new int[1];
+    DiagnosticListener listener = new DiagnosticListener() {
+        public void report(final Diagnostic diagnostic) {
+          if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+            errors[0]++;
+          }
+          out.println(format(diagnostic));
+          out.flush();
+        }
+      };
+    Boolean success = compiler.getTask(null, recording, listener, options, null,
+                                       fileManager.getJavaFileObjectsFromFiles(compiled)).call();
+
+    for (Iterator iter = generated.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      String className = (String) entry.getKey();
+      File source = (File) entry.getValue();
+      Set classes = (Set) sourceClasses.get(source);
+      if (classes == null) {
+        classes = new HashSet();
+        sourceClasses.put(source, classes);
+      }
+      classes.add(className);
+      readReferences(className);
+      result.add(className);
+    }
+    if (!success.booleanValue()) {
+      // failed sources are compiled again next time
+      for (Iterator iter = compiled.iterator(); iter.hasNext();) {
+        sources.forget((File) iter.next());
+      }
+    }
+    out.println(";; compiled " + compiled.size() + " files to " + outputDirectory + ", "
+                + errors[0] + " errors");
+
+    if (!constantsReferenced) {
+      // new constant cannot be used by other source yet
+      for (Iterator iter = oldConstants.entrySet().iterator(); iter.hasNext();) {
+        Map.Entry entry = (Map.Entry) iter.next();
+        if (!entry.getValue().equals(classConstants.get(entry.getKey()))) {
+          // users of constant are not known, other sources are compiled
+          constantChanged = true;
+          List others = new ArrayList();
+          for (Iterator files = sources.getFiles().iterator(); files.hasNext();) {
+            File file = ((File) files.next()).getAbsoluteFile();
+            if (!compiled.contains(file)) {
+              others.add(file);
+            }
+          }
+          if (!others.isEmpty()) {
+            result.addAll(compile(others, new ArrayList(), new HashSet(), out));
+          }
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Get the <code>ConstantChanged</code> value.
+   * @return true if last compilation changed value of any constant and
+   *         compiler doesn't reference class of constant, so other source
+   *         sets which depend on this set must be compiled whole
+   */
+  public final boolean isConstantChanged() {
+    return constantChanged;
+  }
+
+  /** Methode which remember constants of classes
+   * @param classes class names
+   * @param constants class name - map of constants
+   */
+  private void keepConstants(final Set classes, final Map constants) {
+    for (Iterator iter = classes.iterator(); iter.hasNext();) {
+      Object className = iter.next();
+      Object values = classConstants.get(className);
+      if (values != null) {
+        constants.put(className, values);
+      }
+    }
+  }
+
+  /** Methode which return own classes which have any of classes as super
+   * type (transitively)
+   * @param classes class names
+   * @return set of sub types which are not in classes
+   */
+  private Set subTypes(final Set classes) {
+    Set result = new HashSet();
+    boolean added = !classes.isEmpty();
+    while (added) {
+      added = false;
+      for (Iterator iter = classSuperTypes.entrySet().iterator(); iter.hasNext();) {
+        Map.Entry entry = (Map.Entry) iter.next();
+        List superTypes = (List) entry.getValue();
+        if (!classes.contains(entry.getKey()) && !result.contains(entry.getKey())
+            && (!Collections.disjoint(superTypes, classes) || !Collections.disjoint(superTypes, result))) {
+          result.add(entry.getKey());
+          added = true;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Methode which format diagnostic for compilation mode
+   * @param diagnostic diagnostic of compiler
+   * @return formatted line
+   */
+  private static String format(final Diagnostic diagnostic) {
+    String kind;
+    if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+      kind = "error";
+    } else if (diagnostic.getKind() == Diagnostic.Kind.NOTE
+               || diagnostic.getKind() == Diagnostic.Kind.OTHER) {
+      kind = "note";
+    } else {
+      kind = "warning";
+    }
+    String message = diagnostic.getMessage(Locale.getDefault()).replace('\n', ' ');
+    Object source = diagnostic.getSource();
+    if (source instanceof JavaFileObject) {
+      return new File(((JavaFileObject) source).toUri()).getPath() + ":" + diagnostic.getLineNumber()
+        + ":" + diagnostic.getColumnNumber() + ": " + kind + ": " + message;
+    }
+    return kind + ": " + message;
+  }
+
+  /** Methode which return sources which reference any of classes
+   * @param classes class names
+   * @return set of source files
+   */
+  private Set dependents(final Set classes) {
+    Set result = new HashSet();
+    if (classes.isEmpty()) {
+      return result;
+    }
+    for (Iterator iter = sourceClasses.entrySet().iterator(); iter.hasNext();) {
+      Map.Entry entry = (Map.Entry) iter.next();
+      for (Iterator names = ((Set) entry.getValue()).iterator(); names.hasNext();) {
+        Set references = (Set) classReferences.get(names.next());
+        if (references != null && !Collections.disjoint(references, classes)) {
+          File source = (File) entry.getKey();
+          if (source.isFile()) {
+            result.add(source);
+          }
+          break;
+        }
+      }
+    }
+    return result;
+  }
+
+  /** Methode which return classes generated from source
+   * @param source source file
+   * @return set of class names (may be empty)
+   */
+  private Set classesOf(final File source) {
+    Set classes = (Set) sourceClasses.get(source);
+    return classes != null ? new HashSet(classes) : new HashSet();
+  }
+
+  /** Methode which delete classes generated from source and forget them
+   * @param source source file
+   */
+  private void deleteClasses(final File source) {
+    Set classes = (Set) sourceClasses.remove(source);
+    if (classes == null) {
+      return;
+    }
+    for (Iterator iter = classes.iterator(); iter.hasNext();) {
+      String className = (String) iter.next();
+      classReferences.remove(className);
+      classSuperTypes.remove(className);
+      classConstants.remove(className);
+      new File(outputDirectory, className + ".class").delete();
+    }
+  }
+
+  /** Methode which return true if all classes of source are newer then
+   * source
+   * @param source source file
+   * @return true if source needn't be compiled
+   */
+  private boolean isUpToDate(final File source) {
+    Set classes = (Set) sourceClasses.get(source.getAbsoluteFile());
+    if (classes == null || classes.isEmpty()) {
+      return false;
+    }
+    for (Iterator iter = classes.iterator(); iter.hasNext();) {
+      if (new File(outputDirectory, iter.next() + ".class").lastModified() < source.lastModified()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Methode which return true if file is in source roots of this compiler
+   * @param file absolute file
+   * @return true if file is own source
+   */
+  private boolean isOwn(final File file) {
+    for (int i = 0; i < roots.length; i++) {
+      if (file.getPath().startsWith(roots[i].getAbsolutePath() + File.separator)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Methode which read references, super types and constants of class
+   * file
+   * @param className class name in internal form
+   */
+  private void readReferences(final String className) {
+    try {
+      ClassFileInfo info = ClassFileInfo.read(new File(outputDirectory, className + ".class"));
+      classReferences.put(className, info.getReferences());
+      classSuperTypes.put(className, info.getSuperTypes());
+      if (info.getConstants().isEmpty()) {
+        classConstants.remove(className);
+      } else {
+        classConstants.put(className, info.getConstants());
+      }
+    } catch (IOException e) {
+      // class is compiled again with dependents of its source
+      classReferences.remove(className);
+      classSuperTypes.remove(className);
+      classConstants.remove(className);
+    }
+  }
+
+  /** Recursive map of existing classes to sources by name
+   * @param directory directory with classes
+   * @param prefix package of directory in internal form (with slash)
+   */
+  private void mapExistingClasses(final File directory, final String prefix) {
+    File[] files = directory.listFiles();
+    for (int i = 0; files != null && i < files.length; i++) {
+      String name = files[i].getName();
+      if (files[i].isDirectory()) {
+        mapExistingClasses(files[i], prefix + name + "/");
+      } else if (name.endsWith(".class")) {
+        String className = prefix + name.substring(0, name.length() - 6);
+        int nested = name.indexOf('$');
+        String topLevel = prefix + (nested > 0 ? name.substring(0, nested) : name.substring(0, name.length() - 6));
+        for (int j = 0; j < roots.length; j++) {
+          File source = new File(roots[j], topLevel + ".java").getAbsoluteFile();
+          if (source.isFile()) {
+            Set classes = (Set) sourceClasses.get(source);
+            if (classes == null) {
+              classes = new HashSet();
+              sourceClasses.put(source, classes);
+            }
+            classes.add(className);
+            readReferences(className);
+            break;
+          }
+        }
+      }
+    }
+  }
+}
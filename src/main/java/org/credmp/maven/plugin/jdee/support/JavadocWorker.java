@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.jdee.FileUtil;
+
+/** Background worker which generate javadocs from queue file.
+ * <p>Worker is started by jdee goal in new java process, so it survive the
+ * maven run. Each line of queue file is one job: target directory and
+ * javadoc command separated by tabs.  Javadoc is generated to temporary
+ * directory which is renamed to target directory when javadoc finish, so the
+ * target directory exists only with complete javadoc.  Output of javadoc is
+ * in file next to target directory, failed job is marked by file with
+ * suffix {@link #FAILED_SUFFIX}, so it isn't queued again until sources are
+ * changed.  Output of worker itself is appended to file
+ * <code>worker.log</code> in directory of queue.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class JavadocWorker {
+
+  /** Suffix of file which mark queued javadoc */
+  public static final String QUEUED_SUFFIX = ".queued";
+  /** Suffix of temporary directory in which is javadoc generated */
+  public static final String TEMPORARY_SUFFIX = ".tmp";
+  /** Suffix of file with output of javadoc */
+  public static final String LOG_SUFFIX = ".log";
+  /** Suffix of file which mark failed javadoc */
+  public static final String FAILED_SUFFIX = ".failed";
+
+  /** Run worker
+   * @param args paths to queue files
+   */
+  public static void main(final String[] args) {
+    if (args.length > 0) {
+      // nobody read output of this process
+      try {
+        PrintStream log = new PrintStream(new FileOutputStream(
+            new File(new File(args[0]).getAbsoluteFile().getParentFile(), "worker" + LOG_SUFFIX), true));
+        System.setOut(log);
+        System.setErr(log);
+      } catch (IOException e) {
+        // output is lost
+      }
+    }
+    for (int i = 0; i < args.length; i++) {
+      processQueue(new File(args[i]));
+    }
+  }
+
+  /** Methode which process all jobs from queue file and delete it
+   * @param queue queue file
+   */
+  public static void processQueue(final File queue) {
+    List jobs = new ArrayList();
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(queue),
+                                                                       "UTF-8"));
+      try {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.length() > 0) {
+            jobs.add(line.split("\t"));
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      // nobody to report, maven is finished
+      return;
+    } finally {
+      queue.delete();
+    }
+
+    for (int i = 0; i < jobs.size(); i++) {
+      runJob((String[]) jobs.get(i));
+    }
+  }
+
+  /** Methode which generate one javadoc
+   * @param job target directory, javadoc executable and its arguments
+   * @return true if javadoc was generated
+   */
+  public static boolean runJob(final String[] job) {
+    if (job.length < 2) {
+      return false;
+    }
+    File target = new File(job[0]);
+    File temporary = new File(job[0] + TEMPORARY_SUFFIX);
+    File queued = new File(job[0] + QUEUED_SUFFIX);
+    File log = new File(job[0] + LOG_SUFFIX);
+    File failed = new File(job[0] + FAILED_SUFFIX);
+    boolean result = false;
+    try {
+      if (temporary.exists()) {
+        FileUtil.deleteDirectory(temporary);
+      }
+      temporary.mkdirs();
+
+      List command = new ArrayList();
+      command.add(job[1]);
+      command.add("-d");
+      command.add(temporary.getAbsolutePath());
+      for (int i = 2; i < job.length; i++) {
+        command.add(job[i]);
+      }
+      ProcessBuilder builder = new ProcessBuilder(command);
+      builder.redirectErrorStream(true);
+      Process process = builder.start();
+      process.getOutputStream().close();
+      OutputStream out = new FileOutputStream(log);
+      try {
+        copy(process.getInputStream(), out);
+      } finally {
+        out.close();
+      }
+
+      String[] generated = temporary.list();
+      if (process.waitFor() == 0 && generated != null && generated.length > 0) {
+        queued.delete();
+        if (target.exists()) {
+          FileUtil.deleteDirectory(target);
+        }
+        result = temporary.renameTo(target);
+        // javadoc must be newer then sources in which it lays
+        target.setLastModified(System.currentTimeMillis());
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
+    } finally {
+      if (temporary.exists()) {
+        FileUtil.deleteDirectory(temporary);
+      }
+      if (result) {
+        failed.delete();
+      } else {
+        markFailed(failed);
+      }
+      queued.delete();
+    }
+    return result;
+  }
+
+  /** Methode which create (or touch) mark of failed javadoc
+   * @param failed mark file
+   */
+  private static void markFailed(final File failed) {
+    try {
+      failed.createNewFile();
+    } catch (IOException e) {
+      // job is queued again next time
+    }
+    failed.setLastModified(System.currentTimeMillis());
+  }
+
+  /** Methode which copy whole stream
+   * @param in source stream
+   * @param out target stream
+   * @throws IOException if copy fails
+   */
+  private static void copy(final InputStream in, final OutputStream out) throws IOException {
+    byte[] buffer = new byte[8192];
+    int readed;
+    while ((readed = in.read(buffer)) > -1) {
+      out.write(buffer, 0, readed);
+    }
+  }
+}
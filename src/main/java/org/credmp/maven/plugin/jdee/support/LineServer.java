@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Simple line protocol for servers which are run from Emacs as
+ * inferior process.
+ * <p>Every line of input is one command.  Words of command are separated by
+ * white spaces, word with spaces (e.g. path) can be written in double quotes
+ * as Emacs lisp string (<code>\"</code> and <code>\\</code> are escapes
+ * in quotes).  Handler write answer to output and
+ * server end every answer by line <code>;; mep-done NAME MILLIS</code>, so
+ * Emacs know that the answer is complete.  Errors are written as lines
+ * <code>;; mep-error MESSAGE</code>.  Command <code>quit</code> or end of
+ * input stop the server.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class LineServer {
+
+  /** Prefix of line which end the answer */
+  public static final String DONE = ";; mep-done ";
+  /** Prefix of line with error */
+  public static final String ERROR = ";; mep-error ";
+  /** Command which stop server */
+  public static final String QUIT = "quit";
+
+  /** Handler of commands */
+  public interface Handler {
+    /** Methode which execute command
+     * @param command command name
+     * @param arguments arguments of command (separated by white spaces)
+     * @param out output for answer
+     * @throws Exception if command fails
+     */
+    void handle(String command, String[] arguments, PrintStream out) throws Exception;
+  }
+
+  /** Input with commands */
+  private final InputStream input;
+  /** Output for answers */
+  private final PrintStream output;
+  /** Handler of commands */
+  private final Handler handler;
+
+  /** Creates a new <code>LineServer</code> instance.
+   * @param input input with commands
+   * @param output output for answers
+   * @param handler handler of commands
+   */
+  public LineServer(final InputStream input, final PrintStream output, final Handler handler) {
+    super();
+    this.input = input;
+    this.output = output;
+    this.handler = handler;
+  }
+
+  /** Methode which read and execute commands until end of input or quit
+   * command
+   * @throws IOException if input cannot be read
+   */
+  public void run() throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(input));
+    output.println(DONE + "ready 0");
+    output.flush();
+    String line;
+    while ((line = reader.readLine()) != null) {
+      String[] words;
+      try {
+        words = split(line);
+      } catch (IllegalArgumentException e) {
+        output.println(ERROR + e.getMessage());
+        output.println(DONE + "error 0");
+        output.flush();
+        continue;
+      }
+      if (words.length == 0) {
+        continue;
+      }
+      if (QUIT.equals(words[0])) {
+        break;
+      }
+      String[] arguments = new String[words.length - 1];
+      System.arraycopy(words, 1, arguments, 0, arguments.length);
+      long start = System.currentTimeMillis();
+      try {
+        handler.handle(words[0], arguments, output);
+      } catch (Exception e) {
+        output.println(ERROR + e);
+      }
+      output.println(DONE + words[0] + " " + (System.currentTimeMillis() - start));
+      output.flush();
+    }
+  }
+
+  /** Methode which split command line to words.  Words are separated by
+   * white spaces, word in double quotes can contain spaces and escaped
+   * quotes and backslashes.
+   * @param line command line
+   * @return words
+   * @throws IllegalArgumentException if quotes are not closed
+   */
+  public static String[] split(final String line) {
+    List words = new ArrayList();
+    StringBuffer word = null;
+    boolean quoted = false;
+    for (int i = 0; i < line.length(); i++) {
+      char c = line.charAt(i);
+      if (quoted) {
+        if (c == '\\' && i + 1 < line.length()) {
+          word.append(line.charAt(++i));
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          word.append(c);
+        }
+      } else if (Character.isWhitespace(c)) {
+        if (word != null) {
+          words.add(word.toString());
+          word = null;
+        }
+      } else {
+        if (word == null) {
+          word = new StringBuffer();
+        }
+        if (c == '"') {
+          quoted = true;
+        } else {
+          word.append(c);
+        }
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unclosed quotes: " + line);
+    }
+    if (word != null) {
+      words.add(word.toString());
+    }
+    return (String[]) words.toArray(new String[words.size()]);
+  }
+}
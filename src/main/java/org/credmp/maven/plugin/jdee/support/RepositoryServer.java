@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** Minimal HTTP server which serve directory as maven repository.
+ * <p>Server is listening only on loopback.  It understands
+ * <code>GET</code> and <code>HEAD</code> requests, every connection is
+ * closed after the answer (HTTP/1.0).  Every request is delayed by latency
+ * (plus random jitter) and with given probability it fails with status
+ * 503, so it simulate slow or unreliable repository manager.  Counts of
+ * requests, failures and sent bytes are collected for benchmarks.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class RepositoryServer {
+
+  /** Root directory of repository */
+  private final File root;
+  /** Requested port (0 for any free port) */
+  private final int port;
+  /** Generator of random numbers for jitter and failures */
+  private final Random random;
+  /** Latency of every request in milliseconds */
+  private volatile long latency;
+  /** Maximal random addition to latency in milliseconds */
+  private volatile long jitter;
+  /** Probability of failed request */
+  private volatile double failureRate;
+
+  /** Listening socket */
+  private ServerSocket serverSocket;
+  /** Threads which answer requests */
+  private ExecutorService executor;
+  /** Count of requests */
+  private int requests;
+  /** Count of simulated failures */
+  private int failures;
+  /** Count of missing files */
+  private int missing;
+  /** Count of sent bytes */
+  private long bytes;
+
+  /** Creates a new <code>RepositoryServer</code> instance.
+   * @param root root directory of repository
+   * @param port port (0 for any free port)
+   * @param seed seed of random numbers
+   */
+  public RepositoryServer(final File root, final int port, final long seed) {
+    super();
+    this.root = root;
+    this.port = port;
+    this.random = new Random(seed);
+  }
+
+  /** Set the <code>Latency</code> value.
+   * @param newLatency latency of every request in milliseconds
+   */
+  public final void setLatency(final long newLatency) {
+    this.latency = newLatency;
+  }
+
+  /** Set the <code>Jitter</code> value.
+   * @param newJitter maximal random addition to latency in milliseconds
+   */
+  public final void setJitter(final long newJitter) {
+    this.jitter = newJitter;
+  }
+
+  /** Set the <code>FailureRate</code> value.
+   * @param newFailureRate probability (0 - 1) of failed request
+   */
+  public final void setFailureRate(final double newFailureRate) {
+    this.failureRate = newFailureRate;
+  }
+
+  /** Methode which start server
+   * @throws IOException if socket cannot be open
+   */
+  public synchronized void start() throws IOException {
+    serverSocket = new ServerSocket(port, 50, InetAddress.getByName("127.0.0.1"));
+    executor = Executors.newCachedThreadPool();
+    final ServerSocket socket = serverSocket;
+    executor.execute(new Runnable() {
+        public void run() {
+          while (!socket.isClosed()) {
+            try {
+              final Socket connection = socket.accept();
+              executor.execute(new Runnable() {
+                  public void run() {
+                    answer(connection);
+                  }
+                });
+            } catch (IOException e) {
+              // socket is closed
+            }
+          }
+        }
+      });
+  }
+
+  /** Methode which stop server */
+  public synchronized void stop() {
+    if (serverSocket != null) {
+      try {
+        serverSocket.close();
+      } catch (IOException e) {
+        // ignore
+      }
+      executor.shutdownNow();
+      serverSocket = null;
+    }
+  }
+
+  /** Methode which return URL of repository
+   * @return URL
+   */
+  public synchronized String getUrl() {
+    return "http://127.0.0.1:" + serverSocket.getLocalPort() + "/";
+  }
+
+  /** Methode which return statistics
+   * @return line with counts of requests, failures, missing files and sent
+   *         bytes
+   */
+  public synchronized String getStatistics() {
+    return "requests " + requests + " failures " + failures + " missing " + missing + " bytes " + bytes;
+  }
+
+  /** Methode which reset statistics */
+  public synchronized void resetStatistics() {
+    requests = 0;
+    failures = 0;
+    missing = 0;
+    bytes = 0;
+  }
+
+  /** Methode which answer one request
+   * @param connection connection with request
+   */
+  private void answer(final Socket connection) {
+    try {
+      BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), "ISO-8859-1"));
+      String request = in.readLine();
+      String line;
+      while ((line = in.readLine()) != null && line.length() > 0) {
+        // skip headers
+      }
+      OutputStream out = connection.getOutputStream();
+      String[] words = request == null ? new String[0] : request.split(" ");
+      if (words.length < 2 || !("GET".equals(words[0]) || "HEAD".equals(words[0]))) {
+        status(out, 400, "Bad Request", 0);
+        return;
+      }
+
+      long delay;
+      boolean fail;
+      synchronized (this) {
+        requests++;
+        delay = latency + (jitter > 0 ? (long) (random.nextDouble() * jitter) : 0);
+        fail = failureRate > 0 && random.nextDouble() < failureRate;
+        if (fail) {
+          failures++;
+        }
+      }
+      if (delay > 0) {
+        Thread.sleep(delay);
+      }
+      if (fail) {
+        status(out, 503, "Service Unavailable", 0);
+        return;
+      }
+
+      String path = URLDecoder.decode(words[1], "UTF-8");
+      int query = path.indexOf('?');
+      if (query > -1) {
+        path = path.substring(0, query);
+      }
+      File file = new File(root, path);
+      if (path.indexOf("..") > -1 || !file.isFile()) {
+        synchronized (this) {
+          missing++;
+        }
+        status(out, 404, "Not Found", 0);
+        return;
+      }
+
+      status(out, 200, "OK", file.length());
+      if ("GET".equals(words[0])) {
+        InputStream content = new FileInputStream(file);
+        try {
+          byte[] buffer = new byte[8192];
+          int n;
+          long sent = 0;
+          while ((n = content.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+            sent += n;
+          }
+          synchronized (this) {
+            bytes += sent;
+          }
+        } finally {
+          content.close();
+        }
+      }
+      out.flush();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      // client closed connection
+    } finally {
+      try {
+        connection.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  /** Methode which write status line and headers
+   * @param out output of connection
+   * @param code status code
+   * @param reason reason phrase
+   * @param length length of content
+   * @throws IOException if output cannot be written
+   */
+  private static void status(final OutputStream out, final int code, final String reason, final long length)
+    throws IOException {
+    out.write(("HTTP/1.0 " + code + " " + reason + "\r\n"
+               + "Content-Length: " + length + "\r\n"
+               + "Connection: close\r\n\r\n").getBytes("ISO-8859-1"));
+    out.flush();
+  }
+}
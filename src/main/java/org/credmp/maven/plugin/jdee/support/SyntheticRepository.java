@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/** Generator of synthetic maven repository.
+ * <p>Artifacts <code>synthetic.gN:aM:1.0</code> make directed acyclic graph
+ * (each artifact depends only on artifacts generated before it).  Every
+ * artifact has pom, jar with classes, and with given probability
+ * <code>-sources.jar</code> and <code>-javadoc.jar</code>.  All files have
+ * <code>.sha1</code> checksums.  The same seed give the same
+ * repository.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class SyntheticRepository {
+
+  /** Version of all artifacts */
+  public static final String VERSION = "1.0";
+  /** Count of artifacts in one group */
+  private static final int GROUP_SIZE = 50;
+
+  /** Root directory of repository */
+  private final File directory;
+  /** Generator of random numbers */
+  private final Random random;
+  /** Count of artifacts */
+  private int artifacts = 100;
+  /** Count of dependencies of one artifact */
+  private int dependencies = 5;
+  /** Count of classes in one jar */
+  private int classes = 10;
+  /** Probability of missing sources */
+  private double missingSources;
+  /** Probability of missing javadocs */
+  private double missingJavadocs;
+
+  /** Creates a new <code>SyntheticRepository</code> instance.
+   * @param directory root directory of repository
+   * @param seed seed of random numbers
+   */
+  public SyntheticRepository(final File directory, final long seed) {
+    super();
+    this.directory = directory;
+    this.random = new Random(seed);
+  }
+
+  /** Set the <code>Artifacts</code> value.
+   * @param newArtifacts The new Artifacts value.
+   */
+  public final void setArtifacts(final int newArtifacts) {
+    this.artifacts = newArtifacts;
+  }
+
+  /** Set the <code>Dependencies</code> value.
+   * @param newDependencies The new Dependencies value.
+   */
+  public final void setDependencies(final int newDependencies) {
+    this.dependencies = newDependencies;
+  }
+
+  /** Set the <code>Classes</code> value.
+   * @param newClasses The new Classes value.
+   */
+  public final void setClasses(final int newClasses) {
+    this.classes = Math.max(1, newClasses);
+  }
+
+  /** Set the <code>MissingSources</code> value.
+   * @param newMissingSources probability (0 - 1) of missing sources jar
+   */
+  public final void setMissingSources(final double newMissingSources) {
+    this.missingSources = newMissingSources;
+  }
+
+  /** Set the <code>MissingJavadocs</code> value.
+   * @param newMissingJavadocs probability (0 - 1) of missing javadoc jar
+   */
+  public final void setMissingJavadocs(final double newMissingJavadocs) {
+    this.missingJavadocs = newMissingJavadocs;
+  }
+
+  /** Methode which return group id of artifact
+   * @param index index of artifact
+   * @return group id
+   */
+  public static String groupId(final int index) {
+    return "synthetic.g" + (index / GROUP_SIZE);
+  }
+
+  /** Methode which return artifact id of artifact
+   * @param index index of artifact
+   * @return artifact id
+   */
+  public static String artifactId(final int index) {
+    return "a" + index;
+  }
+
+  /** Methode which generate repository
+   * @return count of written files
+   * @throws IOException if file cannot be written
+   */
+  public int generate() throws IOException {
+    int files = 0;
+    for (int i = 0; i < artifacts; i++) {
+      File dir = new File(directory, groupId(i).replace('.', '/') + "/" + artifactId(i) + "/" + VERSION);
+      dir.mkdirs();
+      String base = artifactId(i) + "-" + VERSION;
+
+      List deps = new ArrayList();
+      int count = Math.min(i, dependencies);
+      while (deps.size() < count) {
+        Integer dep = new Integer(random.nextInt(i));
+        if (!deps.contains(dep)) {
+          deps.add(dep);
+        }
+      }
+      StringBuffer depsXml = new StringBuffer();
+      for (int j = 0; j < deps.size(); j++) {
+        int dep = ((Integer) deps.get(j)).intValue();
+        depsXml.append(dependency(groupId(dep), artifactId(dep), VERSION));
+      }
+      files += write(new File(dir, base + ".pom"), pom(groupId(i), artifactId(i), VERSION, depsXml.toString(),
+                                                    ""));
+
+      String pkg = groupId(i).replace('.', '/') + "/" + artifactId(i);
+      files += writeJar(new File(dir, base + ".jar"), pkg, ".class", i);
+      if (random.nextDouble() >= missingSources) {
+        files += writeJar(new File(dir, base + "-sources.jar"), pkg, ".java", i);
+      }
+      if (random.nextDouble() >= missingJavadocs) {
+        files += writeJar(new File(dir, base + "-javadoc.jar"), pkg, ".html", i);
+      }
+    }
+    return files;
+  }
+
+  /** Methode which write project which depends on artifacts of repository
+   * @param projectDir directory of project (pom.xml is written)
+   * @param artifactId artifact id of project
+   * @param repositoryUrl URL of repository (e.g. served by {@link
+   *        RepositoryServer})
+   * @param count count of first level dependencies (the last generated
+   *        artifacts)
+   * @param modules artifact ids of modules (sub directories) or null
+   * @throws IOException if pom cannot be written
+   */
+  public void writeProject(final File projectDir, final String artifactId, final String repositoryUrl,
+                           final int count, final List modules) throws IOException {
+    StringBuffer depsXml = new StringBuffer();
+    for (int i = Math.max(0, artifacts - count); i < artifacts; i++) {
+      depsXml.append(dependency(groupId(i), artifactId(i), VERSION));
+    }
+    StringBuffer extra = new StringBuffer();
+    if (repositoryUrl != null) {
+      extra.append("  <repositories>\n"
+                   + "    <repository>\n"
+                   + "      <id>synthetic</id>\n"
+                   + "      <url>" + repositoryUrl + "</url>\n"
+                   + "    </repository>\n"
+                   + "  </repositories>\n");
+    }
+    if (modules != null && !modules.isEmpty()) {
+      extra.append("  <modules>\n");
+      for (int i = 0; i < modules.size(); i++) {
+        extra.append("    <module>" + modules.get(i) + "</module>\n");
+      }
+      extra.append("  </modules>\n");
+    }
+    String pom = pom("synthetic.project", artifactId, VERSION, depsXml.toString(), extra.toString());
+    if (modules != null && !modules.isEmpty()) {
+      pom = pom.replaceFirst("<packaging>jar</packaging>", "<packaging>pom</packaging>");
+    }
+    projectDir.mkdirs();
+    Writer out = new FileWriter(new File(projectDir, "pom.xml"));
+    try {
+      out.write(pom);
+    } finally {
+      out.close();
+    }
+    File sources = new File(projectDir, "src/main/java/synthetic/project");
+    sources.mkdirs();
+    Writer java = new FileWriter(new File(sources, "Main.java"));
+    try {
+      java.write("package synthetic.project;\n\npublic class Main {\n}\n");
+    } finally {
+      java.close();
+    }
+  }
+
+  /** Methode which return xml of dependency
+   * @param groupId group id
+   * @param artifactId artifact id
+   * @param version version
+   * @return xml
+   */
+  private static String dependency(final String groupId, final String artifactId, final String version) {
+    return "    <dependency>\n"
+      + "      <groupId>" + groupId + "</groupId>\n"
+      + "      <artifactId>" + artifactId + "</artifactId>\n"
+      + "      <version>" + version + "</version>\n"
+      + "    </dependency>\n";
+  }
+
+  /** Methode which return xml of pom
+   * @param groupId group id
+   * @param artifactId artifact id
+   * @param version version
+   * @param dependencies xml of dependencies
+   * @param extra other xml elements
+   * @return xml
+   */
+  private static String pom(final String groupId, final String artifactId, final String version,
+                            final String dependencies, final String extra) {
+    return "<project>\n"
+      + "  <modelVersion>4.0.0</modelVersion>\n"
+      + "  <groupId>" + groupId + "</groupId>\n"
+      + "  <artifactId>" + artifactId + "</artifactId>\n"
+      + "  <version>" + version + "</version>\n"
+      + "  <packaging>jar</packaging>\n"
+      + extra
+      + "  <dependencies>\n"
+      + dependencies
+      + "  </dependencies>\n"
+      + "</project>\n";
+  }
+
+  /** Methode which write text file and its checksum
+   * @param file written file
+   * @param content content of file
+   * @return count of written files
+   * @throws IOException if file cannot be written
+   */
+  private static int write(final File file, final String content) throws IOException {
+    OutputStream out = new FileOutputStream(file);
+    try {
+      out.write(content.getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+    writeChecksum(file);
+    return 2;
+  }
+
+  /** Methode which write jar with classes (or sources or html pages) and its
+   * checksum
+   * @param file written jar
+   * @param pkg package (internal form)
+   * @param suffix suffix of entries
+   * @param index index of artifact
+   * @return count of written files
+   * @throws IOException if file cannot be written
+   */
+  private int writeJar(final File file, final String pkg, final String suffix, final int index)
+    throws IOException {
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+    try {
+      out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+      out.write("Manifest-Version: 1.0\r\n\r\n".getBytes("UTF-8"));
+      for (int i = 0; i < classes; i++) {
+        String name = "C" + index + "x" + i;
+        out.putNextEntry(new ZipEntry(pkg + "/" + name + suffix));
+        if (".java".equals(suffix)) {
+          out.write(("package " + pkg.replace('/', '.') + ";\n\n/** Synthetic class " + name
+                     + ". */\npublic class " + name + " {\n}\n").getBytes("UTF-8"));
+        } else if (".html".equals(suffix)) {
+          out.write(("<html><body>" + name + "</body></html>\n").getBytes("UTF-8"));
+        } else {
+          out.write(classFile(pkg + "/" + name));
+        }
+      }
+    } finally {
+      out.close();
+    }
+    writeChecksum(file);
+    return 2;
+  }
+
+  /** Methode which return minimal class file of public class
+   * @param name class name in internal form
+   * @return content of class file
+   * @throws IOException never
+   */
+  private static byte[] classFile(final String name) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(0xCAFEBABE);
+    out.writeShort(0);
+    out.writeShort(49); // java 1.5
+    out.writeShort(5);
+    out.writeByte(1); // #1 Utf8 name
+    out.writeUTF(name);
+    out.writeByte(7); // #2 Class #1
+    out.writeShort(1);
+    out.writeByte(1); // #3 Utf8 super
+    out.writeUTF("java/lang/Object");
+    out.writeByte(7); // #4 Class #3
+    out.writeShort(3);
+    out.writeShort(0x21); // public super
+    out.writeShort(2);
+    out.writeShort(4);
+    out.writeShort(0); // interfaces
+    out.writeShort(0); // fields
+    out.writeShort(0); // methods
+    out.writeShort(0); // attributes
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  /** Methode which write <code>.sha1</code> file
+   * @param file file
+   * @throws IOException if file cannot be read or checksum written
+   */
+  private static void writeChecksum(final File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException("SHA-1 isn't supported");
+    }
+    InputStream in = new FileInputStream(file);
+    try {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        digest.update(buffer, 0, n);
+      }
+    } finally {
+      in.close();
+    }
+    byte[] sha = digest.digest();
+    StringBuffer hex = new StringBuffer();
+    for (int i = 0; i < sha.length; i++) {
+      hex.append(Integer.toHexString((sha[i] >> 4) & 0xf));
+      hex.append(Integer.toHexString(sha[i] & 0xf));
+    }
+    OutputStream out = new FileOutputStream(new File(file.getPath() + ".sha1"));
+    try {
+      out.write(hex.toString().getBytes("UTF-8"));
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+
+/** Runner of JUnit tests in warm JVM.
+ * <p>Dependencies of project are loaded once by one class loader.  Classes
+ * of project (test and main build directories) are loaded by new class
+ * loader for every run, so changed classes are always used and nothing
+ * stay from previous run.  JUnit is taken from dependencies of project and
+ * it is called by reflection: JUnit 4 (<code>JUnitCore</code>) if it is
+ * available, otherwise JUnit 3 (<code>TestSuite</code>).</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class TestRunner {
+
+  /** Class loader of dependencies */
+  private final ClassLoader dependencyLoader;
+  /** Directories with classes of project (test classes first) */
+  private final URL[] projectClasses;
+
+  /** Creates a new <code>TestRunner</code> instance.
+   * @param classDirectories directories with classes of project
+   * @param dependencies list of dependency jars (File)
+   * @throws MalformedURLException if some file cannot be converted to URL
+   */
+  public TestRunner(final File[] classDirectories, final List dependencies) throws MalformedURLException {
+    super();
+    projectClasses = new URL[classDirectories.length];
+    for (int i = 0; i < classDirectories.length; i++) {
+      projectClasses[i] = classDirectories[i].toURI().toURL();
+    }
+    URL[] urls = new URL[dependencies.size()];
+    int i = 0;
+    for (Iterator iter = dependencies.iterator(); iter.hasNext();) {
+      urls[i++] = ((File) iter.next()).toURI().toURL();
+    }
+    // parent is loader of JDK extensions, classes of maven are not visible
+    dependencyLoader = new URLClassLoader(urls, ClassLoader.getSystemClassLoader().getParent());
+  }
+
+  /** Methode which run test class or one test method
+   * @param className name of test class
+   * @param methodName name of test method or null for all tests of class
+   * @param out output for results
+   * @return true if all tests passed
+   * @throws Exception if test cannot be run (e.g. class doesn't exist)
+   */
+  public boolean run(final String className, final String methodName, final PrintStream out) throws Exception {
+    URLClassLoader loader = new URLClassLoader(projectClasses, dependencyLoader);
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    thread.setContextClassLoader(loader);
+    long start = System.currentTimeMillis();
+    try {
+      Class testClass = loader.loadClass(className);
+      int[] counts;
+      if (isAvailable(loader, "org.junit.runner.JUnitCore")) {
+        counts = runJUnit4(loader, testClass, methodName, out);
+      } else if (isAvailable(loader, "junit.framework.TestSuite")) {
+        counts = runJUnit3(loader, testClass, methodName, out);
+      } else {
+        throw new ClassNotFoundException("JUnit isn't in test dependencies");
+      }
+      out.println(";; tests " + className + (methodName != null ? "#" + methodName : "")
+                  + ": run " + counts[0] + ", failures " + counts[1] + ", ignored " + counts[2]
+                  + ", time " + (System.currentTimeMillis() - start) + " ms");
+      return counts[1] == 0;
+    } finally {
+      thread.setContextClassLoader(previous);
+      close(loader);
+    }
+  }
+
+  /** Methode which run tests by JUnit 4
+   * @param loader class loader of run
+   * @param testClass test class
+   * @param methodName test method or null
+   * @param out output for failures
+   * @return {run, failed, ignored}
+   * @throws Exception if JUnit cannot be called
+   */
+  private static int[] runJUnit4(final ClassLoader loader, final Class testClass, final String methodName,
+                                 final PrintStream out) throws Exception {
+    Class requestClass = loader.loadClass("org.junit.runner.Request");
+    Object request = methodName != null
+      ? requestClass.getMethod("method", new Class[] {Class.class, String.class})
+      .invoke(null, new Object[] {testClass, methodName})
+      : requestClass.getMethod("aClass", new Class[] {Class.class}).invoke(null, new Object[] {testClass});
+    Class coreClass = loader.loadClass("org.junit.runner.JUnitCore");
+    Object result = invoke(coreClass.newInstance(), "run", new Class[] {requestClass}, new Object[] {request});
+    List failures = (List) invoke(result, "getFailures", new Class[0], new Object[0]);
+    for (Iterator iter = failures.iterator(); iter.hasNext();) {
+      Object failure = iter.next();
+      out.println("FAILED " + invoke(failure, "getTestHeader", new Class[0], new Object[0]));
+      out.print(invoke(failure, "getTrace", new Class[0], new Object[0]));
+    }
+    return new int[] {((Integer) invoke(result, "getRunCount", new Class[0], new Object[0])).intValue(),
+                      failures.size(),
+                      ((Integer) invoke(result, "getIgnoreCount", new Class[0], new Object[0])).intValue()};
+  }
+
+  /** Methode which run tests by JUnit 3
+   * @param loader class loader of run
+   * @param testClass test class
+   * @param methodName test method or null
+   * @param out output for failures
+   * @return {run, failed, ignored}
+   * @throws Exception if JUnit cannot be called
+   */
+  private static int[] runJUnit3(final ClassLoader loader, final Class testClass, final String methodName,
+                                 final PrintStream out) throws Exception {
+    Class suiteClass = loader.loadClass("junit.framework.TestSuite");
+    Class testInterface = loader.loadClass("junit.framework.Test");
+    Class resultClass = loader.loadClass("junit.framework.TestResult");
+    Object test;
+    if (methodName != null) {
+      test = suiteClass.getMethod("createTest", new Class[] {Class.class, String.class})
+        .invoke(null, new Object[] {testClass, methodName});
+    } else {
+      Method suite = null;
+      try {
+        suite = testClass.getMethod("suite", new Class[0]);
+      } catch (NoSuchMethodException e) {
+        suite = null;
+      }
+      test = suite != null ? suite.invoke(null, new Object[0])
+        : suiteClass.getConstructor(new Class[] {Class.class}).newInstance(new Object[] {testClass});
+    }
+    Object result = resultClass.newInstance();
+    invoke(test, "run", new Class[] {resultClass}, new Object[] {result});
+    int failed = 0;
+    String[] kinds = {"errors", "failures"};
+    for (int i = 0; i < kinds.length; i++) {
+      Enumeration e = (Enumeration) invoke(result, kinds[i], new Class[0], new Object[0]);
+      while (e.hasMoreElements()) {
+        Object failure = e.nextElement();
+        failed++;
+        out.println("FAILED " + invoke(failure, "failedTest", new Class[0], new Object[0]));
+        out.print(invoke(failure, "trace", new Class[0], new Object[0]));
+      }
+    }
+    int run = ((Integer) invoke(result, "runCount", new Class[0], new Object[0])).intValue();
+    return new int[] {run, failed, 0};
+  }
+
+  /** Methode which call public methode by reflection
+   * @param target called object
+   * @param name name of methode
+   * @param types types of parameters
+   * @param arguments arguments
+   * @return result of methode
+   * @throws Exception if methode cannot be called or it fails
+   */
+  private static Object invoke(final Object target, final String name, final Class[] types,
+                               final Object[] arguments) throws Exception {
+    try {
+      return target.getClass().getMethod(name, types).invoke(target, arguments);
+    } catch (InvocationTargetException e) {
+      if (e.getTargetException() instanceof Exception) {
+        throw (Exception) e.getTargetException();
+      }
+      throw e;
+    }
+  }
+
+  /** Methode which return true if class is available
+   * @param loader class loader
+   * @param name class name
+   * @return true if class can be loaded
+   */
+  private static boolean isAvailable(final ClassLoader loader, final String name) {
+    try {
+      loader.loadClass(name);
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  /** Methode which close class loader (on java 7 and newer), so opened files
+   * are released
+   * @param loader closed loader
+   */
+  private static void close(final URLClassLoader loader) {
+    try {
+      URLClassLoader.class.getMethod("close", new Class[0]).invoke(loader, new Object[0]);
+    } catch (Exception e) {
+      // java older then 1.7, loader is collected by gc
+    }
+  }
+}
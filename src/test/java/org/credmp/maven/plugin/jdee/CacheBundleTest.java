@@ -0,0 +1,209 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/** Tests of {@link CacheBundle} and of goal cache-import.
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class CacheBundleTest extends TestCase {
+
+  /** Temporary directory of test */
+  private File directory;
+  /** Exported cache */
+  private File source;
+  /** Cache to which is bundle imported */
+  private File target;
+  /** Bundle */
+  private File bundle;
+
+  /** Methode which create temporary directory with exported cache
+   * @throws Exception if directory cannot be created
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("cache-bundle", "");
+    directory.delete();
+    directory.mkdirs();
+    source = new File(directory, "source");
+    target = new File(directory, "target");
+    bundle = new File(directory, "bundle.zip");
+    write(new File(source, "g/a/1.0/sources/a/A.java"), "class A { }");
+    write(new File(source, "g/a/1.0/javadoc/index.html"), "<html>A</html>");
+    write(new File(source, "g/b/2.0/sources/b/B.java"), "class B { }");
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** Only safe paths have entry
+   * @throws Exception if test fails
+   */
+  public void testEntryOf() throws Exception {
+    assertEquals("g/a/1.0", CacheBundle.entryOf("g/a/1.0/sources/A.java"));
+    assertNull(CacheBundle.entryOf("g/a/1.0"));
+    assertNull(CacheBundle.entryOf("../../home/x"));
+    assertNull(CacheBundle.entryOf("g/../../home/x/y"));
+    assertNull(CacheBundle.entryOf("g/a/1.0/../../../../x"));
+    assertNull(CacheBundle.entryOf("/home/x/y/z"));
+    assertNull(CacheBundle.entryOf("g//1.0/sources/A.java"));
+    assertNull(CacheBundle.entryOf("g/./1.0/A.java"));
+    assertNull(CacheBundle.entryOf("c:/g/a/1.0/A.java"));
+    assertNull(CacheBundle.entryOf("g\\a\\1.0\\A.java"));
+    assertNull(CacheBundle.entryOf(".locks/g/a/1.0.lock"));
+    assertNull(CacheBundle.entryOf("g/a/1.0/sources/"));
+  }
+
+  /** Exported entries are imported with the same content
+   * @throws Exception if test fails
+   */
+  public void testRoundTrip() throws Exception {
+    assertEquals(3, CacheBundle.write(source, Arrays.asList(new String[] {"g/a/1.0", "g/b/2.0", "g/c/3.0"}),
+                                      bundle));
+    Map manifest = CacheBundle.readManifest(bundle);
+    assertEquals(Arrays.asList(new String[] {"g/a/1.0/javadoc/index.html", "g/a/1.0/sources/a/A.java",
+                                             "g/b/2.0/sources/b/B.java"}),
+                 Arrays.asList(manifest.keySet().toArray()));
+
+    importBundle();
+    assertEquals("class A { }", read(new File(target, "g/a/1.0/sources/a/A.java")));
+    assertEquals("<html>A</html>", read(new File(target, "g/a/1.0/javadoc/index.html")));
+    assertEquals("class B { }", read(new File(target, "g/b/2.0/sources/b/B.java")));
+    assertEquals(2, CacheRegistry.entries(target, bundle).size());
+
+    // changed file in cache is extracted again, the same entry is kept
+    write(new File(target, "g/b/2.0/sources/b/B.java"), "class B { int changed; }");
+    importBundle();
+    assertEquals("class B { }", read(new File(target, "g/b/2.0/sources/b/B.java")));
+  }
+
+  /** Entry with corrupted data isn't imported, other entries are
+   * @throws Exception if test fails
+   */
+  public void testCorruptedBundle() throws Exception {
+    write(new File(source, "g/b/2.0/sources/b/B.java"), "class B { /* stored */ }");
+    CacheBundle.write(source, Arrays.asList(new String[] {"g/a/1.0", "g/b/2.0"}), bundle);
+    RandomAccessFile raf = new RandomAccessFile(bundle, "rw");
+    try {
+      // change name of file in local header and data of B.java
+      byte[] bytes = new byte[(int) raf.length()];
+      raf.readFully(bytes);
+      int index = new String(bytes, "ISO-8859-1").indexOf("g/b/2.0/sources/b/B.java");
+      raf.seek(index + "g/b/2.0/sources/b/B.java".length() + 2);
+      raf.write(~bytes[index + "g/b/2.0/sources/b/B.java".length() + 2]);
+    } finally {
+      raf.close();
+    }
+    try {
+      importBundle();
+      fail("Corrupted entry was imported");
+    } catch (MojoExecutionException e) {
+      assertTrue(e.getMessage(), e.getMessage().indexOf("g/b/2.0") > -1);
+    }
+    assertEquals("class A { }", read(new File(target, "g/a/1.0/sources/a/A.java")));
+    assertFalse(new File(target, "g/b/2.0").exists());
+    assertEquals(1, CacheRegistry.entries(target, bundle).size());
+  }
+
+  /** Bundle with path out of cache is refused and nothing is deleted
+   * @throws Exception if test fails
+   */
+  public void testPathOutOfCache() throws Exception {
+    File outside = new File(directory, "home/x/keep.txt");
+    write(outside, "keep");
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(bundle));
+    out.putNextEntry(new ZipEntry("../home/x/y/file.txt"));
+    out.write("evil".getBytes("US-ASCII"));
+    out.closeEntry();
+    out.putNextEntry(new ZipEntry(CacheBundle.MANIFEST));
+    out.write("0 4 ../home/x/y/file.txt\n".getBytes("US-ASCII"));
+    out.closeEntry();
+    out.close();
+    try {
+      importBundle();
+      fail("Path out of cache was accepted");
+    } catch (MojoExecutionException e) {
+      assertTrue(e.getMessage(), e.getMessage().indexOf("../home/x") > -1);
+    }
+    assertEquals("keep", read(outside));
+  }
+
+  /** Methode which import bundle to target cache by goal cache-import
+   * @throws Exception if import fails
+   */
+  private void importBundle() throws Exception {
+    CacheImportMojo mojo = new CacheImportMojo();
+    setField(mojo, "globalCachePath", target);
+    setField(mojo, "cacheBundle", bundle);
+    setField(mojo, "ioThreads", new Integer(2));
+    mojo.execute();
+  }
+
+  /** Methode which set private field of mojo (as maven does)
+   * @param mojo mojo
+   * @param name name of field
+   * @param value value of field
+   * @throws Exception if field doesn't exist
+   */
+  private static void setField(final Object mojo, final String name, final Object value) throws Exception {
+    Field field = mojo.getClass().getDeclaredField(name);
+    field.setAccessible(true);
+    field.set(mojo, value);
+  }
+
+  /** Methode which write file
+   * @param file written file
+   * @param content content of file
+   * @throws Exception if file cannot be written
+   */
+  private static void write(final File file, final String content) throws Exception {
+    file.getParentFile().mkdirs();
+    FileWriter writer = new FileWriter(file);
+    writer.write(content);
+    writer.close();
+  }
+
+  /** Methode which read file
+   * @param file read file
+   * @return content of file
+   * @throws Exception if file cannot be read
+   */
+  private static String read(final File file) throws Exception {
+    StringBuffer result = new StringBuffer();
+    FileReader reader = new FileReader(file);
+    try {
+      char[] buffer = new char[1024];
+      for (int n = reader.read(buffer); n > 0; n = reader.read(buffer)) {
+        result.append(buffer, 0, n);
+      }
+    } finally {
+      reader.close();
+    }
+    return result.toString();
+  }
+}
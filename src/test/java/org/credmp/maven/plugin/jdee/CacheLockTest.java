@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/** Tests of {@link CacheLock} used by many modules at once.
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class CacheLockTest extends TestCase {
+
+  /** Count of simulated modules */
+  private static final int MODULES = 16;
+
+  /** Temporary directory of test */
+  private File directory;
+  /** Cache directory */
+  private File cache;
+
+  /** Methode which create temporary directory
+   * @throws Exception if directory cannot be created
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("cache-lock", "");
+    directory.delete();
+    directory.mkdirs();
+    cache = new File(directory, "cache");
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** Paths with the same CRC-32 have own lock files and can be locked at
+   * once
+   * @throws Exception if test fails
+   */
+  public void testPathsWithSameCrc() throws Exception {
+    File first = new File(cache, "org/lib29685295/1.0/sources");
+    File second = new File(cache, "org/lib32060020/1.0/sources");
+    assertFalse(CacheLock.lockFile(cache, first).equals(CacheLock.lockFile(cache, second)));
+
+    CacheLock firstLock = CacheLock.lock(cache, first);
+    try {
+      CacheLock secondLock = CacheLock.tryLock(cache, second);
+      assertNotNull(secondLock);
+      secondLock.release();
+      assertNull(CacheLock.tryLock(cache, first));
+    } finally {
+      firstLock.release();
+    }
+  }
+
+  /** Lock files of paths in and outside of cache
+   * @throws Exception if test fails
+   */
+  public void testLockFiles() throws Exception {
+    File locks = new File(cache, CacheLock.DIRECTORY);
+    assertEquals(new File(locks, "g/a/1.0/javadoc.lock").getAbsoluteFile(),
+                 CacheLock.lockFile(cache, new File(cache, "g/a/1.0/javadoc")));
+    assertEquals(new File(locks, "g/a/1.0.lock").getAbsoluteFile(),
+                 CacheLock.lockFile(cache, new File(cache, "g/a/1.0")));
+    File outside = new File(directory, "cache2/g");
+    assertTrue(CacheLock.lockFile(cache, outside).getPath().startsWith(locks.getAbsolutePath()));
+    assertFalse(CacheLock.lockFile(cache, outside).equals(CacheLock.lockFile(cache, new File(cache, "g"))));
+  }
+
+  /** Modules extract the same and own attachments into cache at once (as
+   * goals jdee or prefetch in parallel build), every attachment is
+   * extracted only once and no lock fails
+   * @throws Exception if test fails
+   */
+  public void testModulesAtOnce() throws Exception {
+    final File shared = archive("shared.jar", "a/Shared.java");
+    final AtomicInteger extracted = new AtomicInteger();
+    final AtomicInteger inside = new AtomicInteger();
+    List tasks = new ArrayList();
+    for (int i = 0; i < MODULES; i++) {
+      final int module = i;
+      tasks.add(new Callable() {
+          public Object call() throws Exception {
+            ZipExtractor extractor = new ZipExtractor(new SystemStreamLog());
+            try {
+              for (int round = 0; round < 20; round++) {
+                // shared entry, then own entry of module
+                extract(extractor, shared, new File(cache, "org/shared/1.0/sources"), inside, extracted);
+                File own = archive("own" + module + "-" + round + ".jar", "b/Own" + module + ".java");
+                extract(extractor, own, new File(cache, "org/lib" + (10000000 + module * 100 + round)
+                                                 + "/1.0/sources"), null, null);
+              }
+              CacheRegistry.register(cache, new File(directory, "module" + module),
+                                     Collections.singleton("org/shared/1.0"));
+            } finally {
+              extractor.close();
+            }
+            return null;
+          }
+        });
+    }
+    IoExecutor executor = new IoExecutor(MODULES);
+    try {
+      assertEquals(MODULES, executor.invokeAll(tasks).size());
+    } finally {
+      executor.close();
+    }
+    assertEquals(1, extracted.get());
+    assertTrue(new File(cache, "org/shared/1.0/sources/a/Shared.java").isFile());
+    for (int i = 0; i < MODULES; i++) {
+      assertTrue(new File(cache, "org/lib" + (10000000 + i * 100 + 19) + "/1.0/sources/b/Own" + i + ".java")
+                 .isFile());
+      assertEquals(Collections.singleton("org/shared/1.0"),
+                   CacheRegistry.entries(cache, new File(directory, "module" + i)));
+    }
+  }
+
+  /** Methode which extract archive to locked directory if it is stale (as
+   * goal jdee)
+   * @param extractor extractor
+   * @param archive archive
+   * @param target target directory
+   * @param inside count of threads in locked section or null
+   * @param extracted count of extractions or null
+   * @throws Exception if archive cannot be extracted
+   */
+  private void extract(final ZipExtractor extractor, final File archive, final File target,
+                       final AtomicInteger inside, final AtomicInteger extracted) throws Exception {
+    CacheLock lock = CacheLock.lock(cache, target);
+    try {
+      if (inside != null) {
+        assertEquals(1, inside.incrementAndGet());
+      }
+      if (!target.exists() || ZipExtractor.isStale(target, archive)) {
+        target.mkdirs();
+        extractor.update(archive, target);
+        if (extracted != null) {
+          extracted.incrementAndGet();
+        }
+      }
+      if (inside != null) {
+        inside.decrementAndGet();
+      }
+    } finally {
+      lock.release();
+    }
+  }
+
+  /** Methode which write archive with one entry
+   * @param name name of archive
+   * @param entry name of entry
+   * @return archive
+   * @throws Exception if archive cannot be written
+   */
+  private File archive(final String name, final String entry) throws Exception {
+    File result = new File(directory, name);
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(result));
+    out.putNextEntry(new ZipEntry(entry));
+    out.write(("class of " + name).getBytes("US-ASCII"));
+    out.closeEntry();
+    out.close();
+    return result;
+  }
+}
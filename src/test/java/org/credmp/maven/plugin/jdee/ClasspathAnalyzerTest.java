@@ -0,0 +1,150 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/** Tests of {@link ClasspathAnalyzer}.
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class ClasspathAnalyzerTest extends TestCase {
+
+  /** Temporary directory of test */
+  private File directory;
+
+  /** Methode which create temporary directory
+   * @throws Exception if directory cannot be created
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("classpath-analyzer", "");
+    directory.delete();
+    directory.mkdirs();
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** Jar which provides only super type of used class isn't dead
+   * @throws Exception if test fails
+   */
+  public void testSuperTypeJarIsUsed() throws Exception {
+    File api = jar("api", "a/Base.java", "package a; public interface Base { }", null);
+    File impl = jar("impl", "b/Impl.java", "package b; public class Impl implements a.Base { }", api);
+    File unused = jar("unused", "c/Unused.java", "package c; public class Unused { }", null);
+    File classes = compile("classes", "p/Use.java",
+                           "package p; public class Use { Object o = new b.Impl(); }", impl, api);
+
+    ClasspathAnalyzer analyzer = new ClasspathAnalyzer(new SystemStreamLog(), 2);
+    analyzer.indexJars(Arrays.asList(new File[] {api, impl, unused}));
+    Set dead = analyzer.deadJars(new File[] {classes});
+    assertEquals(Collections.singleton(unused), dead);
+  }
+
+  /** Class which cannot be read means unknown references, no jar is dead
+   * @throws Exception if test fails
+   */
+  public void testUnreadableClass() throws Exception {
+    File unused = jar("unused", "c/Unused.java", "package c; public class Unused { }", null);
+    File classes = new File(directory, "classes");
+    classes.mkdirs();
+    FileOutputStream out = new FileOutputStream(new File(classes, "Broken.class"));
+    out.write(new byte[] {1, 2, 3});
+    out.close();
+
+    ClasspathAnalyzer analyzer = new ClasspathAnalyzer(new SystemStreamLog(), 1);
+    analyzer.indexJars(Collections.singletonList(unused));
+    assertNull(analyzer.deadJars(new File[] {classes}));
+  }
+
+  /** Methode which compile one source file and pack it to jar
+   * @param name name of jar
+   * @param path path of source file
+   * @param source content of source file
+   * @param classpath jar on classpath or null
+   * @return jar file
+   * @throws Exception if source cannot be compiled
+   */
+  private File jar(final String name, final String path, final String source,
+                   final File classpath) throws Exception {
+    File classes = compile(name, path, source, classpath, null);
+    String entry = path.substring(0, path.length() - 5) + ".class";
+    File result = new File(directory, name + ".jar");
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(result));
+    InputStream in = new FileInputStream(new File(classes, entry));
+    try {
+      out.putNextEntry(new ZipEntry(entry));
+      byte[] buffer = new byte[4096];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+      out.closeEntry();
+    } finally {
+      in.close();
+      out.close();
+    }
+    return result;
+  }
+
+  /** Methode which compile one source file
+   * @param name name of output directory
+   * @param path path of source file
+   * @param source content of source file
+   * @param first first jar on classpath or null
+   * @param second second jar on classpath or null
+   * @return directory with compiled class
+   * @throws Exception if source cannot be compiled
+   */
+  private File compile(final String name, final String path, final String source,
+                       final File first, final File second) throws Exception {
+    File sources = new File(directory, name + "-src");
+    File file = new File(sources, path);
+    file.getParentFile().mkdirs();
+    FileWriter writer = new FileWriter(file);
+    writer.write(source);
+    writer.close();
+    File classes = new File(directory, name);
+    classes.mkdirs();
+
+    List args = new ArrayList();
+    args.add("-d");
+    args.add(classes.getPath());
+    if (first != null) {
+      args.add("-classpath");
+      args.add(first.getPath() + (second != null ? File.pathSeparator + second.getPath() : ""));
+    }
+    args.add(file.getPath());
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    assertNotNull("Test needs JDK", compiler);
+    assertEquals(0, compiler.run(null, null, null, (String[]) args.toArray(new String[args.size()])));
+    return classes;
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+
+/** Tests of {@link IoExecutor}.
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class IoExecutorTest extends TestCase {
+
+  /** Count of threads bounds running tasks (also in virtual threads)
+   * @throws Exception if test fails
+   */
+  public void testThreadsBoundRunningTasks() throws Exception {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maximum = new AtomicInteger();
+    List tasks = new ArrayList();
+    for (int i = 0; i < 40; i++) {
+      tasks.add(new Callable() {
+          public Object call() throws Exception {
+            int now = running.incrementAndGet();
+            synchronized (maximum) {
+              maximum.set(Math.max(maximum.get(), now));
+            }
+            Thread.sleep(5);
+            running.decrementAndGet();
+            return null;
+          }
+        });
+    }
+    IoExecutor executor = new IoExecutor(3);
+    try {
+      assertEquals(40, executor.invokeAll(tasks).size());
+    } finally {
+      executor.close();
+    }
+    assertTrue("Running tasks: " + maximum.get(), maximum.get() <= 3);
+  }
+
+  /** Failed task doesn't cancel other tasks of invokeEach
+   * @throws Exception if test fails
+   */
+  public void testInvokeEachKeepsResults() throws Exception {
+    List tasks = new ArrayList();
+    for (int i = 0; i < 10; i++) {
+      final int index = i;
+      tasks.add(new Callable() {
+          public Object call() throws Exception {
+            if (index == 0) {
+              throw new IOException("first fails");
+            }
+            Thread.sleep(10);
+            return new Integer(index);
+          }
+        });
+    }
+    IoExecutor executor = new IoExecutor(4);
+    try {
+      List futures = executor.invokeEach(tasks);
+      assertEquals(10, futures.size());
+      try {
+        ((Future) futures.get(0)).get();
+        fail("Failure isn't reported");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IOException);
+      }
+      for (int i = 1; i < 10; i++) {
+        assertEquals(new Integer(i), ((Future) futures.get(i)).get());
+      }
+    } finally {
+      executor.close();
+    }
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.StringTokenizer;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import junit.framework.TestCase;
+
+/** Tests of {@link PathingJar}.
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class PathingJarTest extends TestCase {
+
+  /** Temporary directory of test */
+  private File directory;
+
+  /** Methode which create temporary directory
+   * @throws Exception if directory cannot be created
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("pathing-jar", "");
+    directory.delete();
+    directory.mkdirs();
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** Class-Path contains relative URLs which resolve to given files
+   * @throws Exception if test fails
+   */
+  public void testRelativeClassPath() throws Exception {
+    File jar = new File(directory, "project/prj-classpath.jar");
+    File dependency = new File(directory, "repo/my group/lib-1.0.jar");
+    File classes = new File(directory, "project/target/classes");
+    File sibling = new File(directory, "project/target/other.jar");
+    classes.mkdirs();
+
+    assertTrue(PathingJar.write(jar, Arrays.asList(new File[] {dependency, classes, sibling})));
+    assertFalse(PathingJar.write(jar, Arrays.asList(new File[] {dependency, classes, sibling})));
+
+    JarFile file = new JarFile(jar);
+    String classPath;
+    try {
+      classPath = file.getManifest().getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+    } finally {
+      file.close();
+    }
+    StringTokenizer tokens = new StringTokenizer(classPath, " ");
+    assertEquals("../repo/my%20group/lib-1.0.jar", tokens.nextToken());
+    assertEquals("target/classes/", tokens.nextToken());
+    assertEquals("target/other.jar", tokens.nextToken());
+    assertFalse(tokens.hasMoreTokens());
+
+    URL base = jar.toURI().toURL();
+    assertEquals(dependency.getCanonicalFile().toURI(),
+                 new File(new URL(base, "../repo/my%20group/lib-1.0.jar").toURI()).getCanonicalFile().toURI());
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.maven.plugin.jdee;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+
+/** Tests of {@link ZipExtractor}.
+ * @author Lukas Benda
+ * @version 1.3
+ */
+public class ZipExtractorTest extends TestCase {
+
+  /** Temporary directory of test */
+  private File directory;
+
+  /** Methode which create temporary directory
+   * @throws Exception if directory cannot be created
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("zip-extractor", "");
+    directory.delete();
+    directory.mkdirs();
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** Archive with exactly 65535 entries isn't ZIP64
+   * @throws Exception if test fails
+   */
+  public void testSentinelCountWithoutZip64() throws Exception {
+    int count = 0xFFFF;
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    ByteArrayOutputStream cd = new ByteArrayOutputStream();
+    for (int i = 0; i < count; i++) {
+      byte[] name = ("e" + (100000 + i)).getBytes("US-ASCII");
+      int offset = data.size();
+      // local header of empty stored entry
+      writeInt(data, 0x04034b50);
+      writeShort(data, 10);
+      writeShort(data, 0);
+      writeShort(data, ZipExtractor.STORED);
+      writeInt(data, 0);
+      writeInt(data, 0);
+      writeInt(data, 0);
+      writeInt(data, 0);
+      writeShort(data, name.length);
+      writeShort(data, 0);
+      data.write(name);
+      // central directory header
+      writeInt(cd, 0x02014b50);
+      writeShort(cd, 10);
+      writeShort(cd, 10);
+      writeShort(cd, 0);
+      writeShort(cd, ZipExtractor.STORED);
+      writeInt(cd, 0);
+      writeInt(cd, 0);
+      writeInt(cd, 0);
+      writeInt(cd, 0);
+      writeShort(cd, name.length);
+      writeShort(cd, 0);
+      writeShort(cd, 0);
+      writeShort(cd, 0);
+      writeShort(cd, 0);
+      writeInt(cd, 0);
+      writeInt(cd, offset);
+      cd.write(name);
+    }
+    int cdOffset = data.size();
+    cd.writeTo(data);
+    writeInt(data, 0x06054b50);
+    writeShort(data, 0);
+    writeShort(data, 0);
+    writeShort(data, count);
+    writeShort(data, count);
+    writeInt(data, cd.size());
+    writeInt(data, cdOffset);
+    writeShort(data, 0);
+
+    File archive = new File(directory, "many.zip");
+    FileOutputStream out = new FileOutputStream(archive);
+    data.writeTo(out);
+    out.close();
+
+    RandomAccessFile raf = new RandomAccessFile(archive, "r");
+    try {
+      List entries = ZipExtractor.readEntries(raf.getChannel());
+      assertEquals(count, entries.size());
+      assertEquals("e165534", ((ZipExtractor.Entry) entries.get(count - 1)).getName());
+    } finally {
+      raf.close();
+    }
+  }
+
+  /** Stored entry with wrong CRC isn't extracted
+   * @throws Exception if test fails
+   */
+  public void testStoredEntryCrc() throws Exception {
+    byte[] content = "stored content".getBytes("US-ASCII");
+    File archive = new File(directory, "stored.zip");
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
+    ZipEntry entry = new ZipEntry("a/Stored.java");
+    entry.setMethod(ZipEntry.STORED);
+    entry.setSize(content.length);
+    CRC32 crc = new CRC32();
+    crc.update(content);
+    entry.setCrc(crc.getValue());
+    out.putNextEntry(entry);
+    out.write(content);
+    out.closeEntry();
+    out.close();
+
+    ZipExtractor extractor = new ZipExtractor(new SystemStreamLog());
+    try {
+      File target = new File(directory, "good");
+      assertEquals(1, extractor.extract(archive, target));
+      assertEquals(content.length, new File(target, "a/Stored.java").length());
+
+      // change one byte of stored data
+      RandomAccessFile raf = new RandomAccessFile(archive, "rw");
+      try {
+        byte[] bytes = new byte[(int) raf.length()];
+        raf.readFully(bytes);
+        int index = new String(bytes, "ISO-8859-1").indexOf("stored content");
+        raf.seek(index);
+        raf.write('S');
+      } finally {
+        raf.close();
+      }
+      target = new File(directory, "broken");
+      assertEquals(0, extractor.extract(archive, target));
+      assertFalse(new File(target, "a/Stored.java").exists());
+    } finally {
+      extractor.close();
+    }
+  }
+
+  /** Extraction of shared file doesn't change time of other extracted copies
+   * @throws Exception if test fails
+   */
+  public void testSharedFileKeepsTime() throws Exception {
+    BlobStore blobStore = new BlobStore(new File(directory, BlobStore.DIRECTORY));
+    long oldTime = 1000000000000L;
+    long newTime = 1200000000000L;
+    File first = new File(directory, "first.zip");
+    File second = new File(directory, "second.zip");
+    writeArchive(first, "Shared.java", "shared content", oldTime);
+    writeArchive(second, "Shared.java", "shared content", newTime);
+
+    ZipExtractor extractor = new ZipExtractor(new SystemStreamLog());
+    extractor.setBlobStore(blobStore);
+    try {
+      File firstFile = new File(new File(directory, "first"), "Shared.java");
+      File secondFile = new File(new File(directory, "second"), "Shared.java");
+      assertEquals(1, extractor.extract(first, firstFile.getParentFile()));
+      long time = firstFile.lastModified();
+      assertEquals(1, extractor.extract(second, secondFile.getParentFile()));
+      assertEquals("shared content".length(), secondFile.length());
+      assertEquals(time, firstFile.lastModified());
+      if (blobStore.linkCount(secondFile) == 1) {
+        // private copy gets time of its entry
+        assertTrue(secondFile.lastModified() > time);
+      }
+    } finally {
+      extractor.close();
+    }
+  }
+
+  /** Update rewrites only changed entry and keeps other files of directory
+   * @throws Exception if test fails
+   */
+  public void testUpdateChangedEntry() throws Exception {
+    File archive = new File(directory, "sources.jar");
+    File target = new File(directory, "sources");
+    writeArchive(archive, new String[] {"a/A.java", "class A { }", "a/B.java", "class B { }"});
+    ZipExtractor extractor = new ZipExtractor(new SystemStreamLog());
+    try {
+      assertEquals(2, extractor.update(archive, target));
+      File other = new File(target, "javadoc/index.html");
+      other.getParentFile().mkdirs();
+      other.createNewFile();
+      File unchanged = new File(target, "a/B.java");
+      unchanged.setLastModified(1000000000000L);
+
+      writeArchive(archive, new String[] {"a/A.java", "class A { int x; }", "a/B.java", "class B { }"});
+      assertEquals(1, extractor.update(archive, target));
+      assertEquals("class A { int x; }", FileUtil.readFile(new File(target, "a/A.java")));
+      assertEquals(1000000000000L, unchanged.lastModified());
+      assertTrue(other.isFile());
+    } finally {
+      extractor.close();
+    }
+  }
+
+  /** Update deletes files of removed entries and their empty directories
+   * @throws Exception if test fails
+   */
+  public void testUpdateRemovedEntry() throws Exception {
+    File archive = new File(directory, "sources.jar");
+    File target = new File(directory, "sources");
+    writeArchive(archive, new String[] {"a/A.java", "class A { }", "b/c/C.java", "class C { }"});
+    ZipExtractor extractor = new ZipExtractor(new SystemStreamLog());
+    try {
+      assertEquals(2, extractor.update(archive, target));
+
+      writeArchive(archive, new String[] {"a/A.java", "class A { }"});
+      assertEquals(1, extractor.update(archive, target));
+      assertTrue(new File(target, "a/A.java").isFile());
+      assertFalse(new File(target, "b").exists());
+      assertTrue(target.isDirectory());
+      assertTrue(FileUtil.readFile(new File(target, ZipExtractor.MANIFEST)).indexOf("b/c/C.java") < 0);
+    } finally {
+      extractor.close();
+    }
+  }
+
+  /** Update from the same archive writes nothing, only time of manifest
+   * is moved
+   * @throws Exception if test fails
+   */
+  public void testUpdateUnchanged() throws Exception {
+    File archive = new File(directory, "sources.jar");
+    File target = new File(directory, "sources");
+    writeArchive(archive, new String[] {"a/A.java", "class A { }"});
+    ZipExtractor extractor = new ZipExtractor(new SystemStreamLog());
+    try {
+      assertEquals(1, extractor.update(archive, target));
+      File manifest = new File(target, ZipExtractor.MANIFEST);
+      String content = FileUtil.readFile(manifest);
+      File file = new File(target, "a/A.java");
+      file.setLastModified(1000000000000L);
+      manifest.setLastModified(1000000000000L);
+      target.setLastModified(1000000000000L);
+      // re-downloaded archive is newer then extraction
+      archive.setLastModified(1100000000000L);
+      assertTrue(ZipExtractor.isStale(target, archive));
+
+      assertEquals(0, extractor.update(archive, target));
+      assertEquals(content, FileUtil.readFile(manifest));
+      assertEquals(1000000000000L, file.lastModified());
+      assertTrue(manifest.lastModified() > archive.lastModified());
+      assertFalse(ZipExtractor.isStale(target, archive));
+    } finally {
+      extractor.close();
+    }
+  }
+
+  /** Directory without manifest or with broken manifest is cleaned and
+   * extracted whole
+   * @throws Exception if test fails
+   */
+  public void testUpdateWithoutManifest() throws Exception {
+    File archive = new File(directory, "sources.jar");
+    File target = new File(directory, "sources");
+    writeArchive(archive, new String[] {"a/A.java", "class A { }", "a/B.java", "class B { }"});
+    ZipExtractor extractor = new ZipExtractor(new SystemStreamLog());
+    try {
+      assertEquals(2, extractor.update(archive, target));
+      File manifest = new File(target, ZipExtractor.MANIFEST);
+      File stale = new File(target, "old/Stale.java");
+      stale.getParentFile().mkdirs();
+      stale.createNewFile();
+
+      assertTrue(manifest.delete());
+      assertEquals(2, extractor.update(archive, target));
+      assertFalse(stale.exists());
+      assertTrue(manifest.isFile());
+
+      FileWriter writer = new FileWriter(manifest);
+      writer.write("not a manifest\n");
+      writer.close();
+      stale.getParentFile().mkdirs();
+      stale.createNewFile();
+      assertEquals(2, extractor.update(archive, target));
+      assertFalse(stale.exists());
+      assertEquals("class B { }", FileUtil.readFile(new File(target, "a/B.java")));
+      assertEquals(0, extractor.update(archive, target));
+    } finally {
+      extractor.close();
+    }
+  }
+
+  /** Methode which write archive with one deflated entry
+   * @param archive written archive
+   * @param name name of entry
+   * @param content content of entry
+   * @param time modification time of entry
+   * @throws Exception if archive cannot be written
+   */
+  private static void writeArchive(final File archive, final String name, final String content,
+                                   final long time) throws Exception {
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
+    ZipEntry entry = new ZipEntry(name);
+    entry.setTime(time);
+    out.putNextEntry(entry);
+    out.write(content.getBytes("US-ASCII"));
+    out.closeEntry();
+    out.close();
+  }
+
+  /** Methode which write archive with deflated entries
+   * @param archive written archive
+   * @param entries names and contents of entries
+   * @throws Exception if archive cannot be written
+   */
+  private static void writeArchive(final File archive, final String[] entries) throws Exception {
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive));
+    for (int i = 0; i < entries.length; i += 2) {
+      out.putNextEntry(new ZipEntry(entries[i]));
+      out.write(entries[i + 1].getBytes("US-ASCII"));
+      out.closeEntry();
+    }
+    out.close();
+  }
+
+  /** Methode which write little endian short
+   * @param out output
+   * @param value written value
+   */
+  private static void writeShort(final ByteArrayOutputStream out, final int value) {
+    out.write(value & 0xFF);
+    out.write((value >> 8) & 0xFF);
+  }
+
+  /** Methode which write little endian int
+   * @param out output
+   * @param value written value
+   */
+  private static void writeInt(final ByteArrayOutputStream out, final int value) {
+    writeShort(out, value & 0xFFFF);
+    writeShort(out, (value >> 16) & 0xFFFF);
+  }
+}
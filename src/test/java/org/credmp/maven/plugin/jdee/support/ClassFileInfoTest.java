@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import junit.framework.TestCase;
+
+/** Tests of {@link ClassFileInfo} over compiled classes.
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class ClassFileInfoTest extends TestCase {
+
+  /** Class of this plugin
+   * @throws Exception if test fails
+   */
+  public void testPluginClass() throws Exception {
+    ClassFileInfo info = read(ClassFileInfo.class);
+    assertEquals("org/apache/maven/plugin/jdee/support/ClassFileInfo", info.getName());
+    assertEquals(1, info.getSuperTypes().size());
+    assertEquals("java/lang/Object", info.getSuperTypes().get(0));
+    assertTrue(info.getReferences().contains("java/io/DataInputStream"));
+    assertTrue(info.getReferences().contains("java/io/IOException"));
+    assertFalse(info.getReferences().contains(info.getName()));
+  }
+
+  /** Class of JDK with interfaces
+   * @throws Exception if test fails
+   */
+  public void testJdkClass() throws Exception {
+    ClassFileInfo info = read(String.class);
+    assertEquals("java/lang/String", info.getName());
+    assertEquals("java/lang/Object", info.getSuperTypes().get(0));
+    assertTrue(info.getSuperTypes().contains("java/io/Serializable"));
+    assertTrue(info.getSuperTypes().contains("java/lang/Comparable"));
+    assertTrue(info.getReferences().contains("java/lang/StringBuilder"));
+  }
+
+  /** Public constants are read, serialVersionUID isn't constant
+   * @throws Exception if test fails
+   */
+  public void testConstants() throws Exception {
+    ClassFileInfo info = read(Integer.class);
+    assertEquals(new Integer(Integer.MAX_VALUE), info.getConstants().get("MAX_VALUE"));
+    assertFalse(info.getConstants().containsKey("serialVersionUID"));
+    assertEquals(new Long(Long.MIN_VALUE), read(Long.class).getConstants().get("MIN_VALUE"));
+    assertTrue(read(ClassFileInfo.class).getConstants().isEmpty());
+  }
+
+  /** Class of this test (anonymous and nested classes in constant pool)
+   * @throws Exception if test fails
+   */
+  public void testTestClass() throws Exception {
+    ClassFileInfo info = read(ClassFileInfoTest.class);
+    assertEquals("org/apache/maven/plugin/jdee/support/ClassFileInfoTest", info.getName());
+    assertEquals("junit/framework/TestCase", info.getSuperTypes().get(0));
+    assertTrue(info.getReferences().contains("org/apache/maven/plugin/jdee/support/ClassFileInfo"));
+  }
+
+  /** Classes used only in descriptors after primitive parameter and in
+   * generic signatures
+   * @throws Exception if test fails
+   */
+  public void testDescriptors() throws Exception {
+    ClassFileInfo info = read(Holder.class);
+    assertTrue(info.getReferences().contains("java/util/BitSet"));
+    assertTrue(info.getReferences().contains("java/util/zip/Adler32"));
+    assertTrue(info.getReferences().contains("java/util/zip/Deflater"));
+    assertTrue(info.getReferences().contains("java/util/Map"));
+    assertTrue(info.getReferences().contains("java/util/zip/Inflater"));
+    assertTrue(info.getReferences().contains("java/util/zip/CRC32"));
+    assertFalse(info.getReferences().contains("T"));
+  }
+
+  /** Stream which isn't class file is refused
+   * @throws Exception if test fails
+   */
+  public void testNotClassFile() throws Exception {
+    try {
+      ClassFileInfo.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+      fail("Not a class file was read");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+
+  /** Class which uses other classes only in its descriptors and signatures */
+  static class Holder {
+    /** Field with generic signature */
+    private java.util.List<java.util.zip.CRC32> checksums;
+
+    /** Primitive before object parameter
+     * @param i number
+     * @param b bits
+     */
+    void take(final int i, final java.util.BitSet b) { }
+
+    /** Wide primitive before object parameter
+     * @param l number
+     * @param a checksum
+     */
+    void take(final long l, final java.util.zip.Adler32 a) { }
+
+    /** Array of primitives before object parameter
+     * @param d numbers
+     * @param z deflater
+     */
+    void take(final double[] d, final java.util.zip.Deflater z) { }
+
+    /** Generic method
+     * @param t value
+     * @param m map
+     * @param <T> type of value
+     */
+    <T extends Comparable<T>> void take(final T t, final java.util.Map<String, java.util.zip.Inflater> m) { }
+  }
+
+  /** Methode which read class file of class
+   * @param type class
+   * @return information about class
+   * @throws IOException if class file cannot be read
+   */
+  private static ClassFileInfo read(final Class type) throws IOException {
+    String name = type.getName();
+    InputStream in = type.getResourceAsStream("/" + name.replace('.', '/') + ".class");
+    assertNotNull("Class file of " + name, in);
+    try {
+      return ClassFileInfo.read(in);
+    } finally {
+      in.close();
+    }
+  }
+}
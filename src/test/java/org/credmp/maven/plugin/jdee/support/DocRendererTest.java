@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.jdee.FileUtil;
+
+/** Tests of {@link DocRenderer} (needs javadoc tool of JDK 1.8 or newer).
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class DocRendererTest extends TestCase {
+
+  /** Temporary directory of test */
+  private File directory;
+  /** Source root */
+  private File sources;
+  /** Tested renderer with capacity of two classes */
+  private DocRenderer renderer;
+  /** Output for messages of javadoc */
+  private PrintStream out;
+
+  /** Methode which create sources and renderer
+   * @throws Exception if sources cannot be written
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("doc-renderer", "");
+    directory.delete();
+    directory.mkdirs();
+    sources = new File(directory, "src");
+    write("p/A.java", "package p; /** First A. */ public class A { /** Nested. */ public static class In { } }");
+    write("p/B.java", "package p; /** First B. */ public class B { }");
+    write("p/C.java", "package p; /** First C. */ public class C { }");
+    renderer = new DocRenderer(Collections.singletonList(sources), new ArrayList(),
+                               new File(directory, "doc"), 2);
+    out = new PrintStream(new ByteArrayOutputStream(), true);
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** Page is rendered once and then taken from cache, nested class has own
+   * page
+   * @throws Exception if test fails
+   */
+  public void testCache() throws Exception {
+    File page = renderer.render("p.A", out);
+    assertEquals("A.html", page.getName());
+    assertTrue(FileUtil.readFile(page).indexOf("First A.") >= 0);
+    assertEquals(page, renderer.render("p.A", out));
+    assertEquals("A.In.html", renderer.render("p.A$In", out).getName());
+    assertEquals(1, renderer.getMisses());
+    assertEquals(2, renderer.getHits());
+  }
+
+  /** The least recently used class is deleted when capacity is exceeded
+   * @throws Exception if test fails
+   */
+  public void testEviction() throws Exception {
+    File a = renderer.render("p.A", out);
+    File b = renderer.render("p.B", out);
+    // A is used later then B, so B is the eldest
+    renderer.render("p.A", out);
+    File c = renderer.render("p.C", out);
+    assertTrue(a.isFile());
+    assertFalse(b.exists());
+    assertTrue(c.isFile());
+    assertEquals(3, renderer.getMisses());
+
+    renderer.render("p.B", out);
+    assertEquals(4, renderer.getMisses());
+    assertFalse(a.exists());
+  }
+
+  /** Page is rendered again when source is changed
+   * @throws Exception if test fails
+   */
+  public void testChangedSource() throws Exception {
+    File page = renderer.render("p.A", out);
+    File source = new File(sources, "p/A.java");
+    write("p/A.java", "package p; /** Second A. */ public class A { }");
+    source.setLastModified(page.lastModified() + 10000);
+    page = renderer.render("p.A", out);
+    assertEquals(2, renderer.getMisses());
+    assertEquals(0, renderer.getHits());
+    assertTrue(FileUtil.readFile(page).indexOf("Second A.") >= 0);
+  }
+
+  /** Class without source isn't rendered
+   * @throws Exception if test fails
+   */
+  public void testMissingSource() throws Exception {
+    try {
+      renderer.render("p.Missing", out);
+      fail("Class without source was rendered");
+    } catch (FileNotFoundException e) {
+      // expected
+    }
+  }
+
+  /** Methode which write source
+   * @param path relative path of source
+   * @param content content of source
+   * @throws Exception if source cannot be written
+   */
+  private void write(final String path, final String content) throws Exception {
+    File file = new File(sources, path);
+    file.getParentFile().mkdirs();
+    FileWriter writer = new FileWriter(file);
+    writer.write(content);
+    writer.close();
+  }
+}
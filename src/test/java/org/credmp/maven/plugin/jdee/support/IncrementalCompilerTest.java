@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.jdee.FileUtil;
+
+/** Tests of {@link IncrementalCompiler}.
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class IncrementalCompilerTest extends TestCase {
+
+  /** Temporary directory of test */
+  private File directory;
+  /** Source root */
+  private File sources;
+  /** Tested compiler */
+  private IncrementalCompiler compiler;
+  /** Output of compiler */
+  private ByteArrayOutputStream output;
+
+  /** Methode which create sources and compile them first time
+   * @throws Exception if sources cannot be compiled
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("incremental-compiler", "");
+    directory.delete();
+    directory.mkdirs();
+    sources = new File(directory, "src");
+    write("a/Base.java", "package a; public class Base { public int m() { return 1; } }");
+    write("a/Sub.java", "package a; public class Sub extends Base { }");
+    write("b/User.java", "package b; public class User { int x = new a.Sub().m(); }");
+    write("a/Consts.java", "package a; public class Consts { public static final int VALUE = 1; }");
+    write("b/ConstUser.java", "package b; public class ConstUser { int x = a.Consts.VALUE; }");
+    write("c/Other.java", "package c; public class Other { }");
+    write("a/Bar.java", "package a; public class Bar { }");
+    write("b/SigUser.java", "package b; public class SigUser { void take(int i, a.Bar b) { } }");
+
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    assertNotNull("Test needs JDK", javac);
+    compiler = new IncrementalCompiler(javac, new File[] {sources}, new File(directory, "classes"),
+                                       new ArrayList(), new ArrayList());
+    output = new ByteArrayOutputStream();
+    assertEquals(8, compile().size());
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** Change of super type compile users of its sub types
+   * @throws Exception if test fails
+   */
+  public void testSuperTypeChange() throws Exception {
+    write("a/Base.java", "package a; public class Base { public int n() { return 1; } }");
+    Set changed = compile();
+    assertTrue(changed.toString(), changed.contains("a/Sub"));
+    assertTrue(changed.toString(), changed.contains("b/User"));
+    assertFalse(changed.toString(), changed.contains("c/Other"));
+    assertTrue(output.toString(), output.toString().indexOf("User.java") >= 0);
+    assertFalse(compiler.isConstantChanged());
+  }
+
+  /** Change of constant compile class which use it
+   * @throws Exception if test fails
+   */
+  public void testConstantChange() throws Exception {
+    write("a/Consts.java", "package a; public class Consts { public static final int VALUE = 2; }");
+    Set changed = compile();
+    assertTrue(changed.toString(), changed.contains("b/ConstUser"));
+    assertFalse(changed.toString(), changed.contains("c/Other"));
+    assertEquals(new Integer(2), ClassFileInfo.read(new File(directory, "classes/a/Consts.class"))
+                 .getConstants().get("VALUE"));
+  }
+
+  /** Removed class compile class which use it only in descriptor after
+   * primitive parameter
+   * @throws Exception if test fails
+   */
+  public void testDescriptorUserOfRemovedClass() throws Exception {
+    assertTrue(new File(sources, "a/Bar.java").delete());
+    Set changed = compile();
+    assertTrue(changed.toString(), changed.contains("a/Bar"));
+    assertTrue(changed.toString(), changed.contains("b/SigUser"));
+    assertFalse(changed.toString(), changed.contains("c/Other"));
+    assertTrue(output.toString(), output.toString().indexOf("SigUser.java") >= 0);
+  }
+
+  /** Methode which compile changed sources
+   * @return changed classes
+   * @throws Exception if classes cannot be written
+   */
+  private Set compile() throws Exception {
+    output.reset();
+    return compiler.compileChanged(new HashSet(), new PrintStream(output, true));
+  }
+
+  /** Methode which write source with new modification time
+   * @param path relative path of source
+   * @param content content of source
+   * @throws Exception if source cannot be written
+   */
+  private void write(final String path, final String content) throws Exception {
+    File file = new File(sources, path);
+    file.getParentFile().mkdirs();
+    long time = file.lastModified();
+    FileWriter writer = new FileWriter(file);
+    writer.write(content);
+    writer.close();
+    if (time != 0) {
+      // sources and classes are older then now
+      file.setLastModified(time + 10000);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.File;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.jdee.FileUtil;
+
+/** Tests of {@link JavadocWorker}.
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class JavadocWorkerTest extends TestCase {
+
+  /** Temporary directory of test */
+  private File directory;
+
+  /** Methode which create temporary directory
+   * @throws Exception if directory cannot be created
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("javadoc-worker", "");
+    directory.delete();
+    directory.mkdirs();
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** Failed job is marked and its queue mark is removed
+   * @throws Exception if test fails
+   */
+  public void testFailedJobIsMarked() throws Exception {
+    File target = new File(directory, "javadoc");
+    File queued = new File(target.getPath() + JavadocWorker.QUEUED_SUFFIX);
+    queued.createNewFile();
+    String missing = new File(directory, "no-javadoc-executable").getAbsolutePath();
+
+    assertFalse(JavadocWorker.runJob(new String[] {target.getPath(), missing, "-quiet"}));
+    assertFalse(target.exists());
+    assertFalse(queued.exists());
+    assertTrue(new File(target.getPath() + JavadocWorker.FAILED_SUFFIX).isFile());
+    assertFalse(new File(target.getPath() + JavadocWorker.TEMPORARY_SUFFIX).exists());
+  }
+}
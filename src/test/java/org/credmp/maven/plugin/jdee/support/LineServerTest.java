@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/** Tests of {@link LineServer}.
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class LineServerTest extends TestCase {
+
+  /** Plain words are separated by white spaces */
+  public void testSplitWords() {
+    assertEquals(Arrays.asList(new String[] {"check", "A.java", "B.java"}),
+                 Arrays.asList(LineServer.split("  check A.java\tB.java  ")));
+    assertEquals(0, LineServer.split("   ").length);
+  }
+
+  /** Quoted words can contain spaces and escapes */
+  public void testSplitQuoted() {
+    assertEquals(Arrays.asList(new String[] {"check", "/home/my projects/A.java", "say \"hi\\"}),
+                 Arrays.asList(LineServer.split("check \"/home/my projects/A.java\" \"say \\\"hi\\\\\"")));
+    assertEquals(Arrays.asList(new String[] {""}), Arrays.asList(LineServer.split("\"\"")));
+  }
+
+  /** Unclosed quotes are reported and server continues
+   * @throws Exception if test fails
+   */
+  public void testServer() throws Exception {
+    final List received = new ArrayList();
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    String input = "check \"/tmp/a b/C.java\"\ncheck \"unclosed\nquit\ncheck ignored\n";
+    new LineServer(new ByteArrayInputStream(input.getBytes("UTF-8")), new PrintStream(output, true),
+                   new LineServer.Handler() {
+                     public void handle(final String command, final String[] arguments,
+                                        final PrintStream out) {
+                       received.add(command + ":" + Arrays.asList(arguments));
+                     }
+                   }).run();
+    assertEquals(Arrays.asList(new String[] {"check:[/tmp/a b/C.java]"}), received);
+    assertTrue(output.toString().indexOf(LineServer.ERROR + "Unclosed quotes") >= 0);
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.maven.plugin.jdee.support;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import junit.framework.TestCase;
+import org.apache.maven.plugin.jdee.FileUtil;
+
+/** Tests of {@link TestRunner} over test classes compiled by test.
+ * <p>JUnit 4 isn't dependency of plugin, so its path is tested with minimal
+ * <code>org.junit.runner</code> API which has only methodes called by
+ * runner.</p>
+ * @author <a href="mailto:bendal@apnet.cz">Lukas Benda</a>
+ * @version 1.3
+ */
+public class TestRunnerTest extends TestCase {
+
+  /** Test class of JUnit 3 with one passing and one failing test */
+  private static final String JUNIT3_TEST = "package t; public class SampleTest extends junit.framework.TestCase {"
+    + " public void testOk() { } public void testBad() { fail(\"bad\"); } }";
+  /** Minimal API of JUnit 4 which runs public methodes starting with test */
+  private static final String[][] JUNIT4_API = {
+    {"org/junit/runner/Request.java", "package org.junit.runner; public class Request {"
+     + " Class type; String method;"
+     + " public static Request aClass(Class c) { Request r = new Request(); r.type = c; return r; }"
+     + " public static Request method(Class c, String m) { Request r = aClass(c); r.method = m; return r; } }"},
+    {"org/junit/runner/Result.java", "package org.junit.runner; public class Result {"
+     + " int run; java.util.List failures = new java.util.ArrayList();"
+     + " public int getRunCount() { return run; } public java.util.List getFailures() { return failures; }"
+     + " public int getIgnoreCount() { return 0; } }"},
+    {"org/junit/runner/notification/Failure.java", "package org.junit.runner.notification; public class Failure {"
+     + " String header; public Failure(String h) { header = h; }"
+     + " public String getTestHeader() { return header; } public String getTrace() { return header + \"\\n\"; } }"},
+    {"org/junit/runner/JUnitCore.java", "package org.junit.runner; public class JUnitCore {"
+     + " public Result run(Request r) throws Exception { Result result = new Result();"
+     + " java.lang.reflect.Method[] ms = r.type.getMethods();"
+     + " for (int i = 0; i < ms.length; i++) { String n = ms[i].getName();"
+     + " if (!n.startsWith(\"test\") || (r.method != null && !r.method.equals(n))) { continue; }"
+     + " result.run++; try { ms[i].invoke(r.type.newInstance()); }"
+     + " catch (java.lang.reflect.InvocationTargetException e) {"
+     + " result.failures.add(new org.junit.runner.notification.Failure(n)); } }"
+     + " return result; } }"}
+  };
+
+  /** Temporary directory of test */
+  private File directory;
+  /** Directory with compiled test classes */
+  private File classes;
+  /** Output of runner */
+  private ByteArrayOutputStream output;
+
+  /** Methode which create temporary directory
+   * @throws Exception if directory cannot be created
+   */
+  protected void setUp() throws Exception {
+    directory = File.createTempFile("test-runner", "");
+    directory.delete();
+    directory.mkdirs();
+    classes = new File(directory, "classes");
+    classes.mkdirs();
+    output = new ByteArrayOutputStream();
+  }
+
+  /** Methode which delete temporary directory */
+  protected void tearDown() {
+    FileUtil.deleteDirectory(directory);
+  }
+
+  /** JUnit 3 run all tests of class and one test method
+   * @throws Exception if test fails
+   */
+  public void testJUnit3() throws Exception {
+    compile(classes, "t/SampleTest.java", JUNIT3_TEST, junit());
+    TestRunner runner = new TestRunner(new File[] {classes}, Arrays.asList(new File[] {junit()}));
+
+    assertFalse(run(runner, "t.SampleTest", null));
+    assertTrue(output.toString(), output.toString().indexOf("run 2, failures 1") >= 0);
+    assertTrue(output.toString(), output.toString().indexOf("FAILED testBad") >= 0);
+
+    assertTrue(run(runner, "t.SampleTest", "testOk"));
+    assertTrue(output.toString(), output.toString().indexOf(";; tests t.SampleTest#testOk: run 1, failures 0") >= 0);
+  }
+
+  /** JUnit 4 is preferred and Request.method select one test method
+   * @throws Exception if test fails
+   */
+  public void testJUnit4() throws Exception {
+    File api = new File(directory, "junit4");
+    for (int i = 0; i < JUNIT4_API.length; i++) {
+      write(new File(directory, "junit4-src/" + JUNIT4_API[i][0]), JUNIT4_API[i][1]);
+    }
+    compile(api, new File(directory, "junit4-src"), null);
+    compile(classes, "t/Plain.java", "package t; public class Plain {"
+            + " public void testOk() { } public void testBad() { throw new AssertionError(); } }", null);
+    TestRunner runner = new TestRunner(new File[] {classes}, Arrays.asList(new File[] {api, junit()}));
+
+    assertFalse(run(runner, "t.Plain", null));
+    assertTrue(output.toString(), output.toString().indexOf("run 2, failures 1, ignored 0") >= 0);
+    assertTrue(output.toString(), output.toString().indexOf("FAILED testBad") >= 0);
+
+    assertFalse(run(runner, "t.Plain", "testBad"));
+    assertTrue(output.toString(), output.toString().indexOf(";; tests t.Plain#testBad: run 1, failures 1") >= 0);
+    assertTrue(run(runner, "t.Plain", "testOk"));
+  }
+
+  /** Recompiled test class is loaded by next run
+   * @throws Exception if test fails
+   */
+  public void testRecompiledClass() throws Exception {
+    compile(classes, "t/SampleTest.java", JUNIT3_TEST, junit());
+    TestRunner runner = new TestRunner(new File[] {classes}, Arrays.asList(new File[] {junit()}));
+    assertFalse(run(runner, "t.SampleTest", null));
+
+    compile(classes, "t/SampleTest.java", "package t; public class SampleTest extends junit.framework.TestCase {"
+            + " public void testOk() { } public void testBad() { } public void testNew() { } }", junit());
+    assertTrue(output.toString(), run(runner, "t.SampleTest", null));
+    assertTrue(output.toString(), output.toString().indexOf("run 3, failures 0") >= 0);
+  }
+
+  /** Class which doesn't exist cannot be run
+   * @throws Exception if test fails
+   */
+  public void testMissingClass() throws Exception {
+    TestRunner runner = new TestRunner(new File[] {classes}, Arrays.asList(new File[] {junit()}));
+    try {
+      run(runner, "t.Missing", null);
+      fail("Missing class was run");
+    } catch (ClassNotFoundException e) {
+      // expected
+    }
+  }
+
+  /** Methode which run tests with empty output
+   * @param runner test runner
+   * @param className test class
+   * @param methodName test method or null
+   * @return true if tests passed
+   * @throws Exception if tests cannot be run
+   */
+  private boolean run(final TestRunner runner, final String className, final String methodName)
+    throws Exception {
+    output.reset();
+    return runner.run(className, methodName, new PrintStream(output, true));
+  }
+
+  /** Methode which return jar or directory with JUnit 3 of this test
+   * @return location of JUnit
+   * @throws Exception if location isn't file
+   */
+  private static File junit() throws Exception {
+    return new File(TestCase.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+
+  /** Methode which write source and compile it to output directory
+   * @param output output directory
+   * @param path relative path of source
+   * @param content content of source
+   * @param classpath classpath of compilation or null
+   * @throws Exception if source cannot be compiled
+   */
+  private void compile(final File output, final String path, final String content, final File classpath)
+    throws Exception {
+    File sources = new File(directory, "src");
+    FileUtil.deleteDirectory(sources);
+    write(new File(sources, path), content);
+    compile(output, sources, classpath);
+  }
+
+  /** Methode which compile all sources of directory
+   * @param output output directory
+   * @param sources directory with sources
+   * @param classpath classpath of compilation or null
+   * @throws Exception if sources cannot be compiled
+   */
+  private static void compile(final File output, final File sources, final File classpath) throws Exception {
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    assertNotNull("Test needs JDK", javac);
+    output.mkdirs();
+    List arguments = new ArrayList();
+    arguments.add("-nowarn");
+    arguments.add("-d");
+    arguments.add(output.getPath());
+    if (classpath != null) {
+      arguments.add("-cp");
+      arguments.add(classpath.getPath());
+    }
+    addSources(sources, arguments);
+    ByteArrayOutputStream messages = new ByteArrayOutputStream();
+    assertEquals(messages.toString(), 0, javac.run(null, messages, messages,
+                                                   (String[]) arguments.toArray(new String[arguments.size()])));
+  }
+
+  /** Methode which add all java sources of directory to list
+   * @param directory directory with sources
+   * @param files list of paths
+   */
+  private static void addSources(final File directory, final List files) {
+    File[] children = directory.listFiles();
+    for (int i = 0; i < children.length; i++) {
+      if (children[i].isDirectory()) {
+        addSources(children[i], files);
+      } else if (children[i].getName().endsWith(".java")) {
+        files.add(children[i].getPath());
+      }
+    }
+  }
+
+  /** Methode which write source
+   * @param file source file
+   * @param content content of source
+   * @throws Exception if source cannot be written
+   */
+  private static void write(final File file, final String content) throws Exception {
+    file.getParentFile().mkdirs();
+    FileWriter writer = new FileWriter(file);
+    writer.write(content);
+    writer.close();
+  }
+}